@@ -0,0 +1,54 @@
+package uoa.assignment.character;
+
+/**
+ * Struct-of-arrays storage for the characters of one map.
+ * Each character has an id that indexes the parallel arrays, so bulk passes over positions or
+ * health read contiguous primitive arrays instead of following one object per character.
+ */
+public class CharacterStore {
+
+    public static final byte KIND_PLAYER = 0;
+    public static final byte KIND_MONSTER = 1;
+
+    public final int[] row;     // Row position of each character
+    public final int[] column;  // Column position of each character
+    public final int[] health;  // Current health of each character
+    public final byte[] kind;   // KIND_PLAYER or KIND_MONSTER
+
+
+    /**
+     * Creates a store for a fixed number of characters.
+     * @param size The number of characters, including the player.
+     */
+    public CharacterStore(int size) {
+        this.row = new int[size];
+        this.column = new int[size];
+        this.health = new int[size];
+        this.kind = new byte[size];
+    }
+
+
+    /**
+     * Returns the number of characters in the store.
+     * @return The number of character slots.
+     */
+    public int size() {
+        return health.length;
+    }
+
+
+    /**
+     * Counts the characters of a given kind that still have health left.
+     * @param characterKind KIND_PLAYER or KIND_MONSTER.
+     * @return The number of living characters of that kind.
+     */
+    public int countAlive(byte characterKind) {
+        int alive = 0;
+        for (int i = 0; i < health.length; i++) {
+            if (kind[i] == characterKind && health[i] > 0) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+}
@@ -1,18 +1,29 @@
 package uoa.assignment.character;
+
+import uoa.assignment.game.GameRandom;
 /**
  * This abstract class represents a generic game character in the game.
  * It defines basic properties and behaviors common to all characters, such as health, position, and interaction methods.
  */
 public abstract class GameCharacter {
 
+    /** Health of a new character. */
+    public static final int DEFAULT_HEALTH = 100;
+
     private String name ;
 
-    private int health=100;
+    private int health=DEFAULT_HEALTH;
 
     public int row;// Row position of the character on the game map
 
     public int column; // Column position of the character on the game map
 
+    private CharacterStore store; // Backing store once the character is placed on a map
+
+    private int id = -1; // Index of the character in its store
+
+    protected GameRandom random = new GameRandom(); // Random source of the game the character plays in
+
     /**
      * Constructor for a game character with a specified name.
      * Initializes the character with default health of 100.
@@ -21,7 +32,7 @@ public abstract class GameCharacter {
      */
     public GameCharacter(String name) {
         this.name = name;
-        this.health = 100; // Default health is set to 100
+        this.health = DEFAULT_HEALTH; // Default health is set to 100
     }
 
 
@@ -76,7 +87,7 @@ public abstract class GameCharacter {
      * @return The current health of the character.
      */
     public int getHealth() {
-        return this.health;
+        return store != null ? store.health[id] : this.health;
     }
 
 
@@ -86,7 +97,60 @@ public abstract class GameCharacter {
      * @param health The new health value of the character.
      */
     public void setHealth(int health) {
-        this.health = Math.max(health, 0); // Ensure health does not go below zero
+        if (store != null) {
+            store.health[id] = Math.max(health, 0);
+        } else {
+            this.health = Math.max(health, 0); // Ensure health does not go below zero
+        }
+    }
+
+
+    /**
+     * Binds this character to a slot of a character store.
+     * From then on the health is read from and written to the store, and the store holds a copy
+     * of the position. The public row and column fields stay the coordinates used by the game logic.
+     *
+     * @param store The store that holds the character's state.
+     * @param id    The slot of this character in the store.
+     */
+    public void bind(CharacterStore store, int id) {
+        store.health[id] = getHealth();
+        store.row[id] = this.row;
+        store.column[id] = this.column;
+        store.kind[id] = this instanceof Player ? CharacterStore.KIND_PLAYER : CharacterStore.KIND_MONSTER;
+        this.store = store;
+        this.id = id;
+    }
+
+
+    /**
+     * Returns the slot of this character in its store.
+     *
+     * @return The id of the character, or -1 if it is not bound to a store.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+
+    /**
+     * Sets the random source used for this character's rolls.
+     * A game gives all of its characters the same source, so the whole game follows one seed.
+     *
+     * @param random The random source of the game.
+     */
+    public void setRandom(GameRandom random) {
+        this.random = random;
+    }
+
+
+    /**
+     * Returns the random source used for this character's rolls.
+     *
+     * @return The random source.
+     */
+    public GameRandom getRandom() {
+        return this.random;
     }
 }
 
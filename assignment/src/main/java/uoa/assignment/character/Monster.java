@@ -1,6 +1,5 @@
 package uoa.assignment.character;
 
-import java.util.Random;
 /**
  * This class represents a Monster character in the game.
  * It extends the GameCharacter class and defines specific behaviors for a Monster.
@@ -9,6 +8,7 @@ public class Monster extends GameCharacter {
     private static final int DEFAULT_DIFFICULTY = 1; // Default difficulty level
     public int attackPoint=-20;// Default attackPoint
     public double defenseSuccessRate=0.5;// Default defenseSuccessRate
+    private static final String[] MOVES = {"up", "down", "left", "right"}; // Moves a Monster can decide on
 
 
     /**
@@ -82,7 +82,6 @@ public class Monster extends GameCharacter {
      */
     @Override
     public boolean successfulDefense() {
-        Random random = new Random();
         return random.nextDouble() < defenseSuccessRate;
     }
 
@@ -93,8 +92,6 @@ public class Monster extends GameCharacter {
      * @return A string representing the next move.
      */
     public String decideMove() {
-        String[] moves = {"up", "down", "left", "right"};
-        Random random = new Random();
-        return moves[random.nextInt(moves.length)];
+        return MOVES[random.nextInt(MOVES.length)];
     }
 }
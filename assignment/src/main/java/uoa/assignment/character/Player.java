@@ -1,6 +1,5 @@
 package uoa.assignment.character;
 
-import java.util.Random;
 /**
  * This class represents a Player character in the game.
  * It extends the GameCharacter class and defines specific behaviors for a Player.
@@ -81,7 +80,6 @@ public class Player extends GameCharacter{
      */
     @Override
     public boolean successfulDefense() {
-        Random random = new Random();
         return random.nextDouble() < defenseSuccessRate; // Chance of successful defense
     }
 }
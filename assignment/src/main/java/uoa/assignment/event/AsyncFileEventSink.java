@@ -0,0 +1,166 @@
+package uoa.assignment.event;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes events to a text file, one line per event, from a background thread.
+ * The game thread only enqueues the event; formatting and file I/O happen on the writer thread.
+ * When the queue is full the game thread waits, so no event is lost; an interrupt during the wait
+ * is kept for the caller but does not drop the event.
+ */
+public class AsyncFileEventSink implements EventSink, Closeable {
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int BATCH_SIZE = 1024;
+    private static final GameEvent POISON = GameEvent.roundStart(-1); // Tells the writer to stop
+
+    private final BlockingQueue<GameEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BufferedWriter writer;
+    private final Thread thread;
+    private volatile IOException failure;
+    private volatile boolean closed; // Set and checked under the sink's lock, so no event follows the stop marker
+
+
+    /**
+     * Opens the file, replacing any existing content, and starts the writer thread.
+     * @param file The file to write to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncFileEventSink(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.thread = new Thread(this::drain, "event-writer-" + file.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+
+    @Override
+    public synchronized void accept(GameEvent event) {
+        if (closed) {
+            throw new IllegalStateException("Event sink is closed.");
+        }
+        putUninterruptibly(event);
+    }
+
+
+    /**
+     * Writes every queued event, stops the writer thread and closes the file.
+     * @throws IOException if writing to the file failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        putUninterruptibly(POISON);
+        // The file is closed only once the writer thread is done with it
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+
+    /**
+     * Enqueues an event, waiting for space even if the thread is interrupted.
+     * The interrupt status is restored once the event is in the queue.
+     * @param event The event to enqueue.
+     */
+    private void putUninterruptibly(GameEvent event) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(event);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Body of the writer thread: takes events in batches and writes them until told to stop.
+     * After a write error the remaining events are discarded, so the game thread never blocks.
+     */
+    private void drain() {
+        List<GameEvent> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (GameEvent event : batch) {
+                    if (event == POISON) {
+                        flush();
+                        return;
+                    }
+                    write(event);
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Writes one event as a line, unless an earlier write failed.
+     * A failure is kept and reported by {@link #close()}.
+     * @param event The event to write.
+     */
+    private void write(GameEvent event) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            writer.write(event.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+
+    /**
+     * Flushes the written lines to the file, unless an earlier write failed.
+     * A failure is kept and reported by {@link #close()}.
+     */
+    private void flush() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
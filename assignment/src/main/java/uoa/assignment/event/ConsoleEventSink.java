@@ -0,0 +1,106 @@
+package uoa.assignment.event;
+
+import java.io.PrintStream;
+
+import uoa.assignment.character.Player;
+import uoa.assignment.game.Map;
+
+/**
+ * Prints events to standard output as the colored messages of the interactive game.
+ * Standard output is looked up for every event, so redirecting System.out takes effect immediately.
+ */
+public class ConsoleEventSink implements EventSink {
+
+    // ANSI Color Codes for enhanced console output readability
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_RED = "\u001B[31m";
+    private static final String ANSI_GREEN = "\u001B[32m";
+    private static final String ANSI_YELLOW = "\u001B[33m";
+    private static final String ANSI_PURPLE = "\u001B[35m";
+    private static final String ANSI_ORANGE = "\u001B[38;5;208m";
+
+
+    @Override
+    public void accept(GameEvent event) {
+        PrintStream out = System.out;
+        switch (event.getType()) {
+            case GAME_START:
+                event.getMap().printLayout();
+                break;
+            case ROUND_START:
+                out.println(ANSI_GREEN + "Starting interaction..." + ANSI_RESET);
+                break;
+            case INVALID_INPUT:
+                out.println(ANSI_RED + "Use only keywords up, down, left, right" + ANSI_RESET);
+                break;
+            case MOVE:
+                if (event.getActor() instanceof Player) {
+                    out.println();
+                }
+                out.println(event.getActorName() + " is moving " + event.getDirection());
+                break;
+            case BLOCKED_MOVE:
+                out.println(ANSI_ORANGE + blockedMessage(event) + ANSI_RESET);
+                break;
+            case HIT:
+                out.println(ANSI_GREEN + "!!HIT!! " + ANSI_RESET + event.getActorName() + " successfully attacked " + event.getTargetName());
+                break;
+            case MISS:
+                out.println(ANSI_PURPLE + "!!MISS!! " + ANSI_RESET + event.getTargetName() + " successfully defended attack from " + event.getActorName());
+                break;
+            case DEATH:
+                // The map shows defeated monsters; the interactive game prints nothing extra
+                break;
+            case ROUND_END:
+                printHealthStatus(out, event.getMap());
+                if (!event.isGameOver()) {
+                    event.getMap().printLayout();
+                }
+                break;
+            case GAME_OVER:
+                if (event.isPlayerWon()) {
+                    out.println(ANSI_GREEN + "YOU HAVE WON!" + ANSI_RESET);
+                } else {
+                    out.println(ANSI_RED + "YOU HAVE DIED!" + ANSI_RESET);
+                }
+                event.getMap().printLayout();
+                break;
+        }
+    }
+
+
+    /**
+     * Returns the message shown for a refused move.
+     * @param event The BLOCKED_MOVE event.
+     * @return The message text without colors.
+     */
+    private static String blockedMessage(GameEvent event) {
+        switch (event.getReason()) {
+            case EDGE:
+                return "You can't go " + event.getDirection() + ". You lose a move.";
+            case DEAD_CHARACTER:
+                return "Character already dead";
+            case TERRAIN:
+                return "You can't cross walls or water.";
+            default:
+                return "Monster already there so can't move";
+        }
+    }
+
+
+    /**
+     * Prints the health status of the player and all monsters.
+     * This is used to give a quick overview of the game state to the player.
+     * @param out The stream to print to.
+     * @param map The map holding the characters.
+     */
+    private static void printHealthStatus(PrintStream out, Map map) {
+        out.println();
+        out.println(ANSI_YELLOW + "Current Health Status:" + ANSI_RESET);
+        out.println("Health " + map.characters[0].sayName() + ": " + ANSI_RED + map.characters[0].getHealth() + ANSI_RESET);
+        for (int i = 1; i < map.characters.length; i++) {
+            out.println("Health Monster" + i + ": " + ANSI_RED + map.characters[i].getHealth() + ANSI_RESET);
+        }
+        out.println();
+    }
+}
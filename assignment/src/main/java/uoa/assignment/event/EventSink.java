@@ -0,0 +1,38 @@
+package uoa.assignment.event;
+
+/**
+ * Receives the events of a game.
+ * The game checks {@link #isEnabled()} before building an event, so a disabled sink costs
+ * neither allocation nor string formatting.
+ */
+public interface EventSink {
+
+    /** A sink that ignores everything; games using it run without any output cost. */
+    EventSink NONE = new EventSink() {
+        @Override
+        public void accept(GameEvent event) {
+            // Ignore
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+
+    /**
+     * Handles one event.
+     * @param event The event.
+     */
+    void accept(GameEvent event);
+
+
+    /**
+     * Returns whether this sink wants events at all.
+     * @return false if events should not even be created.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,327 @@
+package uoa.assignment.event;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.game.Map;
+
+/**
+ * Something that happened in a game: a move, a blocked move, an attack, a death or the end of a round.
+ * Events are created through the static factories and are immutable. Numbers and names are captured
+ * when the event is created, so sinks that handle events later still see the values of that moment.
+ */
+public final class GameEvent {
+
+    /**
+     * The kind of event.
+     */
+    public enum Type {
+        GAME_START,     // A game has been set up; carries the map
+        ROUND_START,    // The player submitted input and a round begins
+        INVALID_INPUT,  // The input was not a direction; no round is played
+        MOVE,           // A character starts moving in a direction
+        BLOCKED_MOVE,   // A move was refused; see the block reason
+        HIT,            // An attack got through the defense
+        MISS,           // An attack was defended
+        DEATH,          // A character's health reached zero
+        ROUND_END,      // Every character has acted; carries the map
+        GAME_OVER       // The player won or died; carries the map
+    }
+
+    /**
+     * Why a move was refused.
+     */
+    public enum BlockReason {
+        EDGE,           // The character is at the edge of the map
+        DEAD_CHARACTER, // The player walked into a defeated monster
+        OCCUPIED,       // A monster walked into another monster
+        TERRAIN         // The character walked into a wall or water
+    }
+
+    private final Type type;
+    private final GameCharacter actor;
+    private final String actorName;
+    private final GameCharacter target;
+    private final String targetName;
+    private final String direction;
+    private final BlockReason reason;
+    private final int damage;
+    private final int targetHealth;
+    private final int round;
+    private final boolean gameOver;
+    private final boolean playerWon;
+    private final Map map;
+
+
+    private GameEvent(Type type, GameCharacter actor, GameCharacter target, String direction, BlockReason reason,
+                      int damage, int round, boolean gameOver, boolean playerWon, Map map) {
+        this.type = type;
+        this.actor = actor;
+        this.actorName = actor != null ? actor.sayName() : null;
+        this.target = target;
+        this.targetName = target != null ? target.sayName() : null;
+        this.targetHealth = target != null ? target.getHealth() : 0;
+        this.direction = direction;
+        this.reason = reason;
+        this.damage = damage;
+        this.round = round;
+        this.gameOver = gameOver;
+        this.playerWon = playerWon;
+        this.map = map;
+    }
+
+
+    /**
+     * Creates a GAME_START event.
+     * @param map The map of the new game.
+     * @return The event.
+     */
+    public static GameEvent gameStart(Map map) {
+        return new GameEvent(Type.GAME_START, null, null, null, null, 0, 0, false, false, map);
+    }
+
+
+    /**
+     * Creates a ROUND_START event.
+     * @param round The number of rounds completed before this one.
+     * @return The event.
+     */
+    public static GameEvent roundStart(int round) {
+        return new GameEvent(Type.ROUND_START, null, null, null, null, 0, round, false, false, null);
+    }
+
+
+    /**
+     * Creates an INVALID_INPUT event.
+     * @param actor The character that was asked to move.
+     * @param input The rejected input.
+     * @return The event.
+     */
+    public static GameEvent invalidInput(GameCharacter actor, String input) {
+        return new GameEvent(Type.INVALID_INPUT, actor, null, input, null, 0, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a MOVE event.
+     * @param actor The moving character.
+     * @param direction "up", "down", "left" or "right".
+     * @return The event.
+     */
+    public static GameEvent move(GameCharacter actor, String direction) {
+        return new GameEvent(Type.MOVE, actor, null, direction, null, 0, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a BLOCKED_MOVE event.
+     * @param actor The character whose move was refused.
+     * @param direction The direction of the refused move.
+     * @param reason Why the move was refused.
+     * @return The event.
+     */
+    public static GameEvent blocked(GameCharacter actor, String direction, BlockReason reason) {
+        return new GameEvent(Type.BLOCKED_MOVE, actor, null, direction, reason, 0, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a HIT event.
+     * @param attacker The attacking character.
+     * @param defender The character that was hurt, with its health after the hit.
+     * @param damage The health the defender lost.
+     * @return The event.
+     */
+    public static GameEvent hit(GameCharacter attacker, GameCharacter defender, int damage) {
+        return new GameEvent(Type.HIT, attacker, defender, null, null, damage, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a MISS event.
+     * @param attacker The attacking character.
+     * @param defender The character that defended.
+     * @return The event.
+     */
+    public static GameEvent miss(GameCharacter attacker, GameCharacter defender) {
+        return new GameEvent(Type.MISS, attacker, defender, null, null, 0, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a DEATH event.
+     * @param killer The character that dealt the last blow.
+     * @param victim The character that died.
+     * @return The event.
+     */
+    public static GameEvent death(GameCharacter killer, GameCharacter victim) {
+        return new GameEvent(Type.DEATH, killer, victim, null, null, 0, 0, false, false, null);
+    }
+
+
+    /**
+     * Creates a ROUND_END event.
+     * @param round The number of the round that just ended.
+     * @param gameOver Whether the game ended with this round.
+     * @param map The map after the round.
+     * @return The event.
+     */
+    public static GameEvent roundEnd(int round, boolean gameOver, Map map) {
+        return new GameEvent(Type.ROUND_END, null, null, null, null, 0, round, gameOver, false, map);
+    }
+
+
+    /**
+     * Creates a GAME_OVER event.
+     * @param round The number of rounds played.
+     * @param playerWon true if every monster was defeated, false if the player died.
+     * @param map The final map.
+     * @return The event.
+     */
+    public static GameEvent gameOver(int round, boolean playerWon, Map map) {
+        return new GameEvent(Type.GAME_OVER, null, null, null, null, 0, round, true, playerWon, map);
+    }
+
+
+    /**
+     * Returns the kind of event.
+     * @return The event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+
+    /**
+     * Returns the acting character: the mover, the attacker or the killer.
+     * @return The actor, or null for round and game events.
+     */
+    public GameCharacter getActor() {
+        return actor;
+    }
+
+
+    /**
+     * Returns the actor's name at the time of the event.
+     * @return The actor name, or null.
+     */
+    public String getActorName() {
+        return actorName;
+    }
+
+
+    /**
+     * Returns the character acted upon: the defender or the victim.
+     * @return The target, or null.
+     */
+    public GameCharacter getTarget() {
+        return target;
+    }
+
+
+    /**
+     * Returns the target's name at the time of the event.
+     * @return The target name, or null.
+     */
+    public String getTargetName() {
+        return targetName;
+    }
+
+
+    /**
+     * Returns the target's health right after the event.
+     * @return The target health, or 0 if there is no target.
+     */
+    public int getTargetHealth() {
+        return targetHealth;
+    }
+
+
+    /**
+     * Returns the direction of a move, or the rejected text of an INVALID_INPUT event.
+     * @return The direction, or null.
+     */
+    public String getDirection() {
+        return direction;
+    }
+
+
+    /**
+     * Returns why a move was blocked.
+     * @return The reason, or null for other events.
+     */
+    public BlockReason getReason() {
+        return reason;
+    }
+
+
+    /**
+     * Returns the health lost in a HIT event.
+     * @return The damage, or 0.
+     */
+    public int getDamage() {
+        return damage;
+    }
+
+
+    /**
+     * Returns the round number of round and game events.
+     * @return The round number, or 0.
+     */
+    public int getRound() {
+        return round;
+    }
+
+
+    /**
+     * For GAME_OVER, whether the player won rather than died.
+     * @return true if every monster was defeated.
+     */
+    public boolean isPlayerWon() {
+        return playerWon;
+    }
+
+
+    /**
+     * For ROUND_END and GAME_OVER, whether the game ended with this round.
+     * @return true if the game is over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+
+    /**
+     * Returns the map of game start, round end and game over events.
+     * @return The map, or null.
+     */
+    public Map getMap() {
+        return map;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(type.name());
+        if (round > 0) {
+            text.append(" round=").append(round);
+        }
+        if (actorName != null) {
+            text.append(" actor=").append(actorName);
+        }
+        if (targetName != null) {
+            text.append(" target=").append(targetName).append(" targetHealth=").append(targetHealth);
+        }
+        if (direction != null) {
+            text.append(" direction=").append(direction);
+        }
+        if (reason != null) {
+            text.append(" reason=").append(reason);
+        }
+        if (type == Type.HIT) {
+            text.append(" damage=").append(damage);
+        }
+        if (type == Type.GAME_OVER) {
+            text.append(playerWon ? " result=WON" : " result=DIED");
+        }
+        return text.toString();
+    }
+}
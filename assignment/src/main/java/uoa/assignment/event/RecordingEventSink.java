@@ -0,0 +1,68 @@
+package uoa.assignment.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps every event in memory, e.g. so tests can assert on what happened instead of parsing output.
+ */
+public class RecordingEventSink implements EventSink {
+
+    private final List<GameEvent> events = new ArrayList<>();
+
+
+    @Override
+    public void accept(GameEvent event) {
+        events.add(event);
+    }
+
+
+    /**
+     * Returns the recorded events in order.
+     * @return An unmodifiable view of the events.
+     */
+    public List<GameEvent> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+
+    /**
+     * Returns the recorded events of one type.
+     * @param type The event type.
+     * @return The matching events in order.
+     */
+    public List<GameEvent> getEvents(GameEvent.Type type) {
+        List<GameEvent> matching = new ArrayList<>();
+        for (GameEvent event : events) {
+            if (event.getType() == type) {
+                matching.add(event);
+            }
+        }
+        return matching;
+    }
+
+
+    /**
+     * Counts the recorded events of one type.
+     * @param type The event type.
+     * @return The number of matching events.
+     */
+    public int count(GameEvent.Type type) {
+        int count = 0;
+        for (GameEvent event : events) {
+            if (event.getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Forgets every recorded event.
+     */
+    public void clear() {
+        events.clear();
+    }
+}
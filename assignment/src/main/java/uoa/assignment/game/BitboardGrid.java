@@ -0,0 +1,273 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+
+/**
+ * Grid backend that keeps one bitboard per kind of cell content: players, live monsters, defeated monsters,
+ * walls and water.
+ * A cell is a single bit in the layer of its occupant, and empty cells have no bit set in any layer.
+ * Rows are padded to whole 64-bit words, and the layers of one word are stored next to each other,
+ * so a cell is read with one cache line and neighbourhood queries work on 64 cells at a time.
+ * The grid takes five bits per cell instead of a byte.
+ */
+public class BitboardGrid implements Grid {
+
+    private static final int LAYERS = Cell.COUNT - 1; // One layer per non-empty cell value
+
+    private final int height;
+    private final int width;
+    private final int wordsPerRow;
+    private final long lastWordMask; // Valid bits of the last word of a row
+    final long[] bits;               // Layer l of word w is at w * LAYERS + l, layer l holds cell value l + 1
+
+
+    /**
+     * Creates an empty grid of the given size.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @throws IllegalArgumentException if the size is non-positive or too large for one array.
+     */
+    public BitboardGrid(int height, int width) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Map size must be positive.");
+        }
+        int wordsPerRow = (width + 63) >>> 6;
+        if ((long) height * wordsPerRow * LAYERS > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for a bitboard grid: " + height + "x" + width);
+        }
+        this.height = height;
+        this.width = width;
+        this.wordsPerRow = wordsPerRow;
+        this.lastWordMask = -1L >>> (-width & 63);
+        this.bits = new long[height * wordsPerRow * LAYERS];
+    }
+
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+
+    @Override
+    public byte get(int row, int column) {
+        int base = (row * wordsPerRow + (column >>> 6)) * LAYERS;
+        long bit = 1L << column; // Shifts only use the low six bits of the column
+        for (int layer = 0; layer < LAYERS; layer++) {
+            if ((bits[base + layer] & bit) != 0) {
+                return (byte) (layer + 1);
+            }
+        }
+        return Cell.EMPTY;
+    }
+
+
+    /**
+     * Checks whether a cell holds a value by testing the one bit of its layer;
+     * an empty cell is one without a bit in any layer of its word.
+     */
+    @Override
+    public boolean is(int row, int column, byte cell) {
+        int base = (row * wordsPerRow + (column >>> 6)) * LAYERS;
+        long bit = 1L << column;
+        if (cell != Cell.EMPTY) {
+            return (bits[base + cell - 1] & bit) != 0;
+        }
+        for (int layer = 0; layer < LAYERS; layer++) {
+            if ((bits[base + layer] & bit) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public void set(int row, int column, byte cell) {
+        int base = (row * wordsPerRow + (column >>> 6)) * LAYERS;
+        long bit = 1L << column;
+        for (int layer = 0; layer < LAYERS; layer++) {
+            bits[base + layer] &= ~bit;
+        }
+        if (cell != Cell.EMPTY) {
+            bits[base + cell - 1] |= bit;
+        }
+    }
+
+
+    @Override
+    public void replace(int row, int column, byte from, byte to) {
+        int base = (row * wordsPerRow + (column >>> 6)) * LAYERS;
+        long bit = 1L << column;
+        if (from != Cell.EMPTY) {
+            bits[base + from - 1] &= ~bit;
+        }
+        if (to != Cell.EMPTY) {
+            bits[base + to - 1] |= bit;
+        }
+    }
+
+
+    @Override
+    public void readRow(int row, int fromColumn, byte[] dest, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[i] = get(row, fromColumn + i);
+        }
+    }
+
+
+    @Override
+    public void fill(byte cell) {
+        Arrays.fill(bits, 0L);
+        if (cell == Cell.EMPTY) {
+            return;
+        }
+        // Padding bits past the last column stay clear, so counts and neighbour masks never see them
+        for (int word = 0; word < height * wordsPerRow; word++) {
+            bits[word * LAYERS + cell - 1] = word % wordsPerRow == wordsPerRow - 1 ? lastWordMask : -1L;
+        }
+    }
+
+
+    /**
+     * Counts the cells holding a value.
+     * @param cell A non-empty {@link Cell} value.
+     * @return The number of cells holding it.
+     * @throws IllegalArgumentException if the cell is empty or unknown.
+     */
+    public long count(byte cell) {
+        int layer = layerOf(cell);
+        long count = 0;
+        for (int i = layer; i < bits.length; i += LAYERS) {
+            count += Long.bitCount(bits[i]);
+        }
+        return count;
+    }
+
+
+    /**
+     * Checks whether a cell has a neighbour holding a value, e.g. whether any monster is next to the player.
+     * Only the four cells a character can step to are neighbours.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param cell A non-empty {@link Cell} value to look for.
+     * @return true if at least one neighbour holds the value.
+     * @throws IllegalArgumentException if the cell is empty or unknown.
+     */
+    public boolean isAdjacent(int row, int column, byte cell) {
+        return (neighbours(row, column >>> 6, layerOf(cell)) & 1L << column) != 0;
+    }
+
+
+    /**
+     * Counts the neighbours of a cell holding a value.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param cell A non-empty {@link Cell} value to look for.
+     * @return The number of neighbours holding the value, between 0 and 4.
+     * @throws IllegalArgumentException if the cell is empty or unknown.
+     */
+    public int countAdjacent(int row, int column, byte cell) {
+        int layer = layerOf(cell);
+        int count = 0;
+        if (row > 0 && isSet(row - 1, column, layer)) {
+            count++;
+        }
+        if (row < height - 1 && isSet(row + 1, column, layer)) {
+            count++;
+        }
+        if (column > 0 && isSet(row, column - 1, layer)) {
+            count++;
+        }
+        if (column < width - 1 && isSet(row, column + 1, layer)) {
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Counts the cells holding one value that have a neighbour holding another,
+     * e.g. the players that a monster could attack in the next step.
+     * The whole grid is scanned a word at a time.
+     * @param cell A non-empty {@link Cell} value of the counted cells.
+     * @param neighbour A non-empty {@link Cell} value to look for next to them.
+     * @return The number of matching cells.
+     * @throws IllegalArgumentException if either value is empty or unknown.
+     */
+    public long countAdjacentPairs(byte cell, byte neighbour) {
+        int layer = layerOf(cell);
+        int neighbourLayer = layerOf(neighbour);
+        long count = 0;
+        for (int row = 0; row < height; row++) {
+            for (int word = 0; word < wordsPerRow; word++) {
+                long targets = bits[(row * wordsPerRow + word) * LAYERS + layer];
+                if (targets != 0) {
+                    count += Long.bitCount(targets & neighbours(row, word, neighbourLayer));
+                }
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Computes which cells of one word have a neighbour in a layer.
+     * Horizontal neighbours are found by shifting the word and carrying the edge bits of the
+     * words beside it; vertical neighbours are the same word of the rows above and below.
+     * @param row The row of the word.
+     * @param word The index of the word within the row.
+     * @param layer The layer to look for.
+     * @return A bit for every cell of the word with a neighbour in the layer.
+     */
+    private long neighbours(int row, int word, int layer) {
+        int index = (row * wordsPerRow + word) * LAYERS + layer;
+        long centre = bits[index];
+        long mask = centre << 1 | centre >>> 1;
+        if (word > 0) {
+            mask |= bits[index - LAYERS] >>> 63;
+        }
+        if (word < wordsPerRow - 1) {
+            mask |= bits[index + LAYERS] << 63;
+        }
+        if (row > 0) {
+            mask |= bits[index - wordsPerRow * LAYERS];
+        }
+        if (row < height - 1) {
+            mask |= bits[index + wordsPerRow * LAYERS];
+        }
+        return mask;
+    }
+
+
+    /**
+     * Tests one bit of a layer.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param layer The layer.
+     * @return true if the bit is set.
+     */
+    private boolean isSet(int row, int column, int layer) {
+        return (bits[(row * wordsPerRow + (column >>> 6)) * LAYERS + layer] & 1L << column) != 0;
+    }
+
+
+    /**
+     * Returns the layer that holds a cell value.
+     * @param cell The cell value.
+     * @return The layer index.
+     * @throws IllegalArgumentException if the cell is empty or unknown.
+     */
+    private static int layerOf(byte cell) {
+        if (cell <= Cell.EMPTY || cell > LAYERS) {
+            throw new IllegalArgumentException("No bitboard layer for cell value " + cell);
+        }
+        return cell - 1;
+    }
+}
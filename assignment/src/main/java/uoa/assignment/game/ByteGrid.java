@@ -0,0 +1,69 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+
+/**
+ * Compact grid backend that keeps every cell in one flat byte array,
+ * indexed by row * width + column.
+ */
+public class ByteGrid implements Grid {
+
+    private final int height;
+    private final int width;
+    final byte[] cells; // Row-major cell storage, visible to the game package for bulk access
+
+
+    /**
+     * Creates an empty grid of the given size.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @throws IllegalArgumentException if the size is non-positive or too large for one array.
+     */
+    public ByteGrid(int height, int width) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Map size must be positive.");
+        }
+        if ((long) height * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for a dense grid: " + height + "x" + width);
+        }
+        this.height = height;
+        this.width = width;
+        this.cells = new byte[height * width]; // Cell.EMPTY is 0, so the array starts empty
+    }
+
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+
+    @Override
+    public byte get(int row, int column) {
+        return cells[row * width + column];
+    }
+
+
+    @Override
+    public void set(int row, int column, byte cell) {
+        cells[row * width + column] = cell;
+    }
+
+
+    @Override
+    public void readRow(int row, int fromColumn, byte[] dest, int length) {
+        System.arraycopy(cells, row * width + fromColumn, dest, 0, length);
+    }
+
+
+    @Override
+    public void fill(byte cell) {
+        Arrays.fill(cells, cell);
+    }
+}
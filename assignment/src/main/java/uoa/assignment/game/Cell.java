@@ -0,0 +1,75 @@
+package uoa.assignment.game;
+
+/**
+ * Typed constants for the content of a single map cell.
+ * Cells are stored as bytes by the {@link Grid} backends; the legacy one-character
+ * strings used by {@link Map#layout} are available through {@link #symbol(byte)}.
+ */
+public final class Cell {
+
+    public static final byte EMPTY = 0;   // "."
+    public static final byte PLAYER = 1;  // "*"
+    public static final byte MONSTER = 2; // "%"
+    public static final byte DEAD = 3;    // "x"
+    public static final byte WALL = 4;    // "#"
+    public static final byte WATER = 5;   // "~"
+
+    // Indexed by cell value. These are compile-time constants, so they are the same
+    // interned instances that older code compares against with ==.
+    private static final String[] SYMBOLS = {".", "*", "%", "x", "#", "~"};
+
+    // Number of cell values, which run from 0 to COUNT - 1
+    static final int COUNT = SYMBOLS.length;
+
+
+    private Cell() {
+        // Constants only
+    }
+
+
+    /**
+     * Returns the legacy one-character symbol of a cell.
+     * @param cell The cell value.
+     * @return The symbol used in the String layout, e.g. "." for an empty cell.
+     */
+    public static String symbol(byte cell) {
+        return SYMBOLS[cell];
+    }
+
+
+    /**
+     * Checks whether a cell holds terrain, which no character can enter.
+     * @param cell The cell value.
+     * @return true for walls and water.
+     */
+    public static boolean isTerrain(byte cell) {
+        return cell >= WALL;
+    }
+
+
+    /**
+     * Converts a legacy layout symbol into its cell value.
+     * Only the first character is inspected, so no string comparison is needed.
+     * @param symbol The symbol stored in the String layout.
+     * @return The matching cell value.
+     * @throws IllegalArgumentException if the symbol is not a known cell.
+     */
+    public static byte fromSymbol(String symbol) {
+        switch (symbol.charAt(0)) {
+            case '.':
+                return EMPTY;
+            case '*':
+                return PLAYER;
+            case '%':
+                return MONSTER;
+            case 'x':
+                return DEAD;
+            case '#':
+                return WALL;
+            case '~':
+                return WATER;
+            default:
+                throw new IllegalArgumentException("Unknown cell symbol: " + symbol);
+        }
+    }
+}
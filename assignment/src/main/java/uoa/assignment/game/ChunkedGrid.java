@@ -0,0 +1,169 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+
+/**
+ * Sparse grid backend for worlds too large for one dense array.
+ * The grid is split into square tiles of 2^tileBits cells per side. A tile is allocated the first time
+ * a non-empty cell is written to it; tiles that were never written read as {@link Cell#EMPTY}.
+ * Memory therefore grows with the area the characters have visited, not with the size of the world.
+ */
+public class ChunkedGrid implements Grid {
+
+    /** Default tile side of 64 cells, so a tile takes 4 KB. */
+    public static final int DEFAULT_TILE_BITS = 6;
+
+    private final int height;
+    private final int width;
+    final int tileBits;           // Tile side is 1 << tileBits cells
+    private final int tileMask;
+    final int tilesPerRow;        // Number of tile columns
+    final byte[][] tiles;         // Row-major tile directory, null for tiles that were never written
+    private int allocatedTiles;
+
+
+    /**
+     * Creates an empty grid with the default tile size.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @throws IllegalArgumentException if the size is non-positive.
+     */
+    public ChunkedGrid(int height, int width) {
+        this(height, width, DEFAULT_TILE_BITS);
+    }
+
+
+    /**
+     * Creates an empty grid with tiles of 2^tileBits by 2^tileBits cells.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @param tileBits The base-2 logarithm of the tile side, between 1 and 12.
+     * @throws IllegalArgumentException if the size is non-positive, the tile size is out of range
+     *                                  or the grid needs too many tiles.
+     */
+    public ChunkedGrid(int height, int width, int tileBits) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Map size must be positive.");
+        }
+        if (tileBits < 1 || tileBits > 12) {
+            throw new IllegalArgumentException("Tile bits must be between 1 and 12: " + tileBits);
+        }
+        int tileSide = 1 << tileBits;
+        long tileRows = (height + (long) tileSide - 1) >> tileBits;
+        long tileColumns = (width + (long) tileSide - 1) >> tileBits;
+        if (tileRows * tileColumns > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many tiles for a " + height + "x" + width + " map, use larger tiles.");
+        }
+        this.height = height;
+        this.width = width;
+        this.tileBits = tileBits;
+        this.tileMask = tileSide - 1;
+        this.tilesPerRow = (int) tileColumns;
+        this.tiles = new byte[(int) (tileRows * tileColumns)][];
+    }
+
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+
+    @Override
+    public byte get(int row, int column) {
+        byte[] tile = tiles[(row >> tileBits) * tilesPerRow + (column >> tileBits)];
+        return tile == null ? Cell.EMPTY : tile[((row & tileMask) << tileBits) | (column & tileMask)];
+    }
+
+
+    @Override
+    public void set(int row, int column, byte cell) {
+        int index = (row >> tileBits) * tilesPerRow + (column >> tileBits);
+        byte[] tile = tiles[index];
+        if (tile == null) {
+            if (cell == Cell.EMPTY) {
+                return; // Untouched tiles already read as empty
+            }
+            tile = allocate(index);
+        }
+        tile[((row & tileMask) << tileBits) | (column & tileMask)] = cell;
+    }
+
+
+    @Override
+    public void readRow(int row, int fromColumn, byte[] dest, int length) {
+        int tileRow = (row >> tileBits) * tilesPerRow;
+        int rowStart = (row & tileMask) << tileBits;
+        int copied = 0;
+        while (copied < length) {
+            int column = fromColumn + copied;
+            int inTile = column & tileMask;
+            int run = Math.min(length - copied, (1 << tileBits) - inTile); // Cells left in this tile
+            byte[] tile = tiles[tileRow + (column >> tileBits)];
+            if (tile == null) {
+                Arrays.fill(dest, copied, copied + run, Cell.EMPTY);
+            } else {
+                System.arraycopy(tile, rowStart + inTile, dest, copied, run);
+            }
+            copied += run;
+        }
+    }
+
+
+    /**
+     * Sets every cell of the grid to the same value.
+     * Filling with {@link Cell#EMPTY} releases every tile; any other value allocates all of them.
+     * @param cell The {@link Cell} value to store everywhere.
+     */
+    @Override
+    public void fill(byte cell) {
+        if (cell == Cell.EMPTY) {
+            Arrays.fill(tiles, null);
+            allocatedTiles = 0;
+            return;
+        }
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == null) {
+                allocate(i);
+            }
+            Arrays.fill(tiles[i], cell);
+        }
+    }
+
+
+    /**
+     * Returns the number of tiles that hold cells.
+     * @return The allocated tile count.
+     */
+    public int getAllocatedTiles() {
+        return allocatedTiles;
+    }
+
+
+    /**
+     * Returns the side length of a tile.
+     * @return The number of cells per tile row and column.
+     */
+    public int getTileSize() {
+        return 1 << tileBits;
+    }
+
+
+    /**
+     * Allocates the tile with the given directory index.
+     * @param index The index of the tile.
+     * @return The new, empty tile.
+     */
+    byte[] allocate(int index) {
+        byte[] tile = new byte[1 << (tileBits << 1)];
+        tiles[index] = tile;
+        allocatedTiles++;
+        return tile;
+    }
+}
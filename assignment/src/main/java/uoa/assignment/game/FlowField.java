@@ -0,0 +1,214 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.GameCharacter;
+
+/**
+ * Breadth-first distance field from the player's cell, shared by every chasing monster of a map.
+ * A monster follows the field by stepping to the neighbour closest to the player, so the cost per
+ * monster is four lookups no matter how many monsters there are.
+ *
+ * Dead monsters block the way; living monsters move every round, so they are treated as free cells
+ * and only block the move itself.
+ *
+ * When the player takes one step, every distance grows by at most one. The field stores distances
+ * relative to an offset, so adding one to every cell is a single change of the offset; a breadth-first
+ * pass from the player's new cell then lowers only the cells that are now closer.
+ * It is rebuilt from scratch when a monster dies or the player jumps more than one step.
+ */
+public class FlowField {
+
+    /** Distance reported for cells that cannot reach the player. */
+    public static final int UNREACHABLE = -1;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int MIN_OFFSET = -(1 << 30); // Rebuild before stored distances get near overflow
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+
+    private final Map map;
+    private final Grid grid;
+    private final int height;
+    private final int width;
+    private final int[] distance; // Distance to the player plus offset, INFINITY if unreachable
+    private final int[] queue;    // Breadth-first queue of cell indices, reused by every pass
+    private int offset;
+    private int sourceRow = -1;
+    private int sourceColumn = -1;
+    private int deadMonsters = -1; // Number of dead monsters when the field was built
+
+
+    /**
+     * Creates an empty field for a map. Call {@link #update()} before reading it.
+     * The field holds two ints per cell, so it is meant for maps that also fit in a dense grid.
+     * @param map The map to compute distances on.
+     * @throws IllegalArgumentException if the map has too many cells for one array.
+     */
+    public FlowField(Map map) {
+        if ((long) map.getHeight() * map.getWidth() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map too large for a flow field: " + map.getHeight() + "x" + map.getWidth());
+        }
+        this.map = map;
+        this.grid = map.getGrid();
+        this.height = map.getHeight();
+        this.width = map.getWidth();
+        this.distance = new int[height * width];
+        this.queue = new int[height * width];
+    }
+
+
+    /**
+     * Brings the field up to date with the player's position and the dead monsters on the map.
+     * Nothing is done if neither changed since the last update.
+     */
+    public void update() {
+        GameCharacter player = map.characters[0];
+        CharacterStore store = map.getCharacterStore();
+        int dead = store.size() - 1 - store.countAlive(CharacterStore.KIND_MONSTER);
+        int step = Math.abs(player.row - sourceRow) + Math.abs(player.column - sourceColumn);
+        if (dead != deadMonsters || sourceRow < 0 || step > 1 || offset <= MIN_OFFSET) {
+            deadMonsters = dead;
+            rebuild(player.row, player.column);
+        } else if (step == 1) {
+            follow(player.row, player.column);
+        }
+    }
+
+
+    /**
+     * Forces the next {@link #update()} to rebuild the field, e.g. after the map was reset for a new game.
+     */
+    void invalidate() {
+        sourceRow = -1;
+    }
+
+
+    /**
+     * Returns the number of steps from a cell to the player.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return The distance, or {@link #UNREACHABLE} if dead monsters cut the cell off.
+     */
+    public int getDistance(int row, int column) {
+        int value = distance[row * width + column];
+        return value == INFINITY ? UNREACHABLE : value - offset;
+    }
+
+
+    /**
+     * Picks the move that brings a monster closest to the player.
+     * Cells held by other monsters count as two steps further, so monsters route around each other.
+     * Ties are broken with the game's random source.
+     * @param monster The monster to move.
+     * @param random The random source of the game.
+     * @return The direction to move in.
+     */
+    public String nextMove(GameCharacter monster, GameRandom random) {
+        int start = random.nextInt(MOVES.length);
+        int best = -1;
+        long bestCost = Long.MAX_VALUE;
+        for (int i = 0; i < MOVES.length; i++) {
+            int move = (start + i) & 3;
+            int row = monster.row + ROW_STEPS[move];
+            int column = monster.column + COLUMN_STEPS[move];
+            if (row < 0 || row >= height || column < 0 || column >= width) {
+                continue;
+            }
+            int value = distance[row * width + column];
+            if (value == INFINITY) {
+                continue;
+            }
+            long cost = (long) value + (grid.get(row, column) == Cell.MONSTER ? 2 : 0);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = move;
+            }
+        }
+        // A monster that cannot reach the player wanders, as in the original game
+        return best < 0 ? MOVES[start] : MOVES[best];
+    }
+
+
+    /**
+     * Computes every distance with a full breadth-first search from the player.
+     * @param row The row of the player.
+     * @param column The column of the player.
+     */
+    private void rebuild(int row, int column) {
+        Arrays.fill(distance, INFINITY);
+        offset = 0;
+        spread(row, column);
+    }
+
+
+    /**
+     * Updates the field after the player took one step: every distance grows by one through the offset,
+     * then the cells that are closer to the new position are lowered.
+     * @param row The new row of the player.
+     * @param column The new column of the player.
+     */
+    private void follow(int row, int column) {
+        offset--; // Stored values stay, so every distance (stored value - offset) grows by one
+        spread(row, column);
+    }
+
+
+    /**
+     * Runs a breadth-first pass from the player's cell that only visits cells it brings closer.
+     * On a cleared field this is a full search.
+     * @param row The row of the player.
+     * @param column The column of the player.
+     */
+    private void spread(int row, int column) {
+        sourceRow = row;
+        sourceColumn = column;
+        int head = 0;
+        int tail = 0;
+        int source = row * width + column;
+        distance[source] = offset;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = distance[cell] + 1;
+            int cellRow = cell / width;
+            int cellColumn = cell - cellRow * width;
+            if (cellRow > 0) {
+                tail = relax(cell - width, cellRow - 1, cellColumn, next, tail);
+            }
+            if (cellRow < height - 1) {
+                tail = relax(cell + width, cellRow + 1, cellColumn, next, tail);
+            }
+            if (cellColumn > 0) {
+                tail = relax(cell - 1, cellRow, cellColumn - 1, next, tail);
+            }
+            if (cellColumn < width - 1) {
+                tail = relax(cell + 1, cellRow, cellColumn + 1, next, tail);
+            }
+        }
+    }
+
+
+    /**
+     * Lowers the distance of a cell and queues it, if the new distance is shorter and the cell is free.
+     * @param cell The index of the cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param value The new stored distance.
+     * @param tail The end of the queue.
+     * @return The new end of the queue.
+     */
+    private int relax(int cell, int row, int column, int value, int tail) {
+        if (value >= distance[cell]) {
+            return tail;
+        }
+        byte content = grid.get(row, column);
+        if (content != Cell.DEAD && !Cell.isTerrain(content)) {
+            distance[cell] = value;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,400 @@
+package uoa.assignment.game;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.GameCharacter;
+
+/**
+ * Renders a map into one reusable byte buffer and writes the whole frame with a single call.
+ * The colored glyph of every cell type is encoded once up front, so rendering only copies bytes.
+ * In diff mode the first frame clears the screen and later frames redraw only the cells that
+ * changed, using ANSI cursor addressing.
+ *
+ * With a viewport set, only a window of the map centred on the player is drawn, and only the cells
+ * inside it are read, so the cost of a frame does not depend on the size of the map. An optional
+ * minimap below the window shows how many living monsters are in each region of the whole map;
+ * it is built from the character store, not from the cells.
+ */
+public class FrameRenderer {
+
+    // ANSI Color Codes, matching the colors used by Map
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_RED = "\u001B[31m";
+    private static final String ANSI_BLUE = "\u001B[34m";
+    private static final String ANSI_YELLOW = "\u001B[33m";
+    private static final String ANSI_GREY = "\u001B[37m";
+    private static final String ANSI_GREEN = "\u001B[32m";
+    private static final String ANSI_CYAN = "\u001B[36m";
+
+    private static final int MAX_BUFFER = 1 << 22; // Larger frames are written in 4 MB pieces
+
+    private static final byte[] HEADER = bytes(ANSI_YELLOW + "\nCurrent game map:" + ANSI_RESET + System.lineSeparator());
+    private static final byte[] NEWLINE = bytes(System.lineSeparator());
+    private static final byte[] CLEAR_SCREEN = bytes("\u001B[2J\u001B[H");
+    private static final byte[][] GLYPHS = new byte[Cell.COUNT][]; // Indexed by cell value, each followed by a space
+    private static final byte[] MINIMAP_HEADER = bytes(ANSI_YELLOW + "Monsters per region:" + ANSI_RESET + System.lineSeparator());
+    private static final byte[][] DENSITY = new byte[11][]; // Minimap glyphs for 0-9 monsters and 10 or more
+    private static final byte[] PLAYER_REGION = bytes(ANSI_BLUE + "*" + ANSI_RESET + " ");
+    // Fixed parts of the viewport footer "Rows a-b, columns c-d of HxW"; the numbers are appended as digits
+    private static final byte[] FOOTER_ROWS = bytes(ANSI_GREEN + "Rows ");
+    private static final byte[] FOOTER_COLUMNS = bytes(", columns ");
+    private static final byte[] FOOTER_OF = bytes(" of ");
+    private static final byte[] FOOTER_END = bytes(ANSI_RESET + System.lineSeparator());
+
+    static {
+        GLYPHS[Cell.EMPTY] = bytes(". ");
+        GLYPHS[Cell.PLAYER] = bytes(ANSI_BLUE + "*" + ANSI_RESET + " ");
+        GLYPHS[Cell.MONSTER] = bytes(ANSI_RED + "%" + ANSI_RESET + " ");
+        GLYPHS[Cell.DEAD] = bytes(ANSI_GREY + "x" + ANSI_RESET + " ");
+        GLYPHS[Cell.WALL] = bytes(ANSI_GREY + "#" + ANSI_RESET + " ");
+        GLYPHS[Cell.WATER] = bytes(ANSI_CYAN + "~" + ANSI_RESET + " ");
+        DENSITY[0] = bytes(". ");
+        for (int i = 1; i < 10; i++) {
+            DENSITY[i] = bytes(ANSI_RED + i + ANSI_RESET + " ");
+        }
+        DENSITY[10] = bytes(ANSI_RED + "+" + ANSI_RESET + " ");
+    }
+
+    private byte[] buffer = new byte[4096];
+    private int length; // Number of bytes of the current frame in the buffer
+    private byte[] row = new byte[0]; // Cells of the row being rendered
+    private boolean diffMode;
+    private byte[] previous; // Cells of the last frame drawn in diff mode, row-major
+    private int previousWidth;
+    private int viewportHeight;  // Rows of the viewport, 0 to draw the whole map
+    private int viewportWidth;   // Columns of the viewport, 0 to draw the whole map
+    private int minimapHeight;   // Rows of the minimap, 0 for no minimap
+    private int minimapWidth;    // Columns of the minimap, 0 for no minimap
+    private int[] regionCounts = new int[0]; // Monsters per minimap region, reused between frames
+    // Window of the map drawn by the current frame
+    private int top;
+    private int left;
+    private int visibleHeight;
+    private int visibleWidth;
+
+
+    /**
+     * Turns diff mode on or off. Switching modes always makes the next frame a full redraw.
+     * @param diffMode true to redraw only changed cells after the first frame.
+     */
+    public void setDiffMode(boolean diffMode) {
+        this.diffMode = diffMode;
+        this.previous = null;
+    }
+
+
+    /**
+     * Returns whether diff mode is on.
+     * @return true if only changed cells are redrawn.
+     */
+    public boolean isDiffMode() {
+        return diffMode;
+    }
+
+
+    /**
+     * Limits frames to a window centred on the player, or turns the limit off.
+     * Near the edges of the map the window stays inside the map instead of staying centred.
+     * @param rows The number of rows to draw, or 0 to draw the whole map.
+     * @param columns The number of columns to draw, or 0 to draw the whole map.
+     * @throws IllegalArgumentException if only one of the sizes is 0 or a size is negative.
+     */
+    public void setViewport(int rows, int columns) {
+        if (rows < 0 || columns < 0 || (rows == 0) != (columns == 0)) {
+            throw new IllegalArgumentException("Viewport size must be positive, or 0 by 0 to turn it off.");
+        }
+        this.viewportHeight = rows;
+        this.viewportWidth = columns;
+        this.previous = null;
+    }
+
+
+    /**
+     * Adds a minimap of monster density below full frames, or removes it.
+     * The map is divided into rows by columns regions; each shows its number of living monsters.
+     * @param rows The number of region rows, or 0 for no minimap.
+     * @param columns The number of region columns, or 0 for no minimap.
+     * @throws IllegalArgumentException if only one of the sizes is 0 or a size is negative.
+     */
+    public void setMinimap(int rows, int columns) {
+        if (rows < 0 || columns < 0 || (rows == 0) != (columns == 0)) {
+            throw new IllegalArgumentException("Minimap size must be positive, or 0 by 0 to turn it off.");
+        }
+        this.minimapHeight = rows;
+        this.minimapWidth = columns;
+        if (regionCounts.length < rows * columns) {
+            regionCounts = new int[rows * columns];
+        }
+    }
+
+
+    /**
+     * Returns whether frames are limited to a viewport.
+     * @return true if a viewport is set.
+     */
+    public boolean hasViewport() {
+        return viewportHeight > 0;
+    }
+
+
+    /**
+     * Renders the map and writes the frame to a stream.
+     * @param map The map to draw.
+     * @param out The stream receiving the frame.
+     */
+    public void render(Map map, PrintStream out) {
+        if (diffMode) {
+            renderDiff(map, out);
+        } else {
+            renderFull(map, out);
+        }
+    }
+
+
+    /**
+     * Draws the whole map under the usual "Current game map:" header.
+     * @param map The map to draw.
+     * @param out The stream receiving the frame.
+     */
+    private void renderFull(Map map, PrintStream out) {
+        Grid grid = map.getGrid();
+        placeWindow(map);
+        ensureRow(visibleWidth);
+        length = 0;
+        append(HEADER, out);
+        for (int i = 0; i < visibleHeight; i++) {
+            grid.readRow(top + i, left, row, visibleWidth);
+            for (int j = 0; j < visibleWidth; j++) {
+                append(GLYPHS[row[j]], out);
+            }
+            append(NEWLINE, out);
+        }
+        if (hasViewport()) {
+            appendFooter(grid, out);
+        }
+        if (minimapHeight > 0) {
+            appendMinimap(map, out);
+        }
+        flush(out);
+    }
+
+
+    /**
+     * Chooses the window of the map to draw: the whole map, or the viewport centred on the player.
+     * @param map The map to draw.
+     */
+    private void placeWindow(Map map) {
+        int height = map.getHeight();
+        int width = map.getWidth();
+        if (!hasViewport()) {
+            top = 0;
+            left = 0;
+            visibleHeight = height;
+            visibleWidth = width;
+            return;
+        }
+        GameCharacter player = map.characters[0];
+        visibleHeight = Math.min(viewportHeight, height);
+        visibleWidth = Math.min(viewportWidth, width);
+        top = Math.max(0, Math.min(player.row - visibleHeight / 2, height - visibleHeight));
+        left = Math.max(0, Math.min(player.column - visibleWidth / 2, width - visibleWidth));
+    }
+
+
+    /**
+     * Appends the minimap: the number of living monsters in each region, with the player's region marked.
+     * Only the character store is read, so the cost depends on the number of monsters, not the map size.
+     * @param map The map to summarise.
+     * @param out The stream to flush to if the buffer is full.
+     */
+    private void appendMinimap(Map map, PrintStream out) {
+        int height = map.getHeight();
+        int width = map.getWidth();
+        int rows = Math.min(minimapHeight, height);
+        int columns = Math.min(minimapWidth, width);
+        Arrays.fill(regionCounts, 0, rows * columns, 0);
+        CharacterStore store = map.getCharacterStore();
+        for (int i = 0; i < store.size(); i++) {
+            if (store.kind[i] == CharacterStore.KIND_MONSTER && store.health[i] > 0) {
+                regionCounts[region(store.row[i], store.column[i], height, width, rows, columns)]++;
+            }
+        }
+        GameCharacter player = map.characters[0];
+        int playerRegion = region(player.row, player.column, height, width, rows, columns);
+        append(MINIMAP_HEADER, out);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int index = r * columns + c;
+                append(index == playerRegion ? PLAYER_REGION : DENSITY[Math.min(regionCounts[index], 10)], out);
+            }
+            append(NEWLINE, out);
+        }
+    }
+
+
+    /**
+     * Returns the minimap region that holds a cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param rows The number of region rows.
+     * @param columns The number of region columns.
+     * @return The row-major index of the region.
+     */
+    private static int region(int row, int column, int height, int width, int rows, int columns) {
+        return (int) ((long) row * rows / height) * columns + (int) ((long) column * columns / width);
+    }
+
+
+    /**
+     * Redraws the cells that changed since the previous frame, or the whole screen on the first frame.
+     * With a viewport, cells are compared by screen position, so when the window scrolls only the
+     * cells that look different on screen are redrawn. Diff frames have no minimap.
+     * @param map The map to draw.
+     * @param out The stream receiving the frame.
+     */
+    private void renderDiff(Map map, PrintStream out) {
+        Grid grid = map.getGrid();
+        placeWindow(map);
+        int height = visibleHeight;
+        int width = visibleWidth;
+        if ((long) height * width > Integer.MAX_VALUE - 8) {
+            renderFull(map, out); // Too many cells to remember the previous frame
+            return;
+        }
+        ensureRow(width);
+        length = 0;
+        boolean full = previous == null || previousWidth != width || previous.length != height * width;
+        if (full) {
+            previous = new byte[height * width];
+            previousWidth = width;
+            append(CLEAR_SCREEN, out);
+        }
+        for (int i = 0; i < height; i++) {
+            grid.readRow(top + i, left, row, width);
+            int offset = i * width;
+            for (int j = 0; j < width; j++) {
+                byte cell = row[j];
+                if (full) {
+                    append(GLYPHS[cell], out);
+                } else if (previous[offset + j] != cell) {
+                    appendCursor(i + 1, j * 2 + 1, out);
+                    append(GLYPHS[cell], out);
+                }
+                previous[offset + j] = cell;
+            }
+            if (full) {
+                append(NEWLINE, out);
+            }
+        }
+        // Park the cursor below the map so other output does not overwrite it
+        appendCursor(height + 1, 1, out);
+        flush(out);
+    }
+
+
+    /**
+     * Appends the line below the viewport telling which part of the map is shown, without creating a String.
+     * @param grid The grid of the map.
+     * @param out The stream to flush to if the buffer is full.
+     */
+    private void appendFooter(Grid grid, PrintStream out) {
+        append(FOOTER_ROWS, out);
+        reserve(24, out);
+        appendNumber(top);
+        buffer[length++] = '-';
+        appendNumber(top + visibleHeight - 1);
+        append(FOOTER_COLUMNS, out);
+        reserve(24, out);
+        appendNumber(left);
+        buffer[length++] = '-';
+        appendNumber(left + visibleWidth - 1);
+        append(FOOTER_OF, out);
+        reserve(24, out);
+        appendNumber(grid.getHeight());
+        buffer[length++] = 'x';
+        appendNumber(grid.getWidth());
+        append(FOOTER_END, out);
+    }
+
+
+    /**
+     * Appends an ANSI cursor position sequence, ESC [ row ; column H.
+     * @param line The 1-based screen line.
+     * @param column The 1-based screen column.
+     * @param out The stream to flush to if the buffer is full.
+     */
+    private void appendCursor(int line, int column, PrintStream out) {
+        reserve(24, out);
+        buffer[length++] = 0x1B;
+        buffer[length++] = '[';
+        appendNumber(line);
+        buffer[length++] = ';';
+        appendNumber(column);
+        buffer[length++] = 'H';
+    }
+
+
+    /**
+     * Appends the decimal digits of a non-negative number without creating a String.
+     * @param value The number to write.
+     */
+    private void appendNumber(int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+
+    private void append(byte[] bytes, PrintStream out) {
+        reserve(bytes.length, out);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+
+    /**
+     * Makes room for more bytes, growing the buffer up to its limit and writing it out beyond that.
+     * @param needed The number of bytes about to be appended.
+     * @param out The stream to write to when the buffer cannot grow any further.
+     */
+    private void reserve(int needed, PrintStream out) {
+        if (length + needed <= buffer.length) {
+            return;
+        }
+        if (buffer.length < MAX_BUFFER) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + needed, Math.min(buffer.length * 2, MAX_BUFFER)));
+        } else {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+
+    private void flush(PrintStream out) {
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+
+    private void ensureRow(int width) {
+        if (row.length < width) {
+            row = new byte[width];
+        }
+    }
+
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -2,6 +2,10 @@ package uoa.assignment.game;
 import uoa.assignment.character.Monster;
 import uoa.assignment.character.GameCharacter;
 import uoa.assignment.character.Player;
+import uoa.assignment.event.EventSink;
+import uoa.assignment.event.GameEvent;
+import uoa.assignment.metrics.GameMetrics;
+import uoa.assignment.metrics.JfrRoundEvent;
 
 /**
  * Represents the main game logic and state. This class is responsible for initializing
@@ -11,13 +15,13 @@ public class Game {
     private Map map;
     private GameLogic gameLogic;
     public boolean validateInput;
+    private int round; // Number of rounds played with valid input
+    private MonsterPolicy monsterPolicy = MonsterPolicy.RANDOM; // How monsters act each round
+    private GameRandom random; // Source of every roll in this game, shared with the characters
+    private FlowField flowField; // Distances to the player, created when monsters first chase
+
+    private static final long DENSE_CELL_LIMIT = 1L << 28; // Larger seeded games use a ChunkedGrid
 
-    // ANSI Color Codes for console output for better visual representation
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_GREEN = "\u001B[32m";
-    private static final String ANSI_YELLOW = "\u001B[33m";
-    private static final String ANSI_GREY = "\u001B[37m";
 
 
     /**
@@ -63,6 +67,78 @@ public class Game {
     }
 
 
+    /**
+     * Constructor for the Game class with a seed.
+     * Games with equal parameters, seeds and inputs play out identically, so the seed and the moves
+     * are enough to replay a game. The map is stored in a {@link ByteGrid}, so it has no String layout.
+     * @param height The height of the game map.
+     * @param width The width of the game map.
+     * @param playerName The name of the player.
+     * @param difficulty The difficulty level of the game.
+     * @param seed The seed of the game.
+     * @throws IllegalArgumentException if map size is non-positive or difficulty level is invalid.
+     */
+    public Game(int height, int width, String playerName, int difficulty, long seed) {
+        validateMapSize(height, width);
+        validateDifficultyLevel(difficulty);
+        GameRandom random = new GameRandom(seed);
+        // One byte per cell like HeadlessEngine; worlds too large for one array keep only the tiles the characters touch
+        Grid grid = (long) height * width <= DENSE_CELL_LIMIT ? new ByteGrid(height, width) : new ChunkedGrid(height, width);
+        // The map seed is drawn first, the same way HeadlessEngine derives it
+        Map map = new Map(grid, playerName, 3, SpawnStrategy.CORNERS, random.nextLong());
+        this.random = random;
+        initializeGame(map, difficulty);
+    }
+
+
+    /**
+     * Constructor for the Game class on a prepared map.
+     * Use this to play on compact grids or with a custom number of monsters.
+     * @param map The map to play on, with its characters already placed.
+     * @param difficulty The difficulty level of the game.
+     * @throws IllegalArgumentException if difficulty level is invalid.
+     */
+    public Game(Map map, int difficulty) {
+        this(map, difficulty, new GameRandom());
+    }
+
+
+    /**
+     * Constructor for the Game class on a prepared map with a given random source.
+     * Games with equal maps, seeds and inputs play out identically.
+     * @param map The map to play on, with its characters already placed.
+     * @param difficulty The difficulty level of the game.
+     * @param random The random source for all moves and attacks of the game.
+     * @throws IllegalArgumentException if difficulty level is invalid.
+     */
+    public Game(Map map, int difficulty, GameRandom random) {
+        validateDifficultyLevel(difficulty);
+        this.random = random;
+        initializeGame(map, difficulty);
+    }
+
+
+    /**
+     * Constructor for a game that continues from a saved state, used by {@link GameSnapshot}.
+     * The characters keep the stats stored with them, so no difficulty is applied.
+     * @param map The restored map.
+     * @param random The random source, already set to the saved state.
+     * @param round The number of rounds played before the snapshot.
+     * @param monsterPolicy How the monsters act.
+     */
+    Game(Map map, GameRandom random, int round, MonsterPolicy monsterPolicy) {
+        this.map = map;
+        this.gameLogic = new GameLogic();
+        this.random = random;
+        this.round = round;
+        this.monsterPolicy = monsterPolicy;
+        this.validateInput = true;
+        for (GameCharacter character : map.characters) {
+            character.setRandom(random);
+        }
+    }
+
+
     /**
      * Validates the map size.
      * @param height The height of the map.
@@ -96,11 +172,28 @@ public class Game {
      * @param difficulty The game difficulty.
      */
     private void initializeGame(int height, int width, String playerName, int difficulty) {
-        this.map = new Map(height, width, playerName);
+        this.random = new GameRandom();
+        initializeGame(new Map(height, width, playerName), difficulty);
+    }
+
+
+    /**
+     * Initializes the game on a given map.
+     * @param map The game map.
+     * @param difficulty The game difficulty.
+     */
+    private void initializeGame(Map map, int difficulty) {
+        this.map = map;
         this.gameLogic = new GameLogic();
+        for (GameCharacter character : this.map.characters) {
+            character.setRandom(this.random);
+        }
         adjustGameDifficulty(difficulty);
         this.validateInput = true;
-        this.map.printLayout();
+        EventSink events = this.map.getEventSink();
+        if (events.isEnabled()) {
+            events.accept(GameEvent.gameStart(this.map));
+        }
     }
 
 
@@ -120,6 +213,56 @@ public class Game {
     }
 
 
+    /**
+     * Starts a new game in place, reusing the map, its grid and its characters.
+     * The new game plays exactly like one built with {@link #Game(int, int, String, int, long)} from the
+     * same seed, with the player's name kept; only the allocations are saved. The monster policy is kept.
+     * @param difficulty The difficulty level of the new game.
+     * @param seed The seed of the new game.
+     * @throws IllegalArgumentException if difficulty level is invalid.
+     */
+    public void reset(int difficulty, long seed) {
+        validateDifficultyLevel(difficulty);
+        this.random.setState(seed);
+        // The map seed is drawn first, as by the seeded constructor and HeadlessEngine
+        this.map.reset(this.map.characters[0].sayName(), this.random.nextLong());
+        this.round = 0;
+        if (this.flowField != null) {
+            this.flowField.invalidate();
+        }
+        initializeGame(this.map, difficulty);
+    }
+
+
+    /**
+     * Creates an independent copy of the game for look-ahead, on a {@link Map#fork()} of the map.
+     * The copy plays by the same rules with the same monster policy, but draws its rolls from its own random source.
+     * @param random The random source of the copy.
+     * @return The copy.
+     * @throws IllegalArgumentException if the map is too large for a dense grid.
+     */
+    public Game fork(GameRandom random) {
+        return new Game(this.map.fork(), random, this.round, this.monsterPolicy);
+    }
+
+
+    /**
+     * Brings a fork back to the state of another game, without allocating.
+     * The random source of this game is kept.
+     * @param source The game to copy, usually the one this game was forked from.
+     * @throws IllegalArgumentException if the maps differ in size or number of characters.
+     */
+    public void copyFrom(Game source) {
+        this.map.copyFrom(source.map);
+        this.round = source.round;
+        this.monsterPolicy = source.monsterPolicy;
+        this.validateInput = true;
+        if (this.flowField != null) {
+            this.flowField.invalidate();
+        }
+    }
+
+
     /**
      * Returns the current game map.
      * @return The current game map.
@@ -129,44 +272,122 @@ public class Game {
     }
 
 
+    /**
+     * Returns the random source of this game.
+     * Its state can be saved and restored to continue a game with the same rolls.
+     * @return The random source shared by all characters.
+     */
+    public GameRandom getRandom() {
+        return this.random;
+    }
+
+
+    /**
+     * Returns the number of rounds played so far.
+     * Rounds with invalid input are not counted.
+     * @return The number of completed rounds.
+     */
+    public int getRound() {
+        return this.round;
+    }
+
+
+    /**
+     * Sets how the monsters act during each round.
+     * @param monsterPolicy The monster policy.
+     */
+    public void setMonsterPolicy(MonsterPolicy monsterPolicy) {
+        this.monsterPolicy = monsterPolicy;
+    }
+
+
+    /**
+     * Returns how the monsters act during each round.
+     * @return The monster policy.
+     */
+    public MonsterPolicy getMonsterPolicy() {
+        return this.monsterPolicy;
+    }
+
+
+    /**
+     * Returns whether the game runs without console output.
+     * @return true if the game is headless.
+     */
+    public boolean isHeadless() {
+        return this.map.isHeadless();
+    }
+
+
     /**
      * Processes the next round of the game based on the player's input.
      * First, it moves the player character based on the input. Then, it iterates through all monsters
      * and moves them if they are still alive. If a monster is defeated, it marks their position with an 'x'.
      * After moving the characters, it checks if the game is over.
+     * Rounds with valid input are timed and counted in the {@link GameMetrics} of the JVM, and recorded
+     * as {@link JfrRoundEvent}s when a Flight Recorder recording asks for them, unless the map is not
+     * {@link Map#isRecorded() recorded}.
      *
      * @param input The player's move input.
      * @return true if the game is over (either all monsters are defeated or the player is dead), false otherwise.
      */
     public boolean nextRound(String input) {
-        System.out.println(ANSI_GREEN+"Starting interaction..."+ANSI_RESET);
+        if (!this.map.isRecorded()) {
+            return playRound(input);
+        }
+        JfrRoundEvent event = new JfrRoundEvent();
+        event.begin();
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        boolean gameOver = playRound(input);
+        if (this.validateInput) {
+            if (GameMetrics.ENABLED) {
+                GameMetrics.get().roundPlayed(System.nanoTime() - start);
+            }
+            event.finish(this.round, this.map.getCharacterStore(), gameOver);
+        }
+        return gameOver;
+    }
+
+
+    /**
+     * Plays the round of {@link #nextRound(String)}.
+     * @param input The player's move input.
+     * @return true if the game is over, false otherwise.
+     */
+    private boolean playRound(String input) {
+        EventSink events = this.map.getEventSink();
+        if (events.isEnabled()) {
+            events.accept(GameEvent.roundStart(this.round + 1));
+        }
         // Attempt to move the player character. If the move is valid, proceed with the round.
         if (this.gameLogic.moveCharacter(input, this.map, this.map.characters[0])) {
+            this.validateInput = true;
+            this.round++;
             // Flag to check if all monsters are defeated.
             boolean allMonstersDefeated = true;
 
-            // Iterate over all characters in the game.
+            // Chasing monsters share one distance field, updated once per round.
+            FlowField field = updateFlowField();
+
+            // Iterate over all characters in the game, reading health from the character store.
+            int[] health = this.map.getCharacterStore().health;
             for (int i = 1; i < this.map.characters.length; i++) {
                 GameCharacter character = this.map.characters[i];
                 // Check if the character is a Monster.
                 if (character instanceof Monster) {
                     Monster monster = (Monster) character;
                     // If the monster is still alive, it makes a move.
-                    if (monster.getHealth() > 0) {
-                        String monsterMove = monster.decideMove();
-                        System.out.println("Monster" + i + " is moving " + monsterMove);
-                        this.gameLogic.moveCharacter(monsterMove, this.map, monster);
+                    if (health[i] > 0) {
                         // Since at least one monster is alive, the game is not over.
                         allMonstersDefeated = false;
+                        moveMonster(monster, field);
                     } else {
                         // If the monster is defeated, mark its position with an 'x'.
-                        this.map.layout[character.row][character.column] = "x";
+                        this.map.setCell(character.row, character.column, Cell.DEAD);
                     }
                 }
             }
-            // Print the health status of all characters.
-            printHealthStatus();
-            // Check if the game is over and return the result.
+            // Check if the game is over and report the result.
             return checkGameOver(allMonstersDefeated);
         } else {
             // If the player's move input is invalid, do not proceed with the round.
@@ -179,38 +400,51 @@ public class Game {
 
 
     /**
-     * Prints the health status of the player and all monsters.
-     * This is used to give a quick overview of the game state to the player.
+     * Brings the shared distance field of chasing monsters up to date.
+     * @return The field, or null if the monsters do not chase.
      */
-    private void printHealthStatus() {
-        System.out.println();
-        System.out.println(ANSI_YELLOW + "Current Health Status:" + ANSI_RESET);
-        System.out.println("Health "+this.map.characters[0].sayName()+": " + ANSI_RED+this.map.characters[0].getHealth() + ANSI_RESET);
-        for (int i = 1; i < this.map.characters.length; i++) {
-            System.out.println("Health Monster" + i + ": " + ANSI_RED+this.map.characters[i].getHealth()+ ANSI_RESET);
+    FlowField updateFlowField() {
+        if (this.monsterPolicy != MonsterPolicy.CHASE) {
+            return null;
+        }
+        if (this.flowField == null) {
+            this.flowField = new FlowField(this.map);
+        }
+        this.flowField.update();
+        return this.flowField;
+    }
+
+
+    /**
+     * Lets one living monster act according to the monster policy.
+     * Stationary monsters keep their cell and only fight when attacked.
+     * @param monster The monster to move.
+     * @param field The field from {@link #updateFlowField()}, or null if the monsters do not chase.
+     */
+    void moveMonster(Monster monster, FlowField field) {
+        if (this.monsterPolicy != MonsterPolicy.STATIONARY) {
+            String move = field != null ? field.nextMove(monster, this.random) : monster.decideMove();
+            this.gameLogic.moveCharacter(move, this.map, monster);
         }
-        System.out.println();
     }
 
 
     /**
      * Checks if the game is over, either by the player winning or dying.
+     * The end of the round is reported to the event sink, followed by the outcome if the game is over.
      * @param allMonstersDefeated Flag indicating if all monsters have been defeated.
      * @return true if the game is over, false otherwise.
      */
     private boolean checkGameOver(boolean allMonstersDefeated) {
-        if (allMonstersDefeated) {
-            System.out.println(ANSI_GREEN +"YOU HAVE WON!" + ANSI_RESET);
-            this.map.printLayout();
-            return true;
-        }
-        if (this.map.characters[0].getHealth() <= 0) {
-            System.out.println(ANSI_RED +"YOU HAVE DIED!"+ ANSI_RESET);
-            this.map.printLayout();
-            return true;
+        boolean playerDied = this.map.characters[0].getHealth() <= 0;
+        boolean gameOver = allMonstersDefeated || playerDied;
+        EventSink events = this.map.getEventSink();
+        if (events.isEnabled()) {
+            events.accept(GameEvent.roundEnd(this.round, gameOver, this.map));
+            if (gameOver) {
+                events.accept(GameEvent.gameOver(this.round, allMonstersDefeated, this.map));
+            }
         }
-        this.map.printLayout();
-        return false;
+        return gameOver;
     }
 }
-
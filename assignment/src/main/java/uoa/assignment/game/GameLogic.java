@@ -1,20 +1,25 @@
 package uoa.assignment.game;
 
-import java.util.Scanner;
-
 import uoa.assignment.character.GameCharacter;
 import uoa.assignment.character.Player;
 import uoa.assignment.character.Monster;
+import uoa.assignment.event.EventSink;
+import uoa.assignment.event.GameEvent;
+import uoa.assignment.event.GameEvent.BlockReason;
+import uoa.assignment.metrics.GameMetrics;
+import uoa.assignment.metrics.JfrAttackEvent;
+import uoa.assignment.metrics.JfrBlockedMoveEvent;
 
 /**
  * This class handles the game logic, including character movements and interactions.
  * It provides methods to move characters and handle interactions like attacks.
+ * What happens is reported to the event sink of the map; nothing is printed here directly.
+ * Moves, blocked moves and attacks are also counted in the {@link GameMetrics} of the JVM,
+ * and blocked moves and attacks are recorded as Flight Recorder events when a recording asks for them,
+ * on maps that are {@link Map#isRecorded() recorded}.
  */
 public class GameLogic {
     // ANSI Color Codes for enhanced console output readability
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_GREEN = "\u001B[32m";
     public static final String ANSI_PURPLE = "\u001B[35m";
     public static final String ANSI_ORANGE = "\u001B[38;5;208m";
 
@@ -29,26 +34,44 @@ public class GameLogic {
     public static boolean moveCharacter(String input, Map gameMap, GameCharacter character) {
         // Validate input
         if (!input.equals("up") && !input.equals("down") && !input.equals("left") && !input.equals("right")){
-            System.out.println(ANSI_RED+"Use only keywords up, down, left, right"+ANSI_RESET);
+            if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+                GameMetrics.get().invalidInput();
+            }
+            EventSink events = gameMap.getEventSink();
+            if (events.isEnabled()) {
+                events.accept(GameEvent.invalidInput(character, input));
+            }
             return false;
         } else {
-            // Announce player movement
-            if (character instanceof Player){
-                System.out.println();
-                System.out.println(character.sayName()+" is moving "+input);
+            // Announce the movement
+            EventSink events = gameMap.getEventSink();
+            if (events.isEnabled()) {
+                events.accept(GameEvent.move(character, input));
             }
             // Move character based on input
             switch (input) {
                 case "up":
+                    if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+                        GameMetrics.get().moveAttempted(GameMetrics.UP);
+                    }
                     moveUp(character, gameMap);
                     break;
                 case "down":
+                    if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+                        GameMetrics.get().moveAttempted(GameMetrics.DOWN);
+                    }
                     moveDown(character, gameMap);
                     break;
                 case "left":
+                    if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+                        GameMetrics.get().moveAttempted(GameMetrics.LEFT);
+                    }
                     moveLeft(character, gameMap);
                     break;
                 case "right":
+                    if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+                        GameMetrics.get().moveAttempted(GameMetrics.RIGHT);
+                    }
                     moveRight(character, gameMap);
                     break;
             }
@@ -65,14 +88,15 @@ public class GameLogic {
      */
     private static void moveRight(GameCharacter character, Map gameMap) {
         // Check if character is at the rightmost edge of the map
-        if (character.column == gameMap.layout[0].length - 1) {
-            System.out.println(ANSI_ORANGE+"You can't go right. You lose a move."+ANSI_RESET);
+        if (character.column == gameMap.getWidth() - 1) {
+            blocked(gameMap, character, "right", BlockReason.EDGE);
         } else {
             // Move the character right and update the map accordingly
             int oldColumn = character.column;
             character.column += 1;
-            if (updateCharacterPosition(character, gameMap)) {
-                gameMap.layout[character.row][oldColumn] = ".";
+            if (updateCharacterPosition(character, gameMap, "right")) {
+                gameMap.replaceCell(character.row, oldColumn, cellOf(character), Cell.EMPTY);
+                gameMap.moveOccupant(character, character.row, oldColumn);
             } else {
                 character.column -= 1; // Revert move if unsuccessful
             }
@@ -89,13 +113,14 @@ public class GameLogic {
     private static void moveLeft(GameCharacter character, Map gameMap) {
         // Check if character is at the leftmost edge of the map
         if (character.column == 0) {
-            System.out.println(ANSI_ORANGE+"You can't go left. You lose a move."+ANSI_RESET);
+            blocked(gameMap, character, "left", BlockReason.EDGE);
         } else {
             // Move the character left and update the map accordingly
             int oldColumn = character.column;
             character.column -= 1;
-            if (updateCharacterPosition(character, gameMap)) {
-                gameMap.layout[character.row][oldColumn] = ".";
+            if (updateCharacterPosition(character, gameMap, "left")) {
+                gameMap.replaceCell(character.row, oldColumn, cellOf(character), Cell.EMPTY);
+                gameMap.moveOccupant(character, character.row, oldColumn);
             } else {
                 character.column += 1; // Revert move if unsuccessful
             }
@@ -112,13 +137,14 @@ public class GameLogic {
     private static void moveUp(GameCharacter character, Map gameMap) {
         // Check if character is at the upmost edge of the map
         if (character.row == 0) {
-            System.out.println(ANSI_ORANGE+"You can't go up. You lose a move."+ANSI_RESET);
+            blocked(gameMap, character, "up", BlockReason.EDGE);
         } else {
             // Move the character up and update the map accordingly
             int oldRow = character.row;
             character.row -= 1;
-            if (updateCharacterPosition(character, gameMap)) {
-                gameMap.layout[oldRow][character.column] = ".";
+            if (updateCharacterPosition(character, gameMap, "up")) {
+                gameMap.replaceCell(oldRow, character.column, cellOf(character), Cell.EMPTY);
+                gameMap.moveOccupant(character, oldRow, character.column);
             } else {
                 character.row += 1; // Revert move if unsuccessful
             }
@@ -134,14 +160,15 @@ public class GameLogic {
      */
     private static void moveDown(GameCharacter character, Map gameMap) {
         // Check if character is at the downmost edge of the map
-        if (character.row == gameMap.layout.length - 1) {
-            System.out.println(ANSI_ORANGE+"You can't go down. You lose a move."+ANSI_RESET);
+        if (character.row == gameMap.getHeight() - 1) {
+            blocked(gameMap, character, "down", BlockReason.EDGE);
         } else {
             // Move the character down and update the map accordingly
             int oldRow = character.row;
             character.row += 1;
-            if (updateCharacterPosition(character, gameMap)) {
-                gameMap.layout[oldRow][character.column] = ".";
+            if (updateCharacterPosition(character, gameMap, "down")) {
+                gameMap.replaceCell(oldRow, character.column, cellOf(character), Cell.EMPTY);
+                gameMap.moveOccupant(character, oldRow, character.column);
             } else {
                 character.row -= 1; // Revert move if unsuccessful
             }
@@ -154,35 +181,44 @@ public class GameLogic {
      * This method checks the new position and decides if the move is successful or if an interaction occurs.
      * @param character The character to move.
      * @param gameMap The current state of the game map.
+     * @param direction The direction of the move, for reporting.
      * @return true if the character successfully moved, false otherwise.
      */
-    private static boolean updateCharacterPosition(GameCharacter character, Map gameMap) {
-        String currentPosition = gameMap.layout[character.row][character.column];
-
+    private static boolean updateCharacterPosition(GameCharacter character, Map gameMap, String direction) {
         // Handles different scenarios of character interactions based on their position.
+        // The common cases test single cell values, so a bitboard grid answers each with one bit.
+        boolean isPlayer = character instanceof Player;
 
         // Scenario 1 & 5: Player or Monster encounters another character
-        if (character instanceof Player && currentPosition.equals("%") ||
-                character instanceof Monster && currentPosition.equals("*")) {
+        if (gameMap.isCell(character.row, character.column, isPlayer ? Cell.MONSTER : Cell.PLAYER)) {
             attack(character, gameMap);   // Execute attack logic
             return false;// No move is made in case of an attack
         }
 
         // Scenario 2 & 6: Move to empty space
-        if (currentPosition.equals(".")) {
-            gameMap.layout[character.row][character.column] = character instanceof Player ? "*" : "%";
+        if (gameMap.isCell(character.row, character.column, Cell.EMPTY)) {
+            gameMap.replaceCell(character.row, character.column, Cell.EMPTY, cellOf(character));
             return true;// Movement successful
         }
 
+        // The move is refused; read the cell once to tell why
+        byte currentPosition = gameMap.getCell(character.row, character.column);
+
         // Scenario 3: Player encounters dead monster
-        if (character instanceof Player && currentPosition.equals("x")) {
-            System.out.println(ANSI_ORANGE+"Character already dead"+ANSI_RESET);
+        if (character instanceof Player && currentPosition == Cell.DEAD) {
+            blocked(gameMap, character, direction, BlockReason.DEAD_CHARACTER);
             return false;
         }
 
         // Scenario 4: Monster encounters any other monster
-        if (character instanceof Monster && (currentPosition.equals("%") || currentPosition.equals("x"))) {
-            System.out.println(ANSI_ORANGE+"Monster already there so can't move"+ANSI_RESET);
+        if (character instanceof Monster && (currentPosition == Cell.MONSTER || currentPosition == Cell.DEAD)) {
+            blocked(gameMap, character, direction, BlockReason.OCCUPIED);
+            return false;
+        }
+
+        // Scenario 7: Walls and water stop everyone, like the edge of the map
+        if (Cell.isTerrain(currentPosition)) {
+            blocked(gameMap, character, direction, BlockReason.TERRAIN);
             return false;
         }
 
@@ -190,41 +226,76 @@ public class GameLogic {
     }
 
 
+    /**
+     * Returns the cell value a character occupies.
+     * @param character The character.
+     * @return {@link Cell#PLAYER} or {@link Cell#MONSTER}.
+     */
+    private static byte cellOf(GameCharacter character) {
+        return character instanceof Player ? Cell.PLAYER : Cell.MONSTER;
+    }
+
+
+    /**
+     * Reports a refused move to the event sink of the map.
+     * @param gameMap The current state of the game map.
+     * @param character The character whose move was refused.
+     * @param direction The direction of the move.
+     * @param reason Why the move was refused.
+     */
+    private static void blocked(Map gameMap, GameCharacter character, String direction, BlockReason reason) {
+        if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+            GameMetrics.get().moveBlocked();
+        }
+        if (gameMap.isRecorded()) {
+            JfrBlockedMoveEvent.emit(character, direction, reason.name());
+        }
+        EventSink events = gameMap.getEventSink();
+        if (events.isEnabled()) {
+            events.accept(GameEvent.blocked(character, direction, reason));
+        }
+    }
+
+
     /**
      * Handles the attack logic between characters.
      * This method is called when a character encounters another character on the map.
+     * The defender is looked up through the occupancy index of the map.
      * @param character The attacking character.
      * @param gameMap The current state of the game map.
      */
     private static void attack(GameCharacter character, Map gameMap){
-        // Player attacks a living monster
-        if(character instanceof Player && gameMap.layout[character.row][character.column].equals("%")) {
-            for (int i=1;i<4;i++){
-                // Check if the monster is at the attacked position
-                if (gameMap.characters[i].column==character.column &&  gameMap.characters[i].row==character.row){
-                    int initialHealth=gameMap.characters[i].getHealth();
-                    character.hurtCharacter(gameMap.characters[i]);
-                    // Check if the attack was successful
-                    if (initialHealth>gameMap.characters[i].getHealth()){
-                        System.out.println(ANSI_GREEN+"!!HIT!! " + ANSI_RESET+gameMap.characters[0].sayName()+" successfully attacked "+gameMap.characters[i].sayName());
-                    }else {
-                        System.out.println(ANSI_PURPLE+"!!MISS!! "+ANSI_RESET+gameMap.characters[i].sayName()+" successfully defended attack from "+gameMap.characters[0].sayName());
-                    }
-                    // Check if the target is dead and update the game map accordingly
-                    if (gameMap.characters[i].getHealth()<=0) {
-                        gameMap.layout[character.row][character.column]="x";
-                    }
-                }
+        GameCharacter defender = gameMap.occupantAt(character.row, character.column, character);
+        // Player attacks a living monster, or a monster attacks the player
+        boolean playerAttacks = character instanceof Player && defender instanceof Monster
+                && gameMap.isCell(character.row, character.column, Cell.MONSTER);
+        boolean monsterAttacks = character instanceof Monster && defender instanceof Player
+                && gameMap.isCell(character.row, character.column, Cell.PLAYER);
+        if (!playerAttacks && !monsterAttacks) {
+            return;
+        }
+        int initialHealth = defender.getHealth();
+        character.hurtCharacter(defender);
+        int damage = initialHealth - defender.getHealth();
+        if (GameMetrics.ENABLED && gameMap.isRecorded()) {
+            GameMetrics.get().attack(damage, damage > 0 && defender.getHealth() <= 0);
+        }
+        if (gameMap.isRecorded()) {
+            JfrAttackEvent.emit(character, defender, damage);
+        }
+
+        // Report whether the attack was successful
+        EventSink events = gameMap.getEventSink();
+        if (events.isEnabled()) {
+            events.accept(damage > 0 ? GameEvent.hit(character, defender, damage) : GameEvent.miss(character, defender));
+        }
+        // Check if the target is dead and update the game map accordingly
+        if (defender.getHealth() <= 0) {
+            if (playerAttacks) {
+                gameMap.setCell(character.row, character.column, Cell.DEAD);
             }
-        } // Monster attacks the player
-        else if(character instanceof Monster && gameMap.layout[character.row][character.column].equals("*")) {
-            int  initialHealth =gameMap.characters[0].getHealth();
-            character.hurtCharacter(gameMap.characters[0]);
-            // Check if the attack was successful
-            if (initialHealth > gameMap.characters[0].getHealth()) {
-                System.out.println(ANSI_GREEN+"!!HIT!! " + ANSI_RESET + character.sayName() + " successfully attacked "+gameMap.characters[0].sayName());
-            } else {
-                System.out.println(ANSI_PURPLE+"!!MISS!! "+ANSI_RESET+gameMap.characters[0].sayName()+" successfully defended attack from " + character.sayName());
+            if (damage > 0 && events.isEnabled()) {
+                events.accept(GameEvent.death(character, defender));
             }
         }
     }
@@ -0,0 +1,121 @@
+package uoa.assignment.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The random source of one game (SplitMix64, the generator behind java.util.SplittableRandom).
+ * A game owns one instance and hands it to its characters, so every roll of a game comes from a
+ * single seeded stream and the same seed replays the same game.
+ * Unlike SplittableRandom the state can be read and restored, which lets a saved game continue
+ * with exactly the rolls it would have made. Instances are not thread-safe; use {@link #split()}
+ * to give another thread or game its own independent stream.
+ */
+public final class GameRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53; // 1.0 / (1L << 53)
+
+    // Seeds instances created without a seed, like the default constructor of SplittableRandom
+    private static final AtomicLong SEEDER = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long state;
+
+
+    /**
+     * Creates a random source with the given seed.
+     * @param seed The seed of the stream.
+     */
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+
+    /**
+     * Creates a random source with a seed that is unlikely to repeat, for interactive games.
+     */
+    public GameRandom() {
+        this(mix64(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)));
+    }
+
+
+    /**
+     * Returns the next pseudorandom 64-bit value.
+     * @return A random long.
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+
+    /**
+     * Returns a pseudorandom value in [0, bound).
+     * @param bound The exclusive upper bound, which must be positive.
+     * @return A random int below the bound.
+     * @throws IllegalArgumentException if the bound is not positive.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive.");
+        }
+        // Lemire's multiply-shift with rejection of the biased low range
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (1L << 32) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+
+    /**
+     * Returns a pseudorandom value in [0, 1).
+     * @return A random double.
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+
+    /**
+     * Creates a new random source whose stream is independent of this one.
+     * This advances this source by one value.
+     * @return A new random source.
+     */
+    public GameRandom split() {
+        return new GameRandom(mix64(nextLong() ^ GOLDEN_GAMMA));
+    }
+
+
+    /**
+     * Returns the internal state, e.g. to save it with a game.
+     * @return The state of the stream.
+     */
+    public long getState() {
+        return state;
+    }
+
+
+    /**
+     * Restores a state returned by {@link #getState()}.
+     * @param state The state of the stream.
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+
+    /**
+     * The SplitMix64 finaliser, which spreads any input over the whole 64-bit range.
+     * @param value The value to mix.
+     * @return The mixed value.
+     */
+    public static long mix64(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,507 @@
+package uoa.assignment.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+
+/**
+ * Saves and restores the complete state of a game in a versioned binary file.
+ * The file holds a header with the game state and every character, followed by the cells of the map,
+ * one byte per cell in row-major order. The cells of a large map are copied in bulk, a megabyte per
+ * positional channel transfer, instead of being parsed. The file is never memory-mapped, so no mapping
+ * outlives a call and keeps the file from being replaced or deleted, which Windows refuses.
+ *
+ * A {@link ChunkedGrid} stores only its allocated tiles, each with its index in the tile directory.
+ *
+ * Snapshots are written to a temporary file that replaces the target only once it is complete,
+ * so a crash while saving leaves the previous snapshot intact.
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x47534E50; // "GSNP"
+    private static final int VERSION = 1;
+    private static final byte GRID_LAYOUT = 0;
+    private static final byte GRID_BYTES = 1;
+    private static final byte GRID_CHUNKED = 2;
+    private static final byte KIND_PLAYER = 0;
+    private static final byte KIND_MONSTER = 1;
+
+    // Bytes of the fixed header and of one character without its name
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 4 + 4 + 4 + 1 + 1 + 8 + 4;
+    private static final int CHARACTER_BYTES = 1 + 4 + 4 + 4 + 4 + 8 + 4;
+    private static final int TRANSFER_BYTES = 1 << 20; // Cells are read and written a megabyte at a time
+
+
+    private GameSnapshot() {
+    }
+
+
+    /**
+     * Writes the state of a game to a file, replacing any previous snapshot.
+     * @param game The game to save.
+     * @param file The snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void save(Game game, Path file) throws IOException {
+        Map map = game.getMap();
+        GameCharacter[] characters = map.characters;
+        byte[][] names = new byte[characters.length][];
+        long headerSize = HEADER_BYTES;
+        for (int i = 0; i < characters.length; i++) {
+            String name = characters[i].sayName();
+            names[i] = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+            headerSize += CHARACTER_BYTES + (names[i] == null ? 0 : names[i].length);
+        }
+        if (headerSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("Too many characters to save: " + characters.length);
+        }
+        int height = map.getHeight();
+        int width = map.getWidth();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate((int) headerSize);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.put(gridType(map.getGrid()));
+            header.putInt(height);
+            header.putInt(width);
+            header.putInt(game.getRound());
+            header.put((byte) game.getMonsterPolicy().ordinal());
+            header.put((byte) (map.isHeadless() ? 1 : 0));
+            header.putLong(game.getRandom().getState());
+            header.putInt(characters.length);
+            for (int i = 0; i < characters.length; i++) {
+                putCharacter(header, characters[i], names[i]);
+            }
+            header.flip();
+            write(channel, header, 0);
+
+            Grid grid = map.getGrid();
+            if (grid instanceof ChunkedGrid) {
+                putTiles(channel, headerSize, (ChunkedGrid) grid);
+            } else {
+                putCells(channel, headerSize, grid);
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * Restores a game saved with {@link #save(Game, Path)}.
+     * The game continues with the same rolls it would have made without the snapshot.
+     * @param file The snapshot file.
+     * @return The restored game.
+     * @throws IOException if the file cannot be read or is not a snapshot of a supported version.
+     */
+    public static Game load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a game snapshot: " + file);
+            }
+            Input header = new Input(channel);
+            if (header.need(4).getInt() != MAGIC) {
+                throw new IOException("Not a game snapshot: " + file);
+            }
+            int version = header.need(4).getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ".");
+            }
+            ByteBuffer fields = header.need(HEADER_BYTES - 8);
+            byte gridType = fields.get();
+            int height = fields.getInt();
+            int width = fields.getInt();
+            int round = fields.getInt();
+            int policyOrdinal = fields.get();
+            boolean headless = fields.get() != 0;
+            long randomState = fields.getLong();
+            int count = fields.getInt();
+            if (gridType != GRID_LAYOUT && gridType != GRID_BYTES && gridType != GRID_CHUNKED) {
+                throw new IOException("Corrupt snapshot: unknown grid type " + gridType + ".");
+            }
+            if (height <= 0 || width <= 0) {
+                throw new IOException("Corrupt snapshot: map size " + height + "x" + width + " is not positive.");
+            }
+            if (round < 0) {
+                throw new IOException("Corrupt snapshot: negative round " + round + ".");
+            }
+            if (policyOrdinal < 0 || policyOrdinal >= MonsterPolicy.values().length) {
+                throw new IOException("Corrupt snapshot: unknown monster policy " + policyOrdinal + ".");
+            }
+            MonsterPolicy policy = MonsterPolicy.values()[policyOrdinal];
+            // Every character takes at least CHARACTER_BYTES, so a count the file cannot hold is rejected before allocating
+            if (count <= 0 || (long) count * CHARACTER_BYTES > size - HEADER_BYTES) {
+                throw new IOException("Corrupt snapshot: " + count + " characters do not fit in " + size + " bytes.");
+            }
+            GameCharacter[] characters = new GameCharacter[count];
+            for (int i = 0; i < count; i++) {
+                characters[i] = getCharacter(header, size, height, width);
+                if ((i == 0) != (characters[i] instanceof Player)) {
+                    throw new IOException("Corrupt snapshot: the player must be the first and only player character.");
+                }
+            }
+
+            long headerSize = header.position();
+            try {
+                Grid grid;
+                if (gridType == GRID_CHUNKED) {
+                    grid = getTiles(channel, headerSize, height, width);
+                } else {
+                    grid = getCells(channel, headerSize, gridType, height, width);
+                }
+
+                Map map = new Map(grid, characters);
+                map.setHeadless(headless);
+                GameRandom random = new GameRandom(randomState);
+                return new Game(map, random, round, policy);
+            } catch (IllegalArgumentException e) {
+                // Sizes the grids refuse, e.g. a dense map too large for one array
+                throw new IOException("Corrupt snapshot: " + e.getMessage(), e);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the code stored for the type of a grid.
+     * @param grid The grid.
+     * @return GRID_LAYOUT, GRID_BYTES or GRID_CHUNKED.
+     */
+    private static byte gridType(Grid grid) {
+        if (grid instanceof LayoutGrid) {
+            return GRID_LAYOUT;
+        }
+        return grid instanceof ChunkedGrid ? GRID_CHUNKED : GRID_BYTES;
+    }
+
+
+    /**
+     * Writes every cell of a dense grid, a megabyte per channel write.
+     * The cells of a byte grid are written straight from its array; other grids are copied row by row.
+     * @param channel The snapshot file.
+     * @param position Where the cells start.
+     * @param grid The grid.
+     * @throws IOException if writing fails.
+     */
+    private static void putCells(FileChannel channel, long position, Grid grid) throws IOException {
+        int height = grid.getHeight();
+        int width = grid.getWidth();
+        if (grid instanceof ByteGrid) {
+            byte[] cells = ((ByteGrid) grid).cells;
+            for (int offset = 0; offset < cells.length; offset += TRANSFER_BYTES) {
+                position = write(channel, ByteBuffer.wrap(cells, offset, Math.min(TRANSFER_BYTES, cells.length - offset)), position);
+            }
+            return;
+        }
+        byte[] row = new byte[width];
+        for (int r = 0; r < height; r++) {
+            grid.readRow(r, 0, row, width);
+            position = write(channel, ByteBuffer.wrap(row), position);
+        }
+    }
+
+
+    /**
+     * Reads the cells of a dense grid, a megabyte per channel read, and checks that each is a {@link Cell} value.
+     * @param channel The snapshot file.
+     * @param position Where the cells start.
+     * @param gridType GRID_LAYOUT or GRID_BYTES.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @return The restored grid.
+     * @throws IOException if the file does not hold exactly the cells of the grid, or holds an unknown cell.
+     */
+    private static Grid getCells(FileChannel channel, long position, byte gridType, int height, int width) throws IOException {
+        long cellCount = (long) height * width;
+        if (channel.size() != position + cellCount) {
+            throw new IOException("Corrupt snapshot: expected " + (position + cellCount) + " bytes but found " + channel.size() + ".");
+        }
+        if (gridType == GRID_BYTES) {
+            ByteGrid grid = new ByteGrid(height, width);
+            byte[] cells = grid.cells;
+            for (int offset = 0; offset < cells.length; offset += TRANSFER_BYTES) {
+                int length = Math.min(TRANSFER_BYTES, cells.length - offset);
+                position = read(channel, ByteBuffer.wrap(cells, offset, length), position);
+                checkCells(cells, offset, length);
+            }
+            return grid;
+        }
+        LayoutGrid grid = new LayoutGrid(height, width);
+        byte[] row = new byte[width];
+        for (int r = 0; r < height; r++) {
+            position = read(channel, ByteBuffer.wrap(row), position);
+            checkCells(row, 0, width);
+            for (int c = 0; c < width; c++) {
+                grid.set(r, c, row[c]);
+            }
+        }
+        return grid;
+    }
+
+
+    /**
+     * Checks that every byte of a run of cells is a {@link Cell} value.
+     * @param cells The cells.
+     * @param offset The first cell to check.
+     * @param length The number of cells to check.
+     * @throws IOException if a cell holds an unknown value.
+     */
+    private static void checkCells(byte[] cells, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            if (cells[i] < 0 || cells[i] >= Cell.COUNT) {
+                throw new IOException("Corrupt snapshot: unknown cell value " + cells[i] + ".");
+            }
+        }
+    }
+
+
+    /**
+     * Writes the tile size, the number of allocated tiles and then each allocated tile with its index.
+     * Tiles are written with positional channel writes, so the size of the world does not matter.
+     * @param channel The snapshot file.
+     * @param position Where the tiles start.
+     * @param grid The grid.
+     * @throws IOException if writing fails.
+     */
+    private static void putTiles(FileChannel channel, long position, ChunkedGrid grid) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(grid.tileBits).putInt(grid.getAllocatedTiles()).flip();
+        position = write(channel, header, position);
+        ByteBuffer index = ByteBuffer.allocate(4);
+        for (int i = 0; i < grid.tiles.length; i++) {
+            if (grid.tiles[i] != null) {
+                index.clear();
+                index.putInt(i).flip();
+                position = write(channel, index, position);
+                position = write(channel, ByteBuffer.wrap(grid.tiles[i]), position);
+            }
+        }
+    }
+
+
+    /**
+     * Reads the tiles written by {@link #putTiles(FileChannel, long, ChunkedGrid)}.
+     * @param channel The snapshot file.
+     * @param position Where the tiles start.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     * @return The restored grid.
+     * @throws IOException if the file does not hold exactly the tiles of the grid, or holds an unknown cell.
+     */
+    private static Grid getTiles(FileChannel channel, long position, int height, int width) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        position = read(channel, header, position);
+        int tileBits = header.getInt(0);
+        if (tileBits < 1 || tileBits > 12) {
+            throw new IOException("Corrupt snapshot: tile size 2^" + tileBits + " is out of range.");
+        }
+        ChunkedGrid grid = new ChunkedGrid(height, width, tileBits);
+        int count = header.getInt(4);
+        long tileBytes = 1L << (grid.tileBits << 1);
+        if (count < 0 || channel.size() != position + count * (4 + tileBytes)) {
+            throw new IOException("Corrupt snapshot: tile count does not match the file size.");
+        }
+        ByteBuffer index = ByteBuffer.allocate(4);
+        for (int i = 0; i < count; i++) {
+            index.clear();
+            position = read(channel, index, position);
+            int tile = index.getInt(0);
+            if (tile < 0 || tile >= grid.tiles.length || grid.tiles[tile] != null) {
+                throw new IOException("Corrupt snapshot: bad tile index " + tile + ".");
+            }
+            byte[] cells = grid.allocate(tile);
+            position = read(channel, ByteBuffer.wrap(cells), position);
+            checkCells(cells, 0, cells.length);
+        }
+        return grid;
+    }
+
+
+    /**
+     * Writes a whole buffer at a position of the channel.
+     * @param channel The file.
+     * @param buffer The bytes to write.
+     * @param position Where to write them.
+     * @return The position after the written bytes.
+     * @throws IOException if writing fails.
+     */
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+
+    /**
+     * Fills a whole buffer from a position of the channel.
+     * @param channel The file.
+     * @param buffer The buffer to fill.
+     * @param position Where to read from.
+     * @return The position after the read bytes.
+     * @throws IOException if the file ends early or reading fails.
+     */
+    private static long read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new IOException("Corrupt snapshot: unexpected end of file.");
+            }
+            position += count;
+        }
+        return position;
+    }
+
+
+    /**
+     * Writes one character: kind, position, health, attack and defence stats and name.
+     * @param buffer The buffer to write to.
+     * @param character The character.
+     * @param name The UTF-8 bytes of the name, or null if the character has no name.
+     */
+    private static void putCharacter(ByteBuffer buffer, GameCharacter character, byte[] name) {
+        boolean player = character instanceof Player;
+        buffer.put(player ? KIND_PLAYER : KIND_MONSTER);
+        buffer.putInt(character.row);
+        buffer.putInt(character.column);
+        buffer.putInt(character.getHealth());
+        buffer.putInt(player ? ((Player) character).attackPoint : ((Monster) character).attackPoint);
+        buffer.putDouble(player ? ((Player) character).defenseSuccessRate : ((Monster) character).defenseSuccessRate);
+        buffer.putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            buffer.put(name);
+        }
+    }
+
+
+    /**
+     * Reads one character written by {@link #putCharacter(ByteBuffer, GameCharacter, byte[])}.
+     * @param in The header of the snapshot.
+     * @param size The size of the snapshot file.
+     * @param height The number of rows of the map.
+     * @param width The number of columns of the map.
+     * @return The character.
+     * @throws IOException if the character kind is unknown, it lies outside the map,
+     *         or its name runs past the end of the file.
+     */
+    private static GameCharacter getCharacter(Input in, long size, int height, int width) throws IOException {
+        ByteBuffer buffer = in.need(CHARACTER_BYTES);
+        byte kind = buffer.get();
+        int row = buffer.getInt();
+        int column = buffer.getInt();
+        int health = buffer.getInt();
+        int attackPoint = buffer.getInt();
+        double defenseSuccessRate = buffer.getDouble();
+        int nameLength = buffer.getInt();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            throw new IOException("Corrupt snapshot: character at " + row + "," + column + " is outside the "
+                    + height + "x" + width + " map.");
+        }
+        if (nameLength > size - in.position()) {
+            throw new IOException("Corrupt snapshot: name of " + nameLength + " bytes runs past the end of the file.");
+        }
+        String name = null;
+        if (nameLength >= 0) {
+            byte[] bytes = new byte[nameLength];
+            in.need(nameLength).get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        GameCharacter character;
+        if (kind == KIND_PLAYER) {
+            Player player = new Player();
+            player.attackPoint = attackPoint;
+            player.defenseSuccessRate = defenseSuccessRate;
+            character = player;
+        } else if (kind == KIND_MONSTER) {
+            Monster monster = new Monster();
+            monster.attackPoint = attackPoint;
+            monster.defenseSuccessRate = defenseSuccessRate;
+            character = monster;
+        } else {
+            throw new IOException("Corrupt snapshot: unknown character kind " + kind + ".");
+        }
+        character.setName(name);
+        character.row = row;
+        character.column = column;
+        character.setHealth(health);
+        return character;
+    }
+
+
+    /**
+     * Reads the header of a snapshot through a small heap buffer that is refilled from the channel.
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position; // File position of the byte after the buffered ones
+
+
+        /**
+         * Starts reading at the beginning of the file.
+         * @param channel The snapshot file.
+         */
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+
+        /**
+         * Makes sure the buffer holds at least the given number of unread bytes.
+         * @param bytes The number of bytes about to be read.
+         * @return The buffer, positioned at the first of them.
+         * @throws IOException if the file ends early or reading fails.
+         */
+        ByteBuffer need(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            if (buffer.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes) {
+                int count = channel.read(buffer, position);
+                if (count < 0) {
+                    throw new IOException("Corrupt snapshot: unexpected end of file.");
+                }
+                position += count;
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+
+        /**
+         * Returns the file position of the next unread byte.
+         * @return The position.
+         */
+        long position() {
+            return position - buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package uoa.assignment.game;
+
+/**
+ * Storage backend for the cells of a game map.
+ * Cells are addressed by row and column and hold one of the {@link Cell} constants.
+ */
+public interface Grid {
+
+    /**
+     * Returns the number of rows in the grid.
+     * @return The grid height.
+     */
+    int getHeight();
+
+
+    /**
+     * Returns the number of columns in the grid.
+     * @return The grid width.
+     */
+    int getWidth();
+
+
+    /**
+     * Reads a cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return The {@link Cell} value stored at that position.
+     */
+    byte get(int row, int column);
+
+
+    /**
+     * Checks whether a cell holds a value.
+     * Backends that store each value separately answer without decoding the whole cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param cell The {@link Cell} value to look for.
+     * @return true if the cell holds that value.
+     */
+    default boolean is(int row, int column, byte cell) {
+        return get(row, column) == cell;
+    }
+
+
+    /**
+     * Writes a cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param cell The {@link Cell} value to store.
+     */
+    void set(int row, int column, byte cell);
+
+
+    /**
+     * Replaces the value of a cell that is known to hold another one, e.g. when a character leaves it.
+     * Backends that store each value separately only touch the two values involved.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param from The {@link Cell} value the cell holds now.
+     * @param to The {@link Cell} value to store.
+     */
+    default void replace(int row, int column, byte from, byte to) {
+        set(row, column, to);
+    }
+
+
+    /**
+     * Copies a run of cells from one row into an array.
+     * @param row The row to read.
+     * @param fromColumn The first column to copy.
+     * @param dest The array receiving the cells, starting at index 0.
+     * @param length The number of cells to copy.
+     */
+    void readRow(int row, int fromColumn, byte[] dest, int length);
+
+
+    /**
+     * Sets every cell of the grid to the same value.
+     * @param cell The {@link Cell} value to store everywhere.
+     */
+    void fill(byte cell);
+}
@@ -0,0 +1,75 @@
+package uoa.assignment.game;
+
+/**
+ * Grid backend that stores cells in the original String[][] layout.
+ * It keeps {@link Map#layout} usable for code that reads or writes the symbols directly,
+ * while the game logic works with {@link Cell} values.
+ */
+public class LayoutGrid implements Grid {
+
+    private final String[][] layout;
+
+
+    /**
+     * Creates a layout of the given size with every cell empty.
+     * @param height The number of rows.
+     * @param width The number of columns.
+     */
+    public LayoutGrid(int height, int width) {
+        this.layout = new String[height][width];
+        fill(Cell.EMPTY);
+    }
+
+
+    /**
+     * Returns the backing String layout.
+     * @return The layout array, shared with the grid.
+     */
+    public String[][] getLayout() {
+        return layout;
+    }
+
+
+    @Override
+    public int getHeight() {
+        return layout.length;
+    }
+
+
+    @Override
+    public int getWidth() {
+        return layout[0].length;
+    }
+
+
+    @Override
+    public byte get(int row, int column) {
+        return Cell.fromSymbol(layout[row][column]);
+    }
+
+
+    @Override
+    public void set(int row, int column, byte cell) {
+        layout[row][column] = Cell.symbol(cell);
+    }
+
+
+    @Override
+    public void readRow(int row, int fromColumn, byte[] dest, int length) {
+        String[] cells = layout[row];
+        for (int i = 0; i < length; i++) {
+            dest[i] = Cell.fromSymbol(cells[fromColumn + i]);
+        }
+    }
+
+
+    @Override
+    public void fill(byte cell) {
+        String symbol = Cell.symbol(cell);
+        for (int i = 0; i < layout.length; i++) {
+            for (int j = 0; j < layout[i].length; j++) {
+                layout[i][j] = symbol;
+            }
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package uoa.assignment.game;
 
+import uoa.assignment.character.CharacterStore;
 import uoa.assignment.character.GameCharacter;
 import uoa.assignment.character.Monster;
 import uoa.assignment.character.Player;
+import uoa.assignment.event.ConsoleEventSink;
+import uoa.assignment.event.EventSink;
 
 /**
  * This class represents the game map, including the layout and the characters on it.
@@ -10,16 +13,27 @@ import uoa.assignment.character.Player;
  */
 public class Map {
 
-    public String [][] layout;
-    public GameCharacter characters []=new GameCharacter[4] ;
+    public String [][] layout; // Legacy String view of the cells, null for compact maps
+    public GameCharacter characters []; // Player at index 0, monsters after it
+    private final Grid grid; // Cell storage backend
+    private final CharacterStore store; // Struct-of-arrays state of the characters
+    private final OccupancyIndex occupancy; // Cell -> character index
+    private EventSink events = new ConsoleEventSink(); // Receives everything that happens on this map
+    private boolean recorded = true; // Counted in the game metrics and Flight Recorder events of the JVM
+    private FrameRenderer renderer; // Created on first print, then reused for every frame
+    private SpawnStrategy strategy = SpawnStrategy.CORNERS; // How the monsters are placed, again on reset
+    private GameRandom placementRandom; // Reused by reset for random placement
+    private TerrainStyle terrain = TerrainStyle.OPEN; // Generated again from the seed on reset
 
-    // ANSI Color Codes for enhanced console readability
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_BLUE = "\u001B[34m";
-    private static final String ANSI_YELLOW = "\u001B[33m";
     public static final String ANSI_GREY = "\u001B[37m";
 
+    // Maps with more rows or columns than this get a viewport by default; 60 cells take 120 characters
+    private static final int LARGE_MAP = 60;
+    private static final int VIEWPORT_ROWS = 30;
+    private static final int VIEWPORT_COLUMNS = 60;
+    private static final int MINIMAP_ROWS = 6;
+    private static final int MINIMAP_COLUMNS = 12;
+
     /**
      * Constructor for the Map class with specified dimensions.
      * Initializes the map layout and places a default player character.
@@ -27,9 +41,7 @@ public class Map {
      * @param width  The width of the game map.
      */
     public Map (int height, int width) {
-        this.layout=new String[height][width];
-        initialiseArray();
-        initialiseCharacter("Player");
+        this(new LayoutGrid(height, width), "Player");
     }
 
 
@@ -41,104 +53,714 @@ public class Map {
      * @param playerName The name of the player character.
      */
     public Map(int height, int width, String playerName) {
-        this.layout = new String[height][width];
-        initialiseArray();
-        initialiseCharacter(playerName); // Pass the playerName to initialiseCharacter
+        this(new LayoutGrid(height, width), playerName);
+    }
+
+
+    /**
+     * Constructor for the Map class on top of a given grid backend.
+     * Use a {@link ByteGrid} for large maps: it stores one byte per cell and has no String layout,
+     * so {@link #layout} stays null. A {@link ChunkedGrid} goes further and only allocates the tiles
+     * that hold something. A {@link LayoutGrid} keeps the String layout available.
+     * @param grid       The empty grid that stores the cells.
+     * @param playerName The name of the player character.
+     */
+    public Map(Grid grid, String playerName) {
+        this(grid, playerName, 3, SpawnStrategy.CORNERS, 0L);
+    }
+
+
+    /**
+     * Constructor for the Map class with a configurable number of monsters.
+     * @param grid         The empty grid that stores the cells.
+     * @param playerName   The name of the player character.
+     * @param monsterCount The number of monsters to place.
+     * @param strategy     How the monsters are spread over the map.
+     * @param seed         Seed for strategies that place monsters randomly.
+     * @throws IllegalArgumentException if the monsters do not fit on the map with the given strategy.
+     */
+    public Map(Grid grid, String playerName, int monsterCount, SpawnStrategy strategy, long seed) {
+        this(grid, playerName, monsterCount, strategy, seed, TerrainStyle.OPEN);
+    }
+
+
+    /**
+     * Constructor for the Map class with generated terrain.
+     * Walls and water are generated from the seed before the characters are placed, and each character
+     * starts on the open cell nearest to where the spawn strategy puts it.
+     * @param grid         The empty grid that stores the cells.
+     * @param playerName   The name of the player character.
+     * @param monsterCount The number of monsters to place.
+     * @param strategy     How the monsters are spread over the map.
+     * @param seed         Seed for the terrain and for strategies that place monsters randomly.
+     * @param terrain      The kind of terrain to generate.
+     * @throws IllegalArgumentException if the monsters do not fit on the map with the given strategy.
+     */
+    public Map(Grid grid, String playerName, int monsterCount, SpawnStrategy strategy, long seed, TerrainStyle terrain) {
+        if (monsterCount < 0) {
+            throw new IllegalArgumentException("Monster count must not be negative.");
+        }
+        this.grid = grid;
+        if (grid instanceof LayoutGrid) {
+            this.layout = ((LayoutGrid) grid).getLayout();
+        }
+        this.characters = new GameCharacter[monsterCount + 1];
+        this.store = new CharacterStore(monsterCount + 1);
+        this.occupancy = new OccupancyIndex(monsterCount + 1);
+        this.strategy = strategy;
+        this.terrain = terrain;
+        if (terrain != TerrainStyle.OPEN) {
+            new TerrainGenerator(terrain, terrainSeed(seed)).generate(grid);
+        }
+        initialiseCharacter(playerName, strategy, seed); // Pass the playerName to initialiseCharacter
+    }
+
+
+    /**
+     * Constructor for a map whose cells and characters are already set, e.g. when a snapshot is restored.
+     * @param grid       The grid holding the cells.
+     * @param characters The characters with their positions and health, player first.
+     */
+    Map(Grid grid, GameCharacter[] characters) {
+        this.grid = grid;
+        if (grid instanceof LayoutGrid) {
+            this.layout = ((LayoutGrid) grid).getLayout();
+        }
+        this.characters = characters;
+        this.store = new CharacterStore(characters.length);
+        this.occupancy = new OccupancyIndex(characters.length);
+        registerCharacters();
+    }
+
+
+    /**
+     * Clears the map and places the same characters again for a new game, without allocating.
+     * Every character gets its full health back and is placed as by the constructor with the same
+     * spawn strategy, so a reset map equals a new map built with the same seed. Generated terrain is
+     * generated again from the new seed. A map restored from a snapshot is placed in the corners of an
+     * open map, which needs at most three monsters.
+     * Difficulty and random sources are set by the game, see {@link Game#reset(int, long)}.
+     * @param playerName The name of the player.
+     * @param seed       Seed for strategies that place monsters randomly.
+     */
+    public void reset(String playerName, long seed) {
+        if (terrain == TerrainStyle.OPEN) {
+            grid.fill(Cell.EMPTY);
+        } else {
+            new TerrainGenerator(terrain, terrainSeed(seed)).generate(grid);
+        }
+        occupancy.clear();
+        characters[0].setName(playerName);
+        for (GameCharacter character : characters) {
+            character.setHealth(GameCharacter.DEFAULT_HEALTH);
+        }
+        if (strategy == SpawnStrategy.SCATTER) {
+            if (placementRandom == null) {
+                placementRandom = new GameRandom(seed);
+            }
+            placementRandom.setState(seed);
+        }
+        placeCharacters(strategy, placementRandom);
+    }
+
+
+    /**
+     * Creates an independent copy of the map for look-ahead, e.g. Monte Carlo rollouts.
+     * The copy stores its cells in a {@link ByteGrid}, drops its events and is not {@link #isRecorded() recorded},
+     * and its characters are new objects with the same names, stats, positions and health. Nothing played
+     * on the copy affects this map.
+     * @return The copy.
+     * @throws IllegalArgumentException if the map is too large for a dense grid.
+     */
+    public Map fork() {
+        GameCharacter[] copies = new GameCharacter[characters.length];
+        for (int i = 0; i < characters.length; i++) {
+            GameCharacter character = characters[i];
+            GameCharacter copy;
+            if (character instanceof Player) {
+                Player player = new Player(character.sayName());
+                player.attackPoint = ((Player) character).attackPoint;
+                player.defenseSuccessRate = ((Player) character).defenseSuccessRate;
+                copy = player;
+            } else {
+                Monster monster = new Monster();
+                monster.setName(character.sayName());
+                monster.attackPoint = ((Monster) character).attackPoint;
+                monster.defenseSuccessRate = ((Monster) character).defenseSuccessRate;
+                copy = monster;
+            }
+            copy.setHealth(character.getHealth());
+            copy.row = character.row;
+            copy.column = character.column;
+            copies[i] = copy;
+        }
+        Map fork = new Map(new ByteGrid(getHeight(), getWidth()), copies);
+        fork.strategy = strategy;
+        fork.terrain = terrain;
+        fork.events = EventSink.NONE;
+        fork.recorded = false;
+        fork.copyCells(this);
+        return fork;
+    }
+
+
+    /**
+     * Overwrites the cells, positions, health and stats of this map with those of another map of the same shape,
+     * without allocating. A fork is brought back to the state of its origin this way before every rollout.
+     * @param source The map to copy.
+     * @throws IllegalArgumentException if the maps differ in size or number of characters.
+     */
+    public void copyFrom(Map source) {
+        if (source.getHeight() != getHeight() || source.getWidth() != getWidth()
+                || source.characters.length != characters.length) {
+            throw new IllegalArgumentException("Maps of different shapes cannot be copied.");
+        }
+        copyCells(source);
+        occupancy.clear();
+        for (int i = 0; i < characters.length; i++) {
+            GameCharacter from = source.characters[i];
+            GameCharacter to = characters[i];
+            to.setHealth(from.getHealth());
+            if (to instanceof Player && from instanceof Player) {
+                ((Player) to).attackPoint = ((Player) from).attackPoint;
+                ((Player) to).defenseSuccessRate = ((Player) from).defenseSuccessRate;
+            } else if (to instanceof Monster && from instanceof Monster) {
+                ((Monster) to).attackPoint = ((Monster) from).attackPoint;
+                ((Monster) to).defenseSuccessRate = ((Monster) from).defenseSuccessRate;
+            }
+            to.row = from.row;
+            to.column = from.column;
+            store.row[i] = from.row;
+            store.column[i] = from.column;
+            occupancy.put(cellKey(from.row, from.column), i);
+        }
+    }
+
+
+    /**
+     * Copies every cell of another map of the same size into this one.
+     * @param source The map to copy.
+     */
+    private void copyCells(Map source) {
+        if (grid instanceof ByteGrid && source.grid instanceof ByteGrid) {
+            byte[] cells = ((ByteGrid) grid).cells;
+            System.arraycopy(((ByteGrid) source.grid).cells, 0, cells, 0, cells.length);
+            return;
+        }
+        int width = getWidth();
+        byte[] row = new byte[width];
+        for (int r = 0; r < getHeight(); r++) {
+            source.grid.readRow(r, 0, row, width);
+            for (int c = 0; c < width; c++) {
+                grid.set(r, c, row[c]);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of rows of the map.
+     * @return The map height.
+     */
+    public int getHeight() {
+        return grid.getHeight();
+    }
+
+
+    /**
+     * Returns the number of columns of the map.
+     * @return The map width.
+     */
+    public int getWidth() {
+        return grid.getWidth();
+    }
+
+
+    /**
+     * Returns the content of a cell.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return One of the {@link Cell} constants.
+     */
+    public byte getCell(int row, int column) {
+        return grid.get(row, column);
+    }
+
+
+    /**
+     * Checks whether a cell holds a value, which on a {@link BitboardGrid} is a single bit test.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @param cell   One of the {@link Cell} constants.
+     * @return true if the cell holds that value.
+     */
+    public boolean isCell(int row, int column, byte cell) {
+        return grid.is(row, column, cell);
+    }
+
+
+    /**
+     * Changes the content of a cell.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @param cell   One of the {@link Cell} constants.
+     */
+    public void setCell(int row, int column, byte cell) {
+        grid.set(row, column, cell);
+    }
+
+
+    /**
+     * Changes the content of a cell whose current content is known.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @param from   The {@link Cell} constant the cell holds now.
+     * @param to     The {@link Cell} constant to store.
+     */
+    public void replaceCell(int row, int column, byte from, byte to) {
+        grid.replace(row, column, from, to);
+    }
+
+
+    /**
+     * Checks whether a cell has a neighbour holding a value, e.g. whether any monster is next to the player.
+     * A {@link BitboardGrid} answers with one word-parallel mask; other grids read the four neighbours.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @param cell   A non-empty {@link Cell} constant to look for.
+     * @return true if a cell above, below, left or right of the given one holds the value.
+     */
+    public boolean isAdjacent(int row, int column, byte cell) {
+        if (grid instanceof BitboardGrid) {
+            return ((BitboardGrid) grid).isAdjacent(row, column, cell);
+        }
+        return row > 0 && grid.get(row - 1, column) == cell
+                || row < grid.getHeight() - 1 && grid.get(row + 1, column) == cell
+                || column > 0 && grid.get(row, column - 1) == cell
+                || column < grid.getWidth() - 1 && grid.get(row, column + 1) == cell;
+    }
+
+
+    /**
+     * Returns the character standing on a cell.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return The character on that cell, or null if there is none.
+     */
+    public GameCharacter occupantAt(int row, int column) {
+        return occupantAt(row, column, null);
+    }
+
+
+    /**
+     * Returns the character standing on a cell, ignoring one character.
+     * The lookup goes through the occupancy index. Characters whose coordinates were changed
+     * directly, without going through {@link GameLogic}, are not in the index and are found
+     * with a scan instead, which also repairs their entry.
+     * @param row     The row of the cell.
+     * @param column  The column of the cell.
+     * @param ignored A character that is never returned, e.g. the attacker that stepped onto the cell.
+     * @return The character on that cell, or null if there is none.
+     */
+    GameCharacter occupantAt(int row, int column, GameCharacter ignored) {
+        long key = cellKey(row, column);
+        int index = occupancy.get(key);
+        if (index != OccupancyIndex.NONE) {
+            GameCharacter character = characters[index];
+            if (character != ignored && character.row == row && character.column == column) {
+                return character;
+            }
+        }
+        for (int i = 0; i < characters.length; i++) {
+            GameCharacter character = characters[i];
+            if (character != ignored && character.row == row && character.column == column) {
+                occupancy.put(key, i);
+                return character;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Moves the occupancy entry of a character after it changed cell.
+     * @param character The character, already holding its new coordinates.
+     * @param oldRow    The row the character moved from.
+     * @param oldColumn The column the character moved from.
+     */
+    void moveOccupant(GameCharacter character, int oldRow, int oldColumn) {
+        long oldKey = cellKey(oldRow, oldColumn);
+        int index = occupancy.get(oldKey);
+        if (index != OccupancyIndex.NONE && characters[index] == character) {
+            occupancy.remove(oldKey);
+        } else {
+            index = indexOf(character);
+        }
+        if (index != OccupancyIndex.NONE) {
+            occupancy.put(cellKey(character.row, character.column), index);
+            store.row[index] = character.row;
+            store.column[index] = character.column;
+        }
     }
 
 
     /**
-     * Prints the current layout of the game map to the console.
-     * Each cell of the layout is printed with a space for readability.
+     * Returns the position of a character in the characters array.
+     * @param character The character to look for.
+     * @return Its index, or -1 if it is not on this map.
      */
+    private int indexOf(GameCharacter character) {
+        for (int i = 0; i < characters.length; i++) {
+            if (characters[i] == character) {
+                return i;
+            }
+        }
+        return OccupancyIndex.NONE;
+    }
+
+
+    /**
+     * Returns the flat key of a cell, as used by the occupancy index.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return row * width + column.
+     */
+    long cellKey(int row, int column) {
+        return (long) row * grid.getWidth() + column;
+    }
+
+
+    /**
+     * Turns console output for this map on or off.
+     * A headless map runs the same rules as an interactive one, but neither the map nor the
+     * game logic acting on it prints anything. This replaces the event sink of the map.
+     * @param headless true to suppress all console output.
+     */
+    public void setHeadless(boolean headless) {
+        this.events = headless ? EventSink.NONE : new ConsoleEventSink();
+    }
+
+
+    /**
+     * Returns whether events on this map are dropped.
+     * @return true if the map is headless.
+     */
+    public boolean isHeadless() {
+        return !events.isEnabled();
+    }
+
+
+    /**
+     * Sets the sink that receives the events of games played on this map.
+     * @param events The event sink, e.g. a {@link ConsoleEventSink} for the interactive game.
+     * @throws IllegalArgumentException if the sink is null.
+     */
+    public void setEventSink(EventSink events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Event sink must not be null, use EventSink.NONE instead.");
+        }
+        this.events = events;
+    }
+
+
+    /**
+     * Returns the sink that receives the events of games played on this map.
+     * @return The event sink.
+     */
+    public EventSink getEventSink() {
+        return events;
+    }
+
+
+    /**
+     * Turns the game metrics and Flight Recorder events of games played on this map on or off.
+     * Look-ahead games, e.g. the rollouts of a search, turn them off so that only rounds really played are counted.
+     * @param recorded true to count the rounds, moves and attacks on this map.
+     */
+    public void setRecorded(boolean recorded) {
+        this.recorded = recorded;
+    }
+
+
+    /**
+     * Returns whether games played on this map are counted in the game metrics and Flight Recorder events.
+     * @return true if the map is recorded.
+     */
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+
+    /**
+     * Returns the struct-of-arrays store that holds the characters' state.
+     * Character ids match their index in {@link #characters}.
+     * @return The character store of this map.
+     */
+    public CharacterStore getCharacterStore() {
+        return store;
+    }
+
+
+    /**
+     * Returns the grid backend holding the cells of this map.
+     * @return The grid backend.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+
     /**
      * Prints the current layout of the game map.
      * Each cell of the layout is displayed with appropriate color coding for readability.
+     * The frame is built by the map's {@link FrameRenderer} and written with a single call.
      */
     public void printLayout() {
-        System.out.println(ANSI_YELLOW + "\nCurrent game map:" + ANSI_RESET);
-        for (int i = 0; i < this.layout.length; i++) {
-            for (int j = 0; j < this.layout[i].length; j++) {
-                printCellWithColor(this.layout[i][j]);
+        if (isHeadless()) {
+            return;
+        }
+        getRenderer().render(this, System.out);
+    }
+
+
+    /**
+     * Returns the renderer used by {@link #printLayout()}, e.g. to turn on diff mode.
+     * Maps too large to read on a terminal start with a viewport around the player and a minimap.
+     * @return The frame renderer of this map.
+     */
+    public FrameRenderer getRenderer() {
+        if (renderer == null) {
+            renderer = new FrameRenderer();
+            if (getHeight() > LARGE_MAP || getWidth() > LARGE_MAP) {
+                renderer.setViewport(VIEWPORT_ROWS, VIEWPORT_COLUMNS);
+                renderer.setMinimap(MINIMAP_ROWS, MINIMAP_COLUMNS);
             }
-            System.out.println();
         }
+        return renderer;
+    }
+
+
+    /**
+     * Initializes the characters on the map, including one player with a given name and the monsters.
+     * Sets their names and initial positions on the map and binds them to the character store.
+     * @param playerName The name of the player.
+     * @param strategy   How the monsters are spread over the map.
+     * @param seed       Seed for random placement.
+     */
+    private void initialiseCharacter(String playerName, SpawnStrategy strategy, long seed) {
+        // Create player with the given name
+        Player player = new Player(playerName); // Use playerName in Player constructor
+        characters[0] = player;
+
+        // Create monsters and set their names
+        for (int i = 1; i < characters.length; i++) {
+            Monster monster = new Monster();
+            monster.setName("Monster" + i);
+            characters[i] = monster;
+        }
+
+        placeCharacters(strategy, strategy == SpawnStrategy.SCATTER ? new GameRandom(seed) : null);
     }
 
+
     /**
-     * Prints a single cell of the layout with appropriate color based on its content.
-     * @param cellContent The content of the cell to be printed.
+     * Places the monsters with a spawn strategy and the player in the bottom-right corner,
+     * then registers every character.
+     * @param strategy How the monsters are spread over the map.
+     * @param random   The random source for random placement, or null for the other strategies.
      */
-    private void printCellWithColor(String cellContent) {
-        switch (cellContent) {
-            case "*":
-                System.out.print(ANSI_BLUE + "*" + ANSI_RESET + " ");
+    private void placeCharacters(SpawnStrategy strategy, GameRandom random) {
+        int lastRow = getHeight() - 1;
+        int lastColumn = getWidth() - 1;
+
+        switch (strategy) {
+            case CORNERS:
+                placeInCorners(lastRow, lastColumn);
                 break;
-            case "%":
-                System.out.print(ANSI_RED + "%" + ANSI_RESET + " ");
+            case SCATTER:
+                placeScattered(random);
                 break;
-            case "x":
-                System.out.print(ANSI_GREY + "x" + ANSI_RESET + " ");
+            case SPREAD:
+                placeSpread();
                 break;
-            default:
-                System.out.print(cellContent + " ");
         }
+
+        // Position the player in the bottom-right corner
+        GameCharacter player = characters[0];
+        long cell = spawnCell(lastRow, lastColumn);
+        player.row = (int) (cell / getWidth());
+        player.column = (int) (cell % getWidth());
+        grid.set(player.row, player.column, Cell.PLAYER);
+
+        registerCharacters();
     }
 
 
     /**
-     * Initializes the game map layout with empty spaces represented by '.'.
-     * It fills each cell of the layout array with a dot.
+     * Registers every character in the occupancy index and binds it to the character store.
      */
-    private void initialiseArray(){
-        for (int i=0;i<this.layout.length;i++){
-            for(int j=0;j<this.layout[i].length;j++){
-                this.layout[i][j]=".";
+    private void registerCharacters() {
+        for (int i = 0; i < characters.length; i++) {
+            occupancy.put(cellKey(characters[i].row, characters[i].column), i);
+            characters[i].bind(store, i);
+        }
+    }
+
+
+    /**
+     * Places up to three monsters in the top-right, bottom-left and top-left corners.
+     * @param lastRow    The index of the bottom row.
+     * @param lastColumn The index of the rightmost column.
+     */
+    private void placeInCorners(int lastRow, int lastColumn) {
+        if (characters.length > 4) {
+            throw new IllegalArgumentException("At most three monsters fit in the corners.");
+        }
+        int[][] corners = {{0, lastColumn}, {lastRow, 0}, {0, 0}}; // Monster1, Monster2, Monster3
+        for (int i = 1; i < characters.length; i++) {
+            long cell = spawnCell(corners[i - 1][0], corners[i - 1][1]);
+            placeMonster(i, (int) (cell / getWidth()), (int) (cell % getWidth()));
+        }
+    }
+
+
+    /**
+     * Places the monsters on random empty cells.
+     * Sparse maps use rejection sampling; dense maps use selection sampling over every empty cell,
+     * so the cost stays linear in either case.
+     * @param random The random source derived from the map seed.
+     */
+    private void placeScattered(GameRandom random) {
+        int monsters = characters.length - 1;
+        long cells = (long) getHeight() * getWidth() - 1; // The last cell is kept for the player
+        long freeCells = terrain == TerrainStyle.OPEN ? cells : countEmptyCells(cells);
+        if (monsters > freeCells) {
+            throw new IllegalArgumentException("Too many monsters for a " + getHeight() + "x" + getWidth() + " map.");
+        }
+        int width = getWidth();
+        if (monsters * 2L <= freeCells) {
+            int placed = 0;
+            while (placed < monsters) {
+                long cell = (long) (random.nextDouble() * cells);
+                int row = (int) (cell / width);
+                int column = (int) (cell % width);
+                if (grid.get(row, column) == Cell.EMPTY) {
+                    placed++;
+                    placeMonster(placed, row, column);
+                }
+            }
+        } else {
+            int placed = 0;
+            long available = freeCells;
+            for (long cell = 0; cell < cells && placed < monsters; cell++) {
+                int row = (int) (cell / width);
+                int column = (int) (cell % width);
+                if (terrain != TerrainStyle.OPEN && grid.get(row, column) != Cell.EMPTY) {
+                    continue;
+                }
+                // Keep each remaining cell with probability (still needed) / (still available)
+                if (random.nextDouble() * available < monsters - placed) {
+                    placed++;
+                    placeMonster(placed, row, column);
+                }
+                available--;
             }
         }
     }
 
 
+    /**
+     * Places the monsters at an even stride over the cells in row-major order.
+     */
+    private void placeSpread() {
+        int monsters = characters.length - 1;
+        long freeCells = (long) getHeight() * getWidth() - 1; // The last cell holds the player
+        if (monsters > freeCells) {
+            throw new IllegalArgumentException("Too many monsters for a " + getHeight() + "x" + getWidth() + " map.");
+        }
+        if (monsters == 0) {
+            return;
+        }
+        long stride = freeCells / monsters;
+        int width = getWidth();
+        for (int i = 1; i <= monsters; i++) {
+            long cell = spawnCell((int) ((i - 1) * stride / width), (int) ((i - 1) * stride % width));
+            placeMonster(i, (int) (cell / width), (int) (cell % width));
+        }
+    }
+
 
     /**
-     * Initializes the characters on the map, including one player with a given name and three monsters.
-     * Sets their names and initial positions on the map.
-     * @param playerName The name of the player.
+     * Counts the empty cells before a given cell in row-major order.
+     * @param cells The number of cells to look at.
+     * @return The number of empty cells among them.
      */
-    private void initialiseCharacter(String playerName) {
-        // Create player with the given name
-        Player player = new Player(playerName); // Use playerName in Player constructor
+    private long countEmptyCells(long cells) {
+        int width = getWidth();
+        byte[] row = new byte[width];
+        long count = 0;
+        for (int r = 0; r < getHeight(); r++) {
+            grid.readRow(r, 0, row, width);
+            for (int c = 0; c < width && (long) r * width + c < cells; c++) {
+                if (row[c] == Cell.EMPTY) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
 
-        // Create and position characters
-        Monster monsterRightTop = new Monster();
-        Monster monsterLeftBottom = new Monster();
-        Monster monsterLeftTop = new Monster();
 
-        // Set names for monsters
-        monsterRightTop.setName("Monster1");
-        monsterLeftBottom.setName("Monster2");
-        monsterLeftTop.setName("Monster3");
+    /**
+     * Returns the cell a character spawns on when a strategy puts it on a given cell.
+     * On open maps that is the cell itself. On maps with terrain it is the nearest empty cell,
+     * searched in growing squares around the given one.
+     * @param row    The row the strategy chose.
+     * @param column The column the strategy chose.
+     * @return The key of the spawn cell, row * width + column.
+     * @throws IllegalArgumentException if the map has no empty cell left.
+     */
+    private long spawnCell(int row, int column) {
+        if (terrain == TerrainStyle.OPEN || grid.get(row, column) == Cell.EMPTY) {
+            return cellKey(row, column);
+        }
+        int height = getHeight();
+        int width = getWidth();
+        int maxRadius = Math.max(height, width);
+        for (int radius = 1; radius < maxRadius; radius++) {
+            for (int r = Math.max(0, row - radius); r <= Math.min(height - 1, row + radius); r++) {
+                // Only the border of the square is new at this radius
+                int step = r == row - radius || r == row + radius ? 1 : 2 * radius;
+                for (int c = column - radius; c <= column + radius; c += step) {
+                    if (c >= 0 && c < width && grid.get(r, c) == Cell.EMPTY) {
+                        return cellKey(r, c);
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("No open cell left for a character on a " + height + "x" + width + " map.");
+    }
 
-        // Place characters in the game characters array
-        characters[0] = player;
-        characters[1] = monsterRightTop;
-        characters[2] = monsterLeftBottom;
-        characters[3] = monsterLeftTop;
-
-        // Position characters on the map and set their initial coordinates
-        layout[0][0] = "%"; // Represents monsterLeftTop
-        layout[0][layout[0].length - 1] = "%"; // Represents monsterRightTop
-        layout[layout.length - 1][0] = "%"; // Represents monsterLeftBottom
-        layout[layout.length - 1][layout[0].length - 1] = "*"; // Represents player
-
-        // Set initial coordinates for each character
-        player.column = layout[0].length - 1;
-        player.row = layout.length - 1;
-        monsterLeftTop.row = 0;
-        monsterLeftTop.column = 0;
-        monsterLeftBottom.row = layout.length - 1;
-        monsterLeftBottom.column = 0;
-        monsterRightTop.column = layout[0].length - 1;
-        monsterRightTop.row = 0;
+
+    /**
+     * Derives the seed of the terrain from the seed of the map, so it differs from the placement stream.
+     * @param seed The seed of the map.
+     * @return The terrain seed.
+     */
+    private static long terrainSeed(long seed) {
+        return GameRandom.mix64(seed ^ 0x7E44A1A5F1E1D00DL);
+    }
+
+
+    /**
+     * Puts a monster on a cell and sets its coordinates.
+     * @param index  The index of the monster in the characters array.
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     */
+    private void placeMonster(int index, int row, int column) {
+        grid.set(row, column, Cell.MONSTER);
+        characters[index].row = row;
+        characters[index].column = column;
     }
 }
@@ -0,0 +1,13 @@
+package uoa.assignment.game;
+
+/**
+ * How the monsters act during a round.
+ */
+public enum MonsterPolicy {
+    /** Each living monster moves in a random direction, as in the original game. */
+    RANDOM,
+    /** Monsters stay where they are and only fight when the player walks into them. */
+    STATIONARY,
+    /** Monsters walk towards the player along a shared {@link FlowField}. */
+    CHASE
+}
@@ -0,0 +1,132 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+
+/**
+ * Maps cell keys (row * width + column) to the index of the character standing there.
+ * It is an open-addressing hash table on primitive arrays, so its memory depends on the
+ * number of characters and not on the size of the map, and lookups allocate nothing.
+ */
+class OccupancyIndex {
+
+    static final int NONE = -1; // Returned when no character is registered on a cell
+
+    private static final long FREE = -1L; // Marks an unused slot
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+
+    /**
+     * Creates an index sized for the given number of characters.
+     * @param expectedCharacters The number of characters expected on the map.
+     */
+    OccupancyIndex(int expectedCharacters) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedCharacters) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+
+    /**
+     * Returns the character index registered on a cell.
+     * @param key The cell key.
+     * @return The character index, or {@link #NONE} if the cell has no entry.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == FREE) {
+                return NONE;
+            }
+        }
+    }
+
+
+    /**
+     * Registers a character on a cell, replacing any previous entry for that cell.
+     * @param key The cell key.
+     * @param characterIndex The index of the character in {@link Map#characters}.
+     */
+    void put(long key, int characterIndex) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = characterIndex;
+    }
+
+
+    /**
+     * Removes the entry of a cell.
+     * @param key The cell key.
+     * @return The character index that was registered, or {@link #NONE}.
+     */
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return NONE;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        // Shift the following entries of the probe chain back so lookups never stop early
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return removed;
+    }
+
+
+    /**
+     * Removes every entry.
+     */
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,263 @@
+package uoa.assignment.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.event.EventSink;
+import uoa.assignment.event.GameEvent;
+
+/**
+ * Plays a {@link Game} in real time on a fixed timestep instead of one round per input.
+ * Every tick the player makes at most one queued move, and the monsters whose timer is due act.
+ * Each monster acts once every monsterPeriod ticks. Phases are dealt round-robin in map order, from a
+ * starting phase drawn from the game's random source, so the slots differ in size by at most one monster
+ * and the monsters' work is spread evenly over the ticks. Due monsters are kept in a timing wheel with
+ * one slot per phase, so a tick only visits the monsters that act in it.
+ *
+ * Input may be submitted from any thread, e.g. a reader thread. Ticks run on the thread that calls
+ * {@link #run()}. A tick that takes longer than its budget counts as an overrun; when the game falls
+ * a whole tick behind, the missed ticks are dropped rather than run back to back.
+ */
+public class RealTimeGame {
+
+    /** Default tick rate. */
+    public static final int DEFAULT_TICKS_PER_SECOND = 20;
+
+    private static final int INPUT_CAPACITY = 64; // Moves typed faster than the tick rate beyond this are dropped
+
+    private final Game game;
+    private final Map map;
+    private final long tickNanos;
+    private final int[][] wheel; // Monster indices by the tick phase they act in
+    private final BlockingQueue<String> input = new ArrayBlockingQueue<>(INPUT_CAPACITY);
+    private final TickMetrics metrics;
+    private Consumer<RealTimeGame> tickListener = ignored -> { };
+    private volatile boolean stopped;
+    private volatile long tick;
+    private volatile boolean over;
+
+
+    /**
+     * Creates a real-time game where each monster acts every tick.
+     * @param game The game to play.
+     * @param ticksPerSecond The tick rate.
+     * @throws IllegalArgumentException if the tick rate is not positive.
+     */
+    public RealTimeGame(Game game, int ticksPerSecond) {
+        this(game, ticksPerSecond, 1);
+    }
+
+
+    /**
+     * Creates a real-time game.
+     * @param game The game to play.
+     * @param ticksPerSecond The tick rate.
+     * @param monsterPeriod The number of ticks between two actions of the same monster.
+     * @throws IllegalArgumentException if the tick rate or the monster period is not positive.
+     */
+    public RealTimeGame(Game game, int ticksPerSecond, int monsterPeriod) {
+        if (ticksPerSecond <= 0 || ticksPerSecond > 1_000_000) {
+            throw new IllegalArgumentException("Tick rate must be between 1 and 1000000 per second.");
+        }
+        if (monsterPeriod <= 0) {
+            throw new IllegalArgumentException("Monster period must be positive.");
+        }
+        this.game = game;
+        this.map = game.getMap();
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.metrics = new TickMetrics(tickNanos);
+        this.wheel = buildWheel(monsterPeriod, game.getRandom());
+    }
+
+
+    /**
+     * Returns the game played in real time.
+     * @return The game.
+     */
+    public Game getGame() {
+        return game;
+    }
+
+
+    /**
+     * Returns the tick duration metrics.
+     * @return The metrics, updated after every tick.
+     */
+    public TickMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Returns the number of ticks run.
+     * @return The current tick.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+
+    /**
+     * Returns whether the game is over.
+     * @return true once the player died or every monster is dead.
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+
+    /**
+     * Sets a callback that runs on the tick thread after every tick, e.g. to draw the map.
+     * Its time counts towards the tick.
+     * @param tickListener The callback.
+     */
+    public void setTickListener(Consumer<RealTimeGame> tickListener) {
+        this.tickListener = tickListener;
+    }
+
+
+    /**
+     * Queues a move of the player. Safe to call from any thread.
+     * @param move The player's input.
+     * @return false if the queue was full and the move was dropped.
+     */
+    public boolean submit(String move) {
+        return input.offer(move);
+    }
+
+
+    /**
+     * Starts a daemon thread that submits every line of a reader as a move until the input ends.
+     * @param in The input, e.g. the console.
+     * @return The started thread.
+     */
+    public Thread startInputReader(BufferedReader in) {
+        Thread reader = new Thread(() -> {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    submit(line.trim());
+                }
+            } catch (IOException e) {
+                // The input is gone; the game keeps running without it
+            }
+        }, "game-input");
+        reader.setDaemon(true);
+        reader.start();
+        return reader;
+    }
+
+
+    /**
+     * Runs ticks at the fixed rate until the game is over or {@link #stop()} is called.
+     * @return true if the game is over, false if it was stopped.
+     */
+    public boolean run() {
+        long deadline = System.nanoTime() + tickNanos;
+        while (!stopped && !over) {
+            tick();
+            long now = System.nanoTime();
+            if (now - deadline >= tickNanos) {
+                // A whole tick behind: drop the missed ticks instead of running them back to back
+                long missed = (now - deadline) / tickNanos;
+                metrics.skip(missed);
+                deadline += missed * tickNanos;
+            }
+            while (!stopped && (now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(deadline - now);
+            }
+            deadline += tickNanos;
+        }
+        return over;
+    }
+
+
+    /**
+     * Makes {@link #run()} return after the current tick, or right away if it has not started yet.
+     * Safe to call from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+
+    /**
+     * Runs one tick right away: the player's next queued move, then the monsters that are due.
+     * Ticks must not run on two threads at once.
+     * @return true if the game is over.
+     */
+    public boolean tick() {
+        if (over) {
+            return true;
+        }
+        long start = System.nanoTime();
+        GameCharacter player = map.characters[0];
+        String move = input.poll();
+        if (move != null) {
+            GameLogic.moveCharacter(move, map, player);
+        }
+        int[] due = wheel[(int) (tick % wheel.length)];
+        if (due.length > 0) {
+            FlowField field = game.updateFlowField();
+            int[] health = map.getCharacterStore().health;
+            for (int index : due) {
+                if (health[index] > 0 && health[0] > 0) {
+                    game.moveMonster((Monster) map.characters[index], field);
+                }
+            }
+        }
+        tick++;
+        CharacterStore store = map.getCharacterStore();
+        boolean playerWon = store.countAlive(CharacterStore.KIND_MONSTER) == 0;
+        over = playerWon || store.health[0] <= 0;
+        if (over) {
+            EventSink events = map.getEventSink();
+            if (events.isEnabled()) {
+                events.accept(GameEvent.gameOver((int) Math.min(tick, Integer.MAX_VALUE), playerWon, map));
+            }
+        }
+        tickListener.accept(this);
+        metrics.record(System.nanoTime() - start);
+        return over;
+    }
+
+
+    /**
+     * Spreads the monsters over the slots of the timing wheel.
+     * @param period The number of slots.
+     * @param random The random source that picks the phase of the first monster.
+     * @return The monster indices of each slot.
+     */
+    private int[][] buildWheel(int period, GameRandom random) {
+        GameCharacter[] characters = map.characters;
+        int[] phase = new int[characters.length];
+        int[] sizes = new int[period];
+        // Dealing the phases round-robin keeps every slot within one monster of the others
+        int next = period == 1 ? 0 : random.nextInt(period);
+        for (int i = 1; i < characters.length; i++) {
+            if (characters[i] instanceof Monster) {
+                phase[i] = next;
+                sizes[next]++;
+                next = next + 1 == period ? 0 : next + 1;
+            }
+        }
+        int[][] slots = new int[period][];
+        for (int p = 0; p < period; p++) {
+            slots[p] = new int[sizes[p]];
+            sizes[p] = 0;
+        }
+        for (int i = 1; i < characters.length; i++) {
+            if (characters[i] instanceof Monster) {
+                slots[phase[i]][sizes[phase[i]]++] = i;
+            }
+        }
+        return slots;
+    }
+}
@@ -1,7 +1,17 @@
 package uoa.assignment.game;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
+import uoa.assignment.event.EventSink;
+import uoa.assignment.simulation.ExpectimaxSolver;
+import uoa.assignment.simulation.ReplayJournal;
+
 /**
  * This class is the entry point for running the game.
  * It initializes the game, handles user input, and manages game rounds.
@@ -12,6 +22,14 @@ public class RunGame {
     private static final String ANSI_YELLOW = "\u001B[33m";
     private static final String ANSI_RED = "\u001B[31m";
     private static boolean gameOver = false;
+    // Games are appended to this file when the property is set, e.g. -Dgame.journal=games.journal
+    private static final String JOURNAL_PROPERTY = "game.journal";
+    // The game is saved to this file after every round and on exit, and resumed from it on the next start
+    private static final String SNAPSHOT_PROPERTY = "game.snapshot";
+    // Monsters move on their own at this many ticks per second when the property is set, e.g. -Dgame.realtime=20
+    private static final String REALTIME_PROPERTY = "game.realtime";
+    // Time the solver may think when the player types "hint"
+    private static final long HINT_MILLIS = 500;
 
     private static String playerName = "Player"; // Default player name
     private static int difficulty = 1; // Default difficulty
@@ -21,6 +39,7 @@ public class RunGame {
         int height=0, width=0;
         boolean firstRun = true;
         boolean exitGame = false; // Flag to indicate if the game should be exited
+        Game previousGame = null; // Reset in place when the player plays again
         // Main loop for playing multiple games
         while (true) {
             // User input for difficulty if it's not the first run
@@ -69,34 +88,84 @@ public class RunGame {
                     throw new IllegalArgumentException("Invalid number of arguments. Please enter the dimensions in 'height, width, [playerName], [difficulty]' format.");
                 }
             }
-            // Welcome message and game initialization
-            System.out.printf(ANSI_GREEN + "Welcome to the Game, %s! \nYou choose the difficulty level:%d\nAre you ready to challenge the monsters?" + ANSI_RESET,playerName,difficulty);
-            // Initialize the game with the specified dimensions, player name, and difficulty
-            Game game = new Game(height, width, playerName, difficulty);
+            // Resume a saved game on the first run, if there is one
+            Game game = firstRun ? loadSnapshot() : null;
+            ReplayJournal journal = null; // Only games played from the start can be replayed
+            if (game != null) {
+                System.out.printf(ANSI_GREEN + "Welcome back, %s! \nYour saved game continues after round %d." + ANSI_RESET,
+                        game.getMap().characters[0].sayName(), game.getRound());
+                game.getMap().printLayout();
+            } else {
+                // Welcome message and game initialization
+                System.out.printf(ANSI_GREEN + "Welcome to the Game, %s! \nYou choose the difficulty level:%d\nAre you ready to challenge the monsters?" + ANSI_RESET,playerName,difficulty);
+                // Initialize the game with the specified dimensions, player name, and difficulty
+                long seed = System.nanoTime();
+                if (previousGame != null) {
+                    // Play again on the same map and characters instead of building a new world
+                    game = previousGame;
+                    game.getMap().setHeadless(false);
+                    game.reset(difficulty, seed);
+                } else {
+                    game = new Game(height, width, playerName, difficulty, seed);
+                }
+                Map map = game.getMap();
+                journal = new ReplayJournal(seed, map.getHeight(), map.getWidth(), map.characters[0].sayName(), difficulty,
+                        3, SpawnStrategy.CORNERS, MonsterPolicy.RANDOM);
+            }
             gameOver = false; // Reset the game over flag
-            int round = 1;
+            Integer ticksPerSecond = Integer.getInteger(REALTIME_PROPERTY);
+            if (ticksPerSecond != null) {
+                // Real-time games depend on timing, so they are neither journaled nor saved
+                journal = null;
+                gameOver = playRealTime(game, sc, ticksPerSecond);
+                exitGame = !gameOver;
+            }
+            int round = game.getRound() + 1;
+            ExpectimaxSolver hints = null; // Created on the first hint, keeps its searched positions for the game
             // Main game loop that continues until the game is over
-            while (!gameOver) {
+            while (!gameOver && !exitGame) {
                 System.out.println();// User input for the next move
                 System.out.printf(ANSI_YELLOW+"Round %d%n"+ANSI_RESET, round);
                 // Read user input for the next move
                 String input = sc.nextLine();
                 // Check if user wants to exit the game
                 if ("0".equals(input)) {
+                    saveSnapshot(game);
                     System.out.println(ANSI_GREEN + "Exiting the game." + ANSI_RESET);
                     exitGame = true; // Set the exit flag
                     break;
                 }
+                // Suggest a move without playing it
+                if ("hint".equals(input)) {
+                    if (hints == null) {
+                        hints = new ExpectimaxSolver(HINT_MILLIS);
+                    }
+                    System.out.println(ANSI_GREEN + "Hint: " + hints.solve(game) + ANSI_RESET);
+                    continue;
+                }
                 // Process the round based on the user input and determine if the game is over
                 gameOver = game.nextRound(input);
                 // Increment round counter if the user's input was valid
                 if (game.validateInput) {
                     round++;// Increment round if input was valid
+                    if (journal != null) {
+                        journal.record(input);
+                    }
+                    if (!gameOver) {
+                        saveSnapshot(game);
+                    }
                 }
             }
+            if (journal != null) {
+                saveJournal(journal, game);
+            }
+            if (gameOver) {
+                deleteSnapshot();
+            }
             if (exitGame) {
                 break; // Exit the outer loop if the exit flag is set
             }
+            previousGame = game;
             // Post-game actions for replaying
             System.out.print(ANSI_GREEN + "Game over! Do you want to play again? (yes/no): " + ANSI_RESET);
             String playAgainResponse = sc.nextLine().trim().toLowerCase();
@@ -110,5 +179,120 @@ public class RunGame {
         // Close the scanner to prevent resource leaks
         sc.close();
     }
+
+
+    /**
+     * Plays a game in real time: the monsters move on a tick thread while this thread reads the player's moves.
+     * The map is redrawn in diff mode after every tick, and the tick metrics are printed at the end.
+     * @param game The game to play.
+     * @param sc The console input.
+     * @param ticksPerSecond The tick rate.
+     * @return true if the game is over, false if the player exited with 0.
+     */
+    private static boolean playRealTime(Game game, Scanner sc, int ticksPerSecond) {
+        Map map = game.getMap();
+        map.setEventSink(EventSink.NONE); // Messages for every monster step would scroll the map away
+        FrameRenderer renderer = map.getRenderer();
+        renderer.setDiffMode(true);
+        RealTimeGame realTime = new RealTimeGame(game, ticksPerSecond);
+        realTime.setTickListener(ticked -> {
+            renderer.render(map, System.out);
+            if (ticked.isOver()) {
+                System.out.println(ANSI_GREEN + (map.characters[0].getHealth() > 0 ? "You won!" : "You died!")
+                        + " Press enter to continue." + ANSI_RESET);
+            }
+        });
+        Thread ticker = new Thread(realTime::run, "game-tick");
+        ticker.start();
+        while (!realTime.isOver() && sc.hasNextLine()) {
+            String input = sc.nextLine();
+            if ("0".equals(input)) {
+                System.out.println(ANSI_GREEN + "Exiting the game." + ANSI_RESET);
+                break;
+            }
+            realTime.submit(input);
+        }
+        realTime.stop();
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(ANSI_YELLOW + realTime.getMetrics() + ANSI_RESET);
+        return realTime.isOver();
+    }
+
+
+    /**
+     * Appends the journal of a finished game to the file named by the game.journal system property.
+     * Nothing is written when the property is not set.
+     * @param journal The moves of the game.
+     * @param game The game in its final state.
+     */
+    private static void saveJournal(ReplayJournal journal, Game game) {
+        String file = System.getProperty(JOURNAL_PROPERTY);
+        if (file == null) {
+            return;
+        }
+        journal.finish(game);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            journal.writeTo(out);
+        } catch (IOException e) {
+            System.out.println(ANSI_RED + "Could not save the game journal: " + e.getMessage() + ANSI_RESET);
+        }
+    }
+
+
+    /**
+     * Restores the game saved in the file named by the game.snapshot system property.
+     * @return The saved game, or null if the property is not set, there is no saved game or it cannot be read.
+     */
+    private static Game loadSnapshot() {
+        String file = System.getProperty(SNAPSHOT_PROPERTY);
+        if (file == null || !Files.exists(Paths.get(file))) {
+            return null;
+        }
+        try {
+            return GameSnapshot.load(Paths.get(file));
+        } catch (IOException | RuntimeException e) {
+            System.out.println(ANSI_RED + "Could not load the saved game: " + e.getMessage() + ANSI_RESET);
+            return null;
+        }
+    }
+
+
+    /**
+     * Saves the game to the file named by the game.snapshot system property.
+     * Nothing is written when the property is not set.
+     * @param game The game to save.
+     */
+    private static void saveSnapshot(Game game) {
+        String file = System.getProperty(SNAPSHOT_PROPERTY);
+        if (file == null) {
+            return;
+        }
+        try {
+            GameSnapshot.save(game, Paths.get(file));
+        } catch (IOException e) {
+            System.out.println(ANSI_RED + "Could not save the game: " + e.getMessage() + ANSI_RESET);
+        }
+    }
+
+
+    /**
+     * Removes the saved game once it is over, so the next start begins a new game.
+     */
+    private static void deleteSnapshot() {
+        String file = System.getProperty(SNAPSHOT_PROPERTY);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(file));
+        } catch (IOException e) {
+            System.out.println(ANSI_RED + "Could not remove the saved game: " + e.getMessage() + ANSI_RESET);
+        }
+    }
 }
 
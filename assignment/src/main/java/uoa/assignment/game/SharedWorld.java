@@ -0,0 +1,383 @@
+package uoa.assignment.game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+
+/**
+ * One map shared by many players and monsters that act concurrently from different threads.
+ * Moves follow the rules of {@link GameLogic}: stepping onto an empty cell moves, a player stepping
+ * onto a monster or a monster stepping onto a player attacks, anything else is blocked. Players do
+ * not attack each other, and a dead player leaves an "x" like a dead monster does.
+ *
+ * The map is split into square regions of 2^REGION_BITS cells per side, and every region is guarded
+ * by one of a fixed set of lock stripes. A move locks the stripes of its source and target cells in
+ * stripe order, so moves in different regions run in parallel, two actors can never claim the same
+ * cell and no two moves can deadlock. Each stripe also owns the occupancy index of its cells.
+ *
+ * Each actor must be driven by one thread at a time. A character's health and random source are only
+ * touched while the stripe of its cell is held, so attacks on a moving character are serialised with
+ * its own move. The world is headless: it reports no events.
+ */
+public class SharedWorld {
+
+    private static final int REGION_BITS = 3; // Regions of 8x8 cells
+    private static final int STRIPES_PER_CORE = 16;
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+
+    private final ByteGrid grid;
+    private final GameCharacter[] characters; // Players first, then monsters
+    private final CharacterStore store;
+    private final int players;
+    private final int regionsPerRow;
+    private final int stripeMask;
+    private final Object[] locks;             // One lock per stripe
+    private final OccupancyIndex[] occupancy; // Cell -> character index, one index per stripe
+    private final AtomicInteger livingPlayers;
+    private final AtomicInteger livingMonsters;
+    private final LongAdder moves = new LongAdder();
+
+
+    /**
+     * Creates a shared world with players and monsters scattered over the map.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param players The number of players.
+     * @param monsters The number of monsters.
+     * @param difficulty The difficulty level (1-4).
+     * @param seed The seed of the placement and of every character's rolls.
+     * @throws IllegalArgumentException if the size, counts or difficulty are invalid,
+     *                                  or the characters would fill more than half of the map.
+     */
+    public SharedWorld(int height, int width, int players, int monsters, int difficulty, long seed) {
+        if (players < 1 || monsters < 0) {
+            throw new IllegalArgumentException("A shared world needs at least one player and no negative monster count.");
+        }
+        if (difficulty < 1 || difficulty > 4) {
+            throw new IllegalArgumentException("Invalid difficulty level. Please choose a difficulty between 1 and 4.");
+        }
+        this.grid = new ByteGrid(height, width);
+        if ((long) players + monsters > (long) height * width / 2) {
+            throw new IllegalArgumentException("Too many characters for a " + height + "x" + width + " map.");
+        }
+        this.players = players;
+        this.characters = new GameCharacter[players + monsters];
+        this.store = new CharacterStore(characters.length);
+        this.livingPlayers = new AtomicInteger(players);
+        this.livingMonsters = new AtomicInteger(monsters);
+
+        this.regionsPerRow = ((width - 1) >> REGION_BITS) + 1;
+        long regions = (long) (((height - 1) >> REGION_BITS) + 1) * regionsPerRow;
+        int wanted = Runtime.getRuntime().availableProcessors() * STRIPES_PER_CORE;
+        int stripes = Integer.highestOneBit((int) Math.max(1, Math.min(regions, wanted)));
+        this.stripeMask = stripes - 1;
+        this.locks = new Object[stripes];
+        this.occupancy = new OccupancyIndex[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+            occupancy[i] = new OccupancyIndex(characters.length / stripes + 1);
+        }
+        placeCharacters(difficulty, new GameRandom(seed));
+    }
+
+
+    /**
+     * Returns the number of rows of the map.
+     * @return The map height.
+     */
+    public int getHeight() {
+        return grid.getHeight();
+    }
+
+
+    /**
+     * Returns the number of columns of the map.
+     * @return The map width.
+     */
+    public int getWidth() {
+        return grid.getWidth();
+    }
+
+
+    /**
+     * Returns the content of a cell. The read takes no lock, so a cell that is being changed by
+     * another thread may be seen before or after the change.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return One of the {@link Cell} constants.
+     */
+    public byte getCell(int row, int column) {
+        return grid.get(row, column);
+    }
+
+
+    /**
+     * Returns the characters of the world: the players first, then the monsters.
+     * @return The characters, indexed by actor id.
+     */
+    public GameCharacter[] getCharacters() {
+        return characters;
+    }
+
+
+    /**
+     * Returns the struct-of-arrays store that holds the characters' state.
+     * @return The character store, indexed by actor id.
+     */
+    public CharacterStore getCharacterStore() {
+        return store;
+    }
+
+
+    /**
+     * Returns the number of players; actor ids below it are players.
+     * @return The player count.
+     */
+    public int getPlayerCount() {
+        return players;
+    }
+
+
+    /**
+     * Returns the number of players with health left.
+     * @return The living player count.
+     */
+    public int getLivingPlayers() {
+        return livingPlayers.get();
+    }
+
+
+    /**
+     * Returns the number of monsters with health left.
+     * @return The living monster count.
+     */
+    public int getLivingMonsters() {
+        return livingMonsters.get();
+    }
+
+
+    /**
+     * Returns whether the game in this world is over, i.e. every player or every monster is dead.
+     * @return true if the game is over.
+     */
+    public boolean isOver() {
+        return livingPlayers.get() == 0 || livingMonsters.get() == 0;
+    }
+
+
+    /**
+     * Returns the number of valid moves made by all actors.
+     * @return The move count.
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+
+    /**
+     * Makes one move for one actor. Only one thread may drive a given actor at a time.
+     * @param id The actor id.
+     * @param direction The direction to move in.
+     * @return true if the direction was valid and the actor was alive, false otherwise.
+     */
+    public boolean act(int id, String direction) {
+        int move = moveIndex(direction);
+        if (move < 0 || store.health[id] <= 0) {
+            return false;
+        }
+        GameCharacter actor = characters[id];
+        int row = actor.row;
+        int column = actor.column;
+        int toRow = row + ROW_STEPS[move];
+        int toColumn = column + COLUMN_STEPS[move];
+        moves.increment();
+        if (toRow < 0 || toRow >= grid.getHeight() || toColumn < 0 || toColumn >= grid.getWidth()) {
+            return true; // Blocked by the edge, no cell to lock
+        }
+        int from = stripe(row, column);
+        int to = stripe(toRow, toColumn);
+        // Always lock the lower stripe first so two moves never wait on each other
+        synchronized (locks[Math.min(from, to)]) {
+            synchronized (locks[Math.max(from, to)]) {
+                if (store.health[id] > 0) { // The actor may have been killed while waiting
+                    step(id, actor, from, to, toRow, toColumn);
+                }
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Plays rounds on several threads until the rounds are done or the game is over.
+     * Every thread drives its own share of the actors; living actors move in random directions.
+     * @param threads The number of threads.
+     * @param rounds The number of rounds each actor plays.
+     * @param seed The seed of the moves.
+     * @return The number of valid moves made.
+     * @throws IllegalArgumentException if the thread count is not positive.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public long play(int threads, int rounds, long seed) throws InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        long before = getMoves();
+        GameRandom random = new GameRandom(seed);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            GameRandom moveRandom = random.split();
+            workers[t] = new Thread(() -> playShare(first, threads, rounds, moveRandom), "shared-world-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return getMoves() - before;
+    }
+
+
+    /**
+     * Plays the rounds of every threads-th actor, starting at first.
+     * @param first The first actor id of this share.
+     * @param stride The number of shares.
+     * @param rounds The number of rounds.
+     * @param random The random source of the moves of this share.
+     */
+    private void playShare(int first, int stride, int rounds, GameRandom random) {
+        for (int round = 0; round < rounds && !isOver(); round++) {
+            for (int id = first; id < characters.length; id += stride) {
+                act(id, MOVES[random.nextInt(MOVES.length)]);
+            }
+        }
+    }
+
+
+    /**
+     * Applies a move while the stripes of the source and target cell are held.
+     * @param id The actor id.
+     * @param actor The moving character.
+     * @param from The stripe of the source cell.
+     * @param to The stripe of the target cell.
+     * @param toRow The row of the target cell.
+     * @param toColumn The column of the target cell.
+     */
+    private void step(int id, GameCharacter actor, int from, int to, int toRow, int toColumn) {
+        boolean isPlayer = id < players;
+        byte target = grid.get(toRow, toColumn);
+        if (target == Cell.EMPTY) {
+            grid.set(toRow, toColumn, isPlayer ? Cell.PLAYER : Cell.MONSTER);
+            grid.set(actor.row, actor.column, Cell.EMPTY);
+            occupancy[from].remove(cellKey(actor.row, actor.column));
+            occupancy[to].put(cellKey(toRow, toColumn), id);
+            actor.row = toRow;
+            actor.column = toColumn;
+            store.row[id] = toRow;
+            store.column[id] = toColumn;
+        } else if (isPlayer ? target == Cell.MONSTER : target == Cell.PLAYER) {
+            attack(actor, occupancy[to].get(cellKey(toRow, toColumn)), toRow, toColumn);
+        }
+        // Dead characters, terrain, monsters meeting monsters and players meeting players block the move
+    }
+
+
+    /**
+     * Lets an actor attack the character on a neighbouring cell, whose stripe is held.
+     * @param attacker The attacking character.
+     * @param defenderId The id of the character on the target cell.
+     * @param row The row of the target cell.
+     * @param column The column of the target cell.
+     */
+    private void attack(GameCharacter attacker, int defenderId, int row, int column) {
+        if (defenderId == OccupancyIndex.NONE) {
+            return;
+        }
+        GameCharacter defender = characters[defenderId];
+        attacker.hurtCharacter(defender);
+        if (defender.getHealth() <= 0) {
+            grid.set(row, column, Cell.DEAD);
+            (defenderId < players ? livingPlayers : livingMonsters).decrementAndGet();
+        }
+    }
+
+
+    /**
+     * Creates the characters and scatters them over empty cells.
+     * Every character gets its own random source, so concurrent rolls never share state.
+     * @param difficulty The difficulty level.
+     * @param random The random source of the placement.
+     */
+    private void placeCharacters(int difficulty, GameRandom random) {
+        for (int i = 0; i < characters.length; i++) {
+            GameCharacter character;
+            if (i < players) {
+                Player player = new Player("Player" + (i + 1));
+                player.setDifficulty(difficulty);
+                character = player;
+            } else {
+                Monster monster = new Monster();
+                monster.setName("Monster" + (i - players + 1));
+                monster.setDifficulty(difficulty);
+                character = monster;
+            }
+            character.setRandom(random.split());
+            int row;
+            int column;
+            do {
+                row = random.nextInt(grid.getHeight());
+                column = random.nextInt(grid.getWidth());
+            } while (grid.get(row, column) != Cell.EMPTY);
+            grid.set(row, column, i < players ? Cell.PLAYER : Cell.MONSTER);
+            character.row = row;
+            character.column = column;
+            character.bind(store, i);
+            occupancy[stripe(row, column)].put(cellKey(row, column), i);
+            characters[i] = character;
+        }
+    }
+
+
+    /**
+     * Returns the lock stripe that guards a cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return The stripe index.
+     */
+    private int stripe(int row, int column) {
+        long region = (long) (row >> REGION_BITS) * regionsPerRow + (column >> REGION_BITS);
+        return (int) GameRandom.mix64(region) & stripeMask;
+    }
+
+
+    /**
+     * Returns the flat key of a cell, as used by the occupancy indices.
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return row * width + column.
+     */
+    private long cellKey(int row, int column) {
+        return (long) row * grid.getWidth() + column;
+    }
+
+
+    /**
+     * Converts a direction into an index of the step tables.
+     * @param direction The direction.
+     * @return The index, or -1 if the direction is not valid.
+     */
+    private static int moveIndex(String direction) {
+        for (int i = 0; i < MOVES.length; i++) {
+            if (MOVES[i].equals(direction)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
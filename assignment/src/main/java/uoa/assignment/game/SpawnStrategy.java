@@ -0,0 +1,15 @@
+package uoa.assignment.game;
+
+/**
+ * Strategies for placing monsters when a map is created.
+ * The player always starts in the bottom-right corner. On maps with terrain, every character starts
+ * on the open cell nearest to where its strategy puts it.
+ */
+public enum SpawnStrategy {
+    /** The original layout: monsters in the top-right, bottom-left and top-left corners (at most three). */
+    CORNERS,
+    /** Monsters on random empty cells chosen from the map seed. */
+    SCATTER,
+    /** Monsters evenly spaced across the map in row-major order. */
+    SPREAD
+}
@@ -0,0 +1,556 @@
+package uoa.assignment.game;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded generator of walls and water.
+ * Every random choice is a hash of the seed and a position, never a draw from a shared stream, so the map
+ * is split into stripes of rows that are generated in parallel and the result does not depend on the
+ * number of threads. All open cells of a generated map are connected.
+ *
+ * Rooms are placed one per sector of 16 by 16 cells and joined to the rooms to their right and below by
+ * corridors. Caves are grown by a cellular automaton that works on 64 cells at a time: walls and lakes
+ * are kept as bitsets, like in a {@link BitboardGrid}, and a cell becomes wall when at least five of the
+ * nine cells around and including it are walls. Open rows and columns every 32 cells join the caves, and
+ * cave pockets the lattice does not reach are filled in.
+ */
+public class TerrainGenerator {
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final long WALL_SALT = 0x5DEECE66DL;
+    private static final long LAKE_SALT = 0x2545F4914F6CDD1DL;
+
+    private static final int SECTOR = 16;                       // Rooms: one room per 16 by 16 cells
+    private static final int MIN_ROOM = 4;                      // Rooms are 4 to 15 cells per side
+    private static final int POND_ODDS = 6;                     // One room in six holds a pond
+    private static final int CAVE_STEPS = 4;                    // Smoothing steps of the cellular automaton
+    private static final int LATTICE = 32;                      // Caves: rows and columns kept open every 32 cells
+    private static final long LATTICE_COLUMNS = 1L | 1L << 32;  // The lattice columns within a word
+    private static final int STRIPE_ROWS = 64;                  // Rows per parallel task
+    private static final long PARALLEL_CELLS = 1L << 16;        // Smaller maps are generated on the calling thread
+
+    private final TerrainStyle style;
+    private final long seed;
+
+
+    /**
+     * Creates a generator.
+     * @param style The kind of terrain.
+     * @param seed The seed; equal seeds give equal maps.
+     */
+    public TerrainGenerator(TerrainStyle style, long seed) {
+        this.style = style;
+        this.seed = seed;
+    }
+
+
+    /**
+     * Overwrites every cell of a grid with terrain or {@link Cell#EMPTY}.
+     * Stripes are generated in parallel for dense grids of more than 65536 cells; other grids are
+     * written from the calling thread, because their writes are not safe to run concurrently.
+     * @param grid The grid to fill.
+     */
+    public void generate(Grid grid) {
+        switch (style) {
+            case ROOMS:
+                generateRooms(grid);
+                break;
+            case CAVES:
+                generateCaves(grid);
+                break;
+            default:
+                grid.fill(Cell.EMPTY);
+        }
+    }
+
+
+    /**
+     * Fills a grid with rooms and corridors, one stripe of sectors per task.
+     * Each task draws its rooms and ponds, then every corridor that crosses its rows.
+     * @param grid The grid to fill.
+     */
+    private void generateRooms(Grid grid) {
+        int height = grid.getHeight();
+        int width = grid.getWidth();
+        int sectorRows = (height + SECTOR - 1) / SECTOR;
+        int sectorColumns = (width + SECTOR - 1) / SECTOR;
+        boolean parallel = (long) height * width >= PARALLEL_CELLS;
+        // Five values per sector: top row, left column, rows, columns and 1 if the room holds a pond
+        int[] rooms = new int[sectorRows * sectorColumns * 5];
+        run(sectorRows, parallel, sectorRow -> {
+            for (int sectorColumn = 0; sectorColumn < sectorColumns; sectorColumn++) {
+                room(sectorRow, sectorColumn, height, width, rooms, (sectorRow * sectorColumns + sectorColumn) * 5);
+            }
+        });
+        run(sectorRows, canWriteInParallel(grid), sectorRow -> {
+            int top = sectorRow * SECTOR;
+            int bottom = Math.min(height, top + SECTOR);
+            byte[] cells = new byte[(bottom - top) * width];
+            Arrays.fill(cells, Cell.WALL);
+            int first = sectorRow * sectorColumns * 5;
+            for (int room = first; room < first + sectorColumns * 5; room += 5) {
+                int roomTop = rooms[room];
+                int roomLeft = rooms[room + 1];
+                int roomBottom = roomTop + rooms[room + 2];
+                int roomRight = roomLeft + rooms[room + 3];
+                carve(cells, top, bottom, width, roomTop, roomLeft, roomBottom, roomRight, Cell.EMPTY);
+                if (rooms[room + 4] != 0 && rooms[room + 2] >= 5 && rooms[room + 3] >= 5) {
+                    carve(cells, top, bottom, width, roomTop + 2, roomLeft + 2, roomBottom - 2, roomRight - 2, Cell.WATER);
+                }
+            }
+            int stride = sectorColumns * 5;
+            for (int room = first; room < first + stride; room += 5) {
+                if (room + 5 < first + stride) {
+                    corridor(cells, top, bottom, width, rooms, room, room + 5);
+                }
+                if (sectorRow > 0) {
+                    corridor(cells, top, bottom, width, rooms, room - stride, room);
+                }
+                if (sectorRow + 1 < sectorRows) {
+                    corridor(cells, top, bottom, width, rooms, room, room + stride);
+                }
+            }
+            for (int row = top; row < bottom; row++) {
+                writeRow(grid, row, cells, (row - top) * width);
+            }
+        });
+    }
+
+
+    /**
+     * Computes the room of a sector from the seed.
+     * Rooms keep a wall on the top and left side of their sector, so rooms of neighbouring sectors never touch.
+     * @param sectorRow The sector row.
+     * @param sectorColumn The sector column.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param rooms Receives the top row, left column, rows, columns and 1 if the room holds a pond.
+     * @param offset Where the values of the room start.
+     */
+    private void room(int sectorRow, int sectorColumn, int height, int width, int[] rooms, int offset) {
+        long bits = hash(seed, (long) sectorRow << 32 | sectorColumn);
+        int sectorTop = sectorRow * SECTOR;
+        int sectorLeft = sectorColumn * SECTOR;
+        int sectorHeight = Math.min(SECTOR, height - sectorTop);
+        int sectorWidth = Math.min(SECTOR, width - sectorLeft);
+        int rowMargin = sectorHeight > 1 ? 1 : 0;
+        int columnMargin = sectorWidth > 1 ? 1 : 0;
+        int rows = Math.min(sectorHeight - rowMargin, MIN_ROOM + (int) ((bits & 0xFF) % (SECTOR - MIN_ROOM)));
+        int columns = Math.min(sectorWidth - columnMargin, MIN_ROOM + (int) ((bits >>> 8 & 0xFF) % (SECTOR - MIN_ROOM)));
+        rooms[offset] = sectorTop + rowMargin + (int) ((bits >>> 16 & 0xFF) % (sectorHeight - rowMargin - rows + 1));
+        rooms[offset + 1] = sectorLeft + columnMargin + (int) ((bits >>> 24 & 0xFF) % (sectorWidth - columnMargin - columns + 1));
+        rooms[offset + 2] = rows;
+        rooms[offset + 3] = columns;
+        rooms[offset + 4] = (bits >>> 32) % POND_ODDS == 0 ? 1 : 0;
+    }
+
+
+    /**
+     * Carves an L-shaped corridor between the centres of two rooms: along the column of the first
+     * centre to the row of the second, then along that row. Only the part within the stripe is drawn.
+     * @param cells The cells of the stripe.
+     * @param top The first row of the stripe.
+     * @param bottom The row after the stripe.
+     * @param width The width of the map.
+     * @param rooms The rooms of every sector.
+     * @param from Where the values of the room the corridor starts in begin.
+     * @param to Where the values of the room the corridor ends in begin.
+     */
+    private static void corridor(byte[] cells, int top, int bottom, int width, int[] rooms, int from, int to) {
+        int fromRow = rooms[from] + rooms[from + 2] / 2;
+        int fromColumn = rooms[from + 1] + rooms[from + 3] / 2;
+        int toRow = rooms[to] + rooms[to + 2] / 2;
+        int toColumn = rooms[to + 1] + rooms[to + 3] / 2;
+        carve(cells, top, bottom, width, Math.min(fromRow, toRow), fromColumn, Math.max(fromRow, toRow) + 1, fromColumn + 1,
+                Cell.EMPTY);
+        carve(cells, top, bottom, width, toRow, Math.min(fromColumn, toColumn), toRow + 1, Math.max(fromColumn, toColumn) + 1,
+                Cell.EMPTY);
+    }
+
+
+    /**
+     * Sets a rectangle of cells, clipped to the rows of a stripe.
+     * @param cells The cells of the stripe.
+     * @param top The first row of the stripe.
+     * @param bottom The row after the stripe.
+     * @param width The width of the map.
+     * @param fromRow The first row of the rectangle.
+     * @param fromColumn The first column of the rectangle.
+     * @param toRow The row after the rectangle.
+     * @param toColumn The column after the rectangle.
+     * @param cell The value to set.
+     */
+    private static void carve(byte[] cells, int top, int bottom, int width, int fromRow, int fromColumn, int toRow, int toColumn,
+                              byte cell) {
+        for (int row = Math.max(top, fromRow); row < Math.min(bottom, toRow); row++) {
+            int offset = (row - top) * width;
+            Arrays.fill(cells, offset + fromColumn, offset + toColumn, cell);
+        }
+    }
+
+
+    /**
+     * Fills a grid with caves and lakes.
+     * Walls and lakes are seeded with noise and smoothed separately; water is kept where a lake lies in open cave.
+     * @param grid The grid to fill.
+     */
+    private void generateCaves(Grid grid) {
+        int height = grid.getHeight();
+        int width = grid.getWidth();
+        int words = (width + 63) >>> 6;
+        long lastWordMask = -1L >>> (-width & 63);
+        int stripes = (height + STRIPE_ROWS - 1) / STRIPE_ROWS;
+        boolean parallel = (long) height * width >= PARALLEL_CELLS;
+        long[] walls = new long[height * words];
+        long[] lakes = new long[height * words];
+        long[] spare = new long[height * words];
+
+        // The outside of the map counts as wall, so caves do not open onto the edge
+        run(stripes, parallel, stripe -> noise(walls, stripe, height, words, lastWordMask, WALL_SALT, true));
+        run(stripes, parallel, stripe -> noise(lakes, stripe, height, words, lastWordMask, LAKE_SALT, false));
+        long[] wallsDone = smooth(walls, spare, stripes, parallel, height, words, lastWordMask, -1L);
+        long[] lakesDone = smooth(lakes, wallsDone == walls ? spare : walls, stripes, parallel, height, words, lastWordMask, 0L);
+
+        int bands = (height + LATTICE - 1) / LATTICE;
+        run(bands, parallel, band -> latticeAndPockets(wallsDone, lakesDone, band, height, words, lastWordMask));
+        run(stripes, canWriteInParallel(grid), stripe -> {
+            // Dense grids are written in place, others through a row buffer
+            boolean direct = grid instanceof ByteGrid;
+            byte[] cells = direct ? ((ByteGrid) grid).cells : new byte[width];
+            int bottom = Math.min(height, (stripe + 1) * STRIPE_ROWS);
+            for (int row = stripe * STRIPE_ROWS; row < bottom; row++) {
+                int offset = direct ? row * width : 0;
+                for (int word = 0; word < words; word++) {
+                    long wall = wallsDone[row * words + word];
+                    long water = lakesDone[row * words + word];
+                    int first = offset + (word << 6);
+                    int count = Math.min(64, width - (word << 6));
+                    // Walls and water never share a cell, so the two values can be added without branches
+                    for (int bit = 0; bit < count; bit++) {
+                        cells[first + bit] = (byte) ((int) (wall >>> bit & 1) * Cell.WALL + (int) (water >>> bit & 1) * Cell.WATER);
+                    }
+                }
+                if (!direct) {
+                    writeRow(grid, row, cells, 0);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Seeds the rows of a stripe with noise: walls at a density of 7/16, lakes at 3/8.
+     * @param plane The bitset to seed.
+     * @param stripe The stripe.
+     * @param height The height of the map.
+     * @param words The number of words per row.
+     * @param lastWordMask The valid bits of the last word of a row.
+     * @param salt Separates the noise of walls and lakes.
+     * @param dense Whether to seed walls rather than lakes; walls also fill the padding past the last column.
+     */
+    private void noise(long[] plane, int stripe, int height, int words, long lastWordMask, long salt, boolean dense) {
+        long planeSeed = seed ^ salt;
+        int bottom = Math.min(height, (stripe + 1) * STRIPE_ROWS);
+        for (int index = stripe * STRIPE_ROWS * words; index < bottom * words; index++) {
+            long key = 4L * index;
+            long a = hash(planeSeed, key);
+            long b = hash(planeSeed, key + 1);
+            long c = hash(planeSeed, key + 2);
+            long bits = dense ? a & (b | c | hash(planeSeed, key + 3)) : a & (b | c);
+            if (index % words == words - 1) {
+                bits = dense ? bits | ~lastWordMask : bits & lastWordMask;
+            }
+            plane[index] = bits;
+        }
+    }
+
+
+    /**
+     * Runs the smoothing steps of the cellular automaton on a bitset, one parallel pass per step.
+     * @param plane The seeded bitset.
+     * @param spare A bitset of the same size to write the steps into.
+     * @param stripes The number of stripes.
+     * @param parallel Whether to run the stripes in parallel.
+     * @param height The height of the map.
+     * @param words The number of words per row.
+     * @param lastWordMask The valid bits of the last word of a row.
+     * @param outside The value of the cells beyond the map: all ones for walls, zero for lakes.
+     * @return The bitset holding the result, either plane or spare.
+     */
+    private static long[] smooth(long[] plane, long[] spare, int stripes, boolean parallel, int height, int words,
+                                 long lastWordMask, long outside) {
+        long[] from = plane;
+        long[] to = spare;
+        for (int step = 0; step < CAVE_STEPS; step++) {
+            long[] source = from;
+            long[] target = to;
+            run(stripes, parallel, stripe -> smoothStripe(source, target, stripe, height, words, lastWordMask, outside));
+            to = from;
+            from = target;
+        }
+        return from;
+    }
+
+
+    /**
+     * Runs one smoothing step on the rows of a stripe.
+     * The nine cells around each cell are counted bit-parallel: each row is first summed with its left and
+     * right neighbours into two bit planes, then three rows are added with a carry-save adder into a
+     * four-bit count, and the cell becomes wall when the count is five or more.
+     * @param source The bitset before the step.
+     * @param target The bitset after the step.
+     * @param stripe The stripe.
+     * @param height The height of the map.
+     * @param words The number of words per row.
+     * @param lastWordMask The valid bits of the last word of a row.
+     * @param outside The value of the cells beyond the map.
+     */
+    private static void smoothStripe(long[] source, long[] target, int stripe, int height, int words, long lastWordMask,
+                                     long outside) {
+        int top = stripe * STRIPE_ROWS;
+        int bottom = Math.min(height, top + STRIPE_ROWS);
+        // Sums of three neighbouring cells in a row, low and high bit, for the rows above, at and below the current row
+        long[] aboveLow = new long[words];
+        long[] aboveHigh = new long[words];
+        long[] atLow = new long[words];
+        long[] atHigh = new long[words];
+        long[] belowLow = new long[words];
+        long[] belowHigh = new long[words];
+        rowSums(source, top - 1, height, words, outside, aboveLow, aboveHigh);
+        rowSums(source, top, height, words, outside, atLow, atHigh);
+        for (int row = top; row < bottom; row++) {
+            rowSums(source, row + 1, height, words, outside, belowLow, belowHigh);
+            for (int word = 0; word < words; word++) {
+                long a0 = aboveLow[word];
+                long b0 = atLow[word];
+                long c0 = belowLow[word];
+                long a1 = aboveHigh[word];
+                long b1 = atHigh[word];
+                long c1 = belowHigh[word];
+                long ones = a0 ^ b0 ^ c0;
+                long carry = a0 & b0 | c0 & (a0 ^ b0);
+                long twos = a1 ^ b1 ^ c1;
+                long fours = a1 & b1 | c1 & (a1 ^ b1);
+                long twosCarry = twos & carry;
+                twos ^= carry;
+                long eights = fours & twosCarry;
+                fours ^= twosCarry;
+                long wall = eights | fours & (twos | ones);
+                if (word == words - 1) {
+                    wall = wall & lastWordMask | outside & ~lastWordMask;
+                }
+                target[row * words + word] = wall;
+            }
+            long[] low = aboveLow;
+            long[] high = aboveHigh;
+            aboveLow = atLow;
+            aboveHigh = atHigh;
+            atLow = belowLow;
+            atHigh = belowHigh;
+            belowLow = low;
+            belowHigh = high;
+        }
+    }
+
+
+    /**
+     * Adds every cell of a row to its left and right neighbour, as two bit planes.
+     * @param plane The bitset.
+     * @param row The row, which may lie beyond the map.
+     * @param height The height of the map.
+     * @param words The number of words per row.
+     * @param outside The value of the cells beyond the map.
+     * @param low Receives the low bit of each sum.
+     * @param high Receives the high bit of each sum.
+     */
+    private static void rowSums(long[] plane, int row, int height, int words, long outside, long[] low, long[] high) {
+        if (row < 0 || row >= height) {
+            Arrays.fill(low, outside);
+            Arrays.fill(high, outside);
+            return;
+        }
+        int base = row * words;
+        for (int word = 0; word < words; word++) {
+            long centre = plane[base + word];
+            long left = centre << 1 | (word > 0 ? plane[base + word - 1] : outside) >>> 63;
+            long right = centre >>> 1 | (word < words - 1 ? plane[base + word + 1] : outside) << 63;
+            low[word] = left ^ centre ^ right;
+            high[word] = left & centre | right & (left ^ centre);
+        }
+    }
+
+
+    /**
+     * Opens the lattice row at the top of a band and the lattice columns within it, then fills in the cells
+     * of the band that cannot reach the lattice. Any path out of the band crosses the lattice, which is
+     * connected, so a flood fill within the band decides the connectivity of every cell.
+     * @param walls The smoothed walls.
+     * @param lakes The smoothed lakes; cleared where there is wall.
+     * @param band The band of rows from one lattice row to the next.
+     * @param height The height of the map.
+     * @param words The number of words per row.
+     * @param lastWordMask The valid bits of the last word of a row.
+     */
+    private static void latticeAndPockets(long[] walls, long[] lakes, int band, int height, int words, long lastWordMask) {
+        int top = band * LATTICE;
+        int bottom = Math.min(height, top + LATTICE);
+        for (int row = top; row < bottom; row++) {
+            for (int word = 0; word < words; word++) {
+                int index = row * words + word;
+                long mask = word == words - 1 ? lastWordMask : -1L;
+                long keep = row == top ? 0 : ~LATTICE_COLUMNS;
+                walls[index] &= keep & mask;
+                lakes[index] &= keep & mask & ~walls[index];
+            }
+        }
+
+        // Seed the flood with the open cells next to the lattice rows above and below the band
+        int first = top + 1;
+        if (first >= bottom) {
+            return;
+        }
+        int rows = bottom - first;
+        long[] open = new long[rows * words];
+        long[] reached = new long[rows * words];
+        for (int row = first; row < bottom; row++) {
+            for (int word = 0; word < words; word++) {
+                int index = (row - first) * words + word;
+                long mask = word == words - 1 ? lastWordMask : -1L;
+                open[index] = ~(walls[row * words + word] | lakes[row * words + word]) & mask;
+                long seeds = LATTICE_COLUMNS;
+                if (word < words - 1) {
+                    seeds |= 1L << 63; // Next to the lattice column at the start of the next word
+                }
+                if (row == first || row == bottom - 1 && bottom < height) {
+                    seeds = -1L;
+                }
+                reached[index] = open[index] & seeds;
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < rows; i++) {
+                    int row = pass == 0 ? i : rows - 1 - i;
+                    for (int word = 0; word < words; word++) {
+                        int index = row * words + word;
+                        long vertical = (row > 0 ? reached[index - words] : 0) | (row < rows - 1 ? reached[index + words] : 0);
+                        long before = reached[index];
+                        long spread = before | vertical & open[index];
+                        long previous;
+                        do {
+                            previous = spread;
+                            spread |= (spread << 1 | spread >>> 1) & open[index];
+                        } while (spread != previous);
+                        if (spread != before) {
+                            reached[index] = spread;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        for (int row = first; row < bottom; row++) {
+            for (int word = 0; word < words; word++) {
+                int index = (row - first) * words + word;
+                walls[row * words + word] |= open[index] & ~reached[index];
+            }
+        }
+    }
+
+
+    /**
+     * Writes one row of cells into a grid.
+     * @param grid The grid.
+     * @param row The row.
+     * @param cells The cells, starting at offset.
+     * @param offset The index of the first cell of the row.
+     */
+    private static void writeRow(Grid grid, int row, byte[] cells, int offset) {
+        int width = grid.getWidth();
+        if (grid instanceof ByteGrid) {
+            System.arraycopy(cells, offset, ((ByteGrid) grid).cells, row * width, width);
+            return;
+        }
+        for (int column = 0; column < width; column++) {
+            grid.set(row, column, cells[offset + column]);
+        }
+    }
+
+
+    /**
+     * Checks whether the rows of a grid can be written from several threads at once.
+     * @param grid The grid.
+     * @return true for large dense grids, whose rows do not share storage.
+     */
+    private static boolean canWriteInParallel(Grid grid) {
+        return (grid instanceof ByteGrid || grid instanceof BitboardGrid)
+                && (long) grid.getHeight() * grid.getWidth() >= PARALLEL_CELLS;
+    }
+
+
+    /**
+     * Runs a task for every stripe, on the common ForkJoin pool or the calling thread.
+     * @param stripes The number of stripes.
+     * @param parallel Whether to run the stripes in parallel.
+     * @param task The task, given the stripe index.
+     */
+    private static void run(int stripes, boolean parallel, IntConsumer task) {
+        IntStream range = IntStream.range(0, stripes);
+        (parallel ? range.parallel() : range).forEach(task);
+    }
+
+
+    /**
+     * Hashes a seed and a position into 64 random bits.
+     * @param seed The seed.
+     * @param position The position, e.g. a cell index.
+     * @return The random bits.
+     */
+    private static long hash(long seed, long position) {
+        return GameRandom.mix64(seed + position * GOLDEN);
+    }
+
+
+    /**
+     * Generates a map from the command line and prints the time it took, and the map itself if it is small.
+     * Arguments: height width [OPEN|ROOMS|CAVES] [seed]
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: TerrainGenerator height width [OPEN|ROOMS|CAVES] [seed]");
+            return;
+        }
+        int height = Integer.parseInt(args[0]);
+        int width = Integer.parseInt(args[1]);
+        TerrainStyle style = args.length > 2 ? TerrainStyle.valueOf(args[2].toUpperCase()) : TerrainStyle.CAVES;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        ByteGrid grid = new ByteGrid(height, width);
+        TerrainGenerator generator = new TerrainGenerator(style, seed);
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            generator.generate(grid);
+            System.out.printf("%s %dx%d generated in %.0f ms%n", style, height, width, (System.nanoTime() - start) / 1e6);
+        }
+        long[] counts = new long[Cell.COUNT];
+        for (byte cell : grid.cells) {
+            counts[cell]++;
+        }
+        System.out.printf("%.1f%% wall, %.1f%% water%n", 100.0 * counts[Cell.WALL] / grid.cells.length,
+                100.0 * counts[Cell.WATER] / grid.cells.length);
+        if (height <= 60 && width <= 120) {
+            StringBuilder text = new StringBuilder();
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    text.append(Cell.symbol(grid.get(row, column)));
+                }
+                text.append(System.lineSeparator());
+            }
+            System.out.print(text);
+        }
+    }
+}
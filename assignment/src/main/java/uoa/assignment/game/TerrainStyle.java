@@ -0,0 +1,14 @@
+package uoa.assignment.game;
+
+/**
+ * Kinds of terrain a map can be generated with, see {@link TerrainGenerator}.
+ * Characters spawn on the open cell nearest to where the spawn strategy puts them.
+ */
+public enum TerrainStyle {
+    /** The original layout: an open field without walls or water. */
+    OPEN,
+    /** Rectangular rooms joined by corridors, some of them flooded in the middle. */
+    ROOMS,
+    /** Winding caves grown by a cellular automaton, with lakes. */
+    CAVES
+}
@@ -0,0 +1,154 @@
+package uoa.assignment.game;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Durations of the ticks of a {@link RealTimeGame}.
+ * Durations are counted in power-of-two buckets of microseconds, so recording costs a few
+ * instructions and percentiles are exact to within a factor of two. The tick thread is the only
+ * writer; any thread may read the metrics while the game runs.
+ */
+public class TickMetrics {
+
+    private static final int BUCKETS = 32; // Bucket b holds durations below 2^b microseconds
+
+    private final long budgetNanos;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private volatile long ticks;
+    private volatile long overruns;
+    private volatile long skippedTicks;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+    private volatile long lastNanos;
+
+
+    /**
+     * Creates empty metrics.
+     * @param budgetNanos The time a tick may take before it counts as an overrun.
+     */
+    public TickMetrics(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+
+    /**
+     * Records the duration of one tick.
+     * @param nanos The time the tick took.
+     */
+    void record(long nanos) {
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos / 1000));
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        ticks = ticks + 1;
+        totalNanos = totalNanos + nanos;
+        lastNanos = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+        if (nanos > budgetNanos) {
+            overruns = overruns + 1;
+        }
+    }
+
+
+    /**
+     * Records ticks that were dropped because the game fell behind its schedule.
+     * @param count The number of dropped ticks.
+     */
+    void skip(long count) {
+        skippedTicks = skippedTicks + count;
+    }
+
+
+    /**
+     * Returns the time budget of one tick.
+     * @return The budget in nanoseconds.
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+
+    /**
+     * Returns the number of ticks run.
+     * @return The tick count.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+
+    /**
+     * Returns the number of ticks that took longer than the budget.
+     * @return The overrun count.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+
+    /**
+     * Returns the number of ticks dropped to catch up after overruns.
+     * @return The skipped tick count.
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+
+    /**
+     * Returns the duration of the last tick.
+     * @return The duration in nanoseconds.
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+
+    /**
+     * Returns the longest tick.
+     * @return The duration in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+
+    /**
+     * Returns the mean tick duration.
+     * @return The duration in nanoseconds, or 0 before the first tick.
+     */
+    public long getMeanNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+
+    /**
+     * Returns an upper bound of a tick duration percentile.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper edge of the bucket holding the percentile, in nanoseconds, or 0 before the first tick.
+     */
+    public long getPercentileNanos(double percentile) {
+        long count = ticks;
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                return b == 0 ? 1000 : Math.min(maxNanos, (1L << b) * 1000);
+            }
+        }
+        return maxNanos;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("ticks=%d overruns=%d skipped=%d mean=%.3f ms p99<=%.3f ms max=%.3f ms budget=%.3f ms",
+                getTicks(), getOverruns(), getSkippedTicks(), getMeanNanos() / 1e6,
+                getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6, budgetNanos / 1e6);
+    }
+}
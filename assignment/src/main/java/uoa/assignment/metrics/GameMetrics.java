@@ -0,0 +1,272 @@
+package uoa.assignment.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters and round latencies of every game played in this JVM.
+ * The game logic updates them directly with {@link LongAdder}s, so recording is lock-free and
+ * costs a few nanoseconds; starting the JVM with -Dgame.metrics=false turns the recording off entirely.
+ * The metrics can be read through JMX as uoa.assignment:type=GameMetrics, or dumped as text periodically.
+ */
+public final class GameMetrics implements GameMetricsMBean {
+
+    /** Whether the game logic records metrics; the JIT removes the recording calls when false. */
+    public static final boolean ENABLED = !"false".equals(System.getProperty("game.metrics"));
+
+    /** The JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "uoa.assignment:type=GameMetrics";
+
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder[] moves = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private final LongAdder invalidInputs = new LongAdder();
+    private final LongAdder blockedMoves = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deaths = new LongAdder();
+    private final LatencyHistogram roundLatency = new LatencyHistogram();
+
+
+    private GameMetrics() {
+        // Single instance per JVM
+    }
+
+
+    /**
+     * Returns the metrics of this JVM.
+     * @return The metrics instance.
+     */
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Counts a round and records its duration.
+     * @param nanos The time the round took.
+     */
+    public void roundPlayed(long nanos) {
+        rounds.increment();
+        roundLatency.record(nanos);
+    }
+
+
+    /**
+     * Counts a move attempt.
+     * @param direction {@link #UP}, {@link #DOWN}, {@link #LEFT} or {@link #RIGHT}.
+     */
+    public void moveAttempted(int direction) {
+        moves[direction].increment();
+    }
+
+
+    /**
+     * Counts a rejected input.
+     */
+    public void invalidInput() {
+        invalidInputs.increment();
+    }
+
+
+    /**
+     * Counts a refused move.
+     */
+    public void moveBlocked() {
+        blockedMoves.increment();
+    }
+
+
+    /**
+     * Counts an attack.
+     * @param damage The health the defender lost; 0 counts as a miss.
+     * @param killed Whether the defender died.
+     */
+    public void attack(int damage, boolean killed) {
+        (damage > 0 ? hits : misses).increment();
+        if (killed) {
+            deaths.increment();
+        }
+    }
+
+
+    /**
+     * Returns the histogram of round durations.
+     * @return The round latency histogram.
+     */
+    public LatencyHistogram getRoundLatency() {
+        return roundLatency;
+    }
+
+
+    @Override
+    public long getRounds() {
+        return rounds.sum();
+    }
+
+
+    @Override
+    public long getMovesUp() {
+        return moves[UP].sum();
+    }
+
+
+    @Override
+    public long getMovesDown() {
+        return moves[DOWN].sum();
+    }
+
+
+    @Override
+    public long getMovesLeft() {
+        return moves[LEFT].sum();
+    }
+
+
+    @Override
+    public long getMovesRight() {
+        return moves[RIGHT].sum();
+    }
+
+
+    @Override
+    public long getInvalidInputs() {
+        return invalidInputs.sum();
+    }
+
+
+    @Override
+    public long getBlockedMoves() {
+        return blockedMoves.sum();
+    }
+
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+
+    @Override
+    public long getDeaths() {
+        return deaths.sum();
+    }
+
+
+    @Override
+    public long getRoundLatencyMean() {
+        return roundLatency.getMeanNanos();
+    }
+
+
+    @Override
+    public long getRoundLatencyP50() {
+        return roundLatency.getPercentileNanos(50);
+    }
+
+
+    @Override
+    public long getRoundLatencyP99() {
+        return roundLatency.getPercentileNanos(99);
+    }
+
+
+    @Override
+    public long getRoundLatencyP999() {
+        return roundLatency.getPercentileNanos(99.9);
+    }
+
+
+    @Override
+    public long getRoundLatencyMax() {
+        return roundLatency.getMaxNanos();
+    }
+
+
+    @Override
+    public void reset() {
+        rounds.reset();
+        for (LongAdder counter : moves) {
+            counter.reset();
+        }
+        invalidInputs.reset();
+        blockedMoves.reset();
+        hits.reset();
+        misses.reset();
+        deaths.reset();
+        roundLatency.reset();
+    }
+
+
+    /**
+     * Registers the metrics with the platform MBean server. Registering twice has no effect.
+     * @throws IllegalStateException if the MBean cannot be registered.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the game metrics: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Prints the metrics periodically on a daemon thread.
+     * @param period The time between two dumps.
+     * @param unit The unit of the period.
+     * @param out The stream to print to.
+     * @return The scheduled dump; cancel it to stop dumping.
+     */
+    public ScheduledFuture<?> startDump(long period, TimeUnit unit, PrintStream out) {
+        return DumpTimer.TIMER.scheduleAtFixedRate(() -> out.println(this), period, period, unit);
+    }
+
+
+    /**
+     * Holds the thread that prints the dumps, created on the first dump.
+     */
+    private static final class DumpTimer {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("rounds=%d moves up=%d down=%d left=%d right=%d invalid=%d blocked=%d hits=%d misses=%d deaths=%d"
+                        + " round latency mean=%.1f us p50<=%.1f us p99<=%.1f us p99.9<=%.1f us max=%.1f us",
+                getRounds(), getMovesUp(), getMovesDown(), getMovesLeft(), getMovesRight(), getInvalidInputs(),
+                getBlockedMoves(), getHits(), getMisses(), getDeaths(), getRoundLatencyMean() / 1e3,
+                getRoundLatencyP50() / 1e3, getRoundLatencyP99() / 1e3, getRoundLatencyP999() / 1e3,
+                getRoundLatencyMax() / 1e3);
+    }
+}
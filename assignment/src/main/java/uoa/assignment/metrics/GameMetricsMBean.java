@@ -0,0 +1,117 @@
+package uoa.assignment.metrics;
+
+/**
+ * JMX view of the {@link GameMetrics}. Durations are in nanoseconds.
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * Returns the number of rounds played with valid input.
+     * @return The round count.
+     */
+    long getRounds();
+
+
+    /**
+     * Returns the number of moves attempted upwards, by any character.
+     * @return The move count.
+     */
+    long getMovesUp();
+
+
+    /**
+     * Returns the number of moves attempted downwards, by any character.
+     * @return The move count.
+     */
+    long getMovesDown();
+
+
+    /**
+     * Returns the number of moves attempted to the left, by any character.
+     * @return The move count.
+     */
+    long getMovesLeft();
+
+
+    /**
+     * Returns the number of moves attempted to the right, by any character.
+     * @return The move count.
+     */
+    long getMovesRight();
+
+
+    /**
+     * Returns the number of rejected inputs.
+     * @return The invalid input count.
+     */
+    long getInvalidInputs();
+
+
+    /**
+     * Returns the number of moves refused by an edge, a dead character or another monster.
+     * @return The blocked move count.
+     */
+    long getBlockedMoves();
+
+
+    /**
+     * Returns the number of attacks that did damage.
+     * @return The hit count.
+     */
+    long getHits();
+
+
+    /**
+     * Returns the number of attacks that were defended.
+     * @return The miss count.
+     */
+    long getMisses();
+
+
+    /**
+     * Returns the number of characters killed.
+     * @return The death count.
+     */
+    long getDeaths();
+
+
+    /**
+     * Returns the mean duration of a round.
+     * @return The mean in nanoseconds.
+     */
+    long getRoundLatencyMean();
+
+
+    /**
+     * Returns the median duration of a round.
+     * @return The upper edge of the bucket holding the median, in nanoseconds.
+     */
+    long getRoundLatencyP50();
+
+
+    /**
+     * Returns the 99th percentile of the round duration.
+     * @return The upper edge of the bucket holding the percentile, in nanoseconds.
+     */
+    long getRoundLatencyP99();
+
+
+    /**
+     * Returns the 99.9th percentile of the round duration.
+     * @return The upper edge of the bucket holding the percentile, in nanoseconds.
+     */
+    long getRoundLatencyP999();
+
+
+    /**
+     * Returns the longest round.
+     * @return The maximum in nanoseconds.
+     */
+    long getRoundLatencyMax();
+
+
+    /**
+     * Sets every counter and histogram back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,55 @@
+package uoa.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import uoa.assignment.character.GameCharacter;
+
+/**
+ * Flight Recorder event for one attack in {@code GameLogic}.
+ */
+@Name("uoa.assignment.Attack")
+@Label("Attack")
+@Category("Game")
+@Description("A player attacking a monster or a monster attacking the player")
+@StackTrace(false)
+public final class JfrAttackEvent extends Event {
+
+    @Label("Attacker")
+    String attacker;
+
+    @Label("Defender")
+    String defender;
+
+    @Label("Hit")
+    boolean hit;
+
+    @Label("Damage")
+    int damage;
+
+    @Label("Defender Health")
+    int defenderHealth;
+
+
+    /**
+     * Records an attack if a recording has the event enabled.
+     * @param attacker The attacking character.
+     * @param defender The defending character, with its health after the attack.
+     * @param damage The health the defender lost.
+     */
+    public static void emit(GameCharacter attacker, GameCharacter defender, int damage) {
+        JfrAttackEvent event = new JfrAttackEvent();
+        if (event.isEnabled()) {
+            event.attacker = attacker.sayName();
+            event.defender = defender.sayName();
+            event.hit = damage > 0;
+            event.damage = damage;
+            event.defenderHealth = defender.getHealth();
+            event.commit();
+        }
+    }
+}
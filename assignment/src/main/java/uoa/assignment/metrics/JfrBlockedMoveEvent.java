@@ -0,0 +1,58 @@
+package uoa.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import uoa.assignment.character.GameCharacter;
+
+/**
+ * Flight Recorder event for a move refused by {@code GameLogic}.
+ */
+@Name("uoa.assignment.BlockedMove")
+@Label("Blocked Move")
+@Category("Game")
+@Description("A move refused by the edge of the map, a dead character or another monster")
+@StackTrace(false)
+public final class JfrBlockedMoveEvent extends Event {
+
+    @Label("Character")
+    String character;
+
+    @Label("Direction")
+    String direction;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Row")
+    @Description("The row of the cell the character tried to enter, or of its own cell at the edge")
+    int row;
+
+    @Label("Column")
+    @Description("The column of the cell the character tried to enter, or of its own cell at the edge")
+    int column;
+
+
+    /**
+     * Records a blocked move if a recording has the event enabled.
+     * @param character The character whose move was refused, holding the coordinates it tried to move to
+     *                  (its own cell for moves off the edge).
+     * @param direction The direction of the move.
+     * @param reason Why the move was refused, e.g. EDGE.
+     */
+    public static void emit(GameCharacter character, String direction, String reason) {
+        JfrBlockedMoveEvent event = new JfrBlockedMoveEvent();
+        if (event.isEnabled()) {
+            event.character = character.sayName();
+            event.direction = direction;
+            event.reason = reason;
+            event.row = character.row;
+            event.column = character.column;
+            event.commit();
+        }
+    }
+}
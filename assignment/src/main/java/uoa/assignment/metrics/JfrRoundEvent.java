@@ -0,0 +1,53 @@
+package uoa.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import uoa.assignment.character.CharacterStore;
+
+/**
+ * Flight Recorder event for one round of {@code Game.nextRound}, timed from the player's move
+ * to the game over check. Rounds with invalid input are not recorded.
+ */
+@Name("uoa.assignment.Round")
+@Label("Game Round")
+@Category("Game")
+@Description("A round with valid input: the player's move and every monster's move")
+@StackTrace(false)
+public final class JfrRoundEvent extends Event {
+
+    @Label("Round")
+    int round;
+
+    @Label("Alive Monsters")
+    int aliveMonsters;
+
+    @Label("Player Health")
+    int playerHealth;
+
+    @Label("Game Over")
+    boolean gameOver;
+
+
+    /**
+     * Ends the event and commits it if the recording wants it.
+     * The fields are only filled in for committed events, so an unrecorded round costs no counting.
+     * @param round The number of the round.
+     * @param store The character store of the map, player first.
+     * @param gameOver Whether the game ended with this round.
+     */
+    public void finish(int round, CharacterStore store, boolean gameOver) {
+        end();
+        if (shouldCommit()) {
+            this.round = round;
+            this.aliveMonsters = store.countAlive(CharacterStore.KIND_MONSTER);
+            this.playerHealth = store.health[0];
+            this.gameOver = gameOver;
+            commit();
+        }
+    }
+}
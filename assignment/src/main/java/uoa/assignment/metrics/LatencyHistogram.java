@@ -0,0 +1,147 @@
+package uoa.assignment.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds with fixed, log-linear buckets.
+ * Every power of two is split into four buckets, so a recorded value lands in a bucket at most
+ * 25% wider than the value, and percentiles are reported as the upper edge of their bucket.
+ * Recording is one bucket lookup and a few {@link LongAdder} increments, which stay cheap even
+ * when many threads record at once.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Records one duration.
+     * @param nanos The duration in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+
+    /**
+     * Returns the number of recorded durations.
+     * @return The count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    /**
+     * Returns the mean of the recorded durations.
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+
+    /**
+     * Returns the longest recorded duration.
+     * @return The maximum in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+
+    /**
+     * Returns an upper bound of a percentile of the recorded durations.
+     * Counts are read while other threads may record, so the result is approximate under load.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper edge of the bucket holding the percentile in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperEdge(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+
+    /**
+     * Clears every bucket. Durations recorded during the reset may be partly kept.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+
+    /**
+     * Returns the bucket of a value: values below 4 have their own bucket, larger values share
+     * a bucket with the values that agree in the highest three bits.
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+
+    /**
+     * Returns the smallest value above a bucket.
+     * @param bucket The bucket index.
+     * @return The exclusive upper edge of the bucket.
+     */
+    static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long edge = (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+        return edge < 0 ? Long.MAX_VALUE : edge;
+    }
+}
@@ -0,0 +1,315 @@
+package uoa.assignment.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.game.Cell;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.Grid;
+import uoa.assignment.metrics.GameMetrics;
+import uoa.assignment.simulation.HeadlessEngine;
+
+/**
+ * Hosts independent games for many players over a line-based TCP protocol on localhost.
+ * Every connection is one session with its own headless {@link Game}, served by its own thread:
+ * a virtual thread where the JVM has them (Java 21+), a pooled platform thread otherwise.
+ *
+ * Protocol, one command per line, one reply line per command:
+ * <pre>
+ * START height width [difficulty] [seed]   READY round=0 health=100 monsters=3
+ * up | down | left | right                 OK round=1 health=100 monsters=3, or WON ... / DIED ...
+ * anything else                            INVALID round=1 health=100 monsters=3
+ * MAP                                      height lines of cell symbols, then END
+ * QUIT                                     BYE
+ * </pre>
+ * Moves follow {@link Game#nextRound(String)}: an invalid move costs no round. Problems are
+ * reported as ERROR lines and leave the session open.
+ */
+public class GameServer implements Closeable {
+
+    /** Largest map a session may start, in cells. */
+    public static final long MAX_CELLS = 1L << 22;
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = newPerTaskExecutor("game-session-");
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder rounds = new LongAdder();
+    private final Thread acceptor;
+
+
+    /**
+     * Opens the server socket on the loopback interface and starts accepting connections.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public GameServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "game-server-accept");
+        this.acceptor.start();
+    }
+
+
+    /**
+     * Returns the port the server listens on.
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+
+    /**
+     * Returns the number of connected sessions.
+     * @return The active session count.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+
+    /**
+     * Returns the number of rounds played over all sessions since the server started.
+     * @return The total round count.
+     */
+    public long getRounds() {
+        return rounds.sum();
+    }
+
+
+    /**
+     * Stops accepting connections, closes every session and waits briefly for their threads.
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+            acceptor.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Accepts connections until the server socket is closed and hands each one to its own thread.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                sessions.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // Server socket closed
+            } catch (IOException e) {
+                // A failed accept only affects that connection
+            }
+        }
+    }
+
+
+    /**
+     * Runs one session: reads commands until the client quits or disconnects.
+     * @param socket The connection of the session.
+     */
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            Game game = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.equalsIgnoreCase("QUIT")) {
+                    out.write("BYE\n");
+                    out.flush();
+                    break;
+                }
+                try {
+                    if (line.regionMatches(true, 0, "START", 0, 5)) {
+                        game = start(line);
+                        out.write(status("READY", game));
+                    } else if (game == null) {
+                        out.write("ERROR no game, send START height width [difficulty] [seed]\n");
+                    } else if (line.equalsIgnoreCase("MAP")) {
+                        writeMap(game, out);
+                    } else {
+                        out.write(play(game, line));
+                    }
+                } catch (IllegalArgumentException e) {
+                    out.write("ERROR " + e.getMessage() + "\n");
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; the session simply ends
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+            activeSessions.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * Starts a new game from a START command.
+     * @param line The command.
+     * @return The new game.
+     * @throws IllegalArgumentException if the arguments are missing, not numbers or out of range.
+     */
+    private static Game start(String line) {
+        String[] parts = line.split("\\s+");
+        if (parts.length < 3 || parts.length > 5) {
+            throw new IllegalArgumentException("usage: START height width [difficulty] [seed]");
+        }
+        int height;
+        int width;
+        int difficulty;
+        long seed;
+        try {
+            height = Integer.parseInt(parts[1]);
+            width = Integer.parseInt(parts[2]);
+            difficulty = parts.length > 3 ? Integer.parseInt(parts[3]) : 1;
+            seed = parts.length > 4 ? Long.parseLong(parts[4]) : System.nanoTime();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("START arguments must be numbers");
+        }
+        if (height > 0 && width > 0 && (long) height * width > MAX_CELLS) {
+            throw new IllegalArgumentException("map larger than " + MAX_CELLS + " cells");
+        }
+        return new HeadlessEngine(height, width, difficulty).newGame(seed);
+    }
+
+
+    /**
+     * Plays one round and describes the result.
+     * @param game The game of the session.
+     * @param move The player's input.
+     * @return The reply line.
+     */
+    private String play(Game game, String move) {
+        boolean gameOver = game.nextRound(move);
+        if (!game.validateInput) {
+            return status("INVALID", game);
+        }
+        rounds.increment();
+        if (gameOver) {
+            return status(game.getMap().characters[0].getHealth() > 0 ? "WON" : "DIED", game);
+        }
+        return status("OK", game);
+    }
+
+
+    /**
+     * Formats a reply with the round, the player's health and the number of living monsters.
+     * @param word The first word of the reply.
+     * @param game The game of the session.
+     * @return The reply line, ending in a newline.
+     */
+    private static String status(String word, Game game) {
+        CharacterStore store = game.getMap().getCharacterStore();
+        return word + " round=" + game.getRound() + " health=" + store.health[0]
+                + " monsters=" + store.countAlive(CharacterStore.KIND_MONSTER) + "\n";
+    }
+
+
+    /**
+     * Writes the map as plain cell symbols, one line per row, followed by END.
+     * @param game The game of the session.
+     * @param out The connection.
+     * @throws IOException if writing fails.
+     */
+    private static void writeMap(Game game, Writer out) throws IOException {
+        Grid grid = game.getMap().getGrid();
+        int width = grid.getWidth();
+        byte[] row = new byte[width];
+        StringBuilder line = new StringBuilder(width + 1);
+        for (int r = 0; r < grid.getHeight(); r++) {
+            grid.readRow(r, 0, row, width);
+            line.setLength(0);
+            for (int c = 0; c < width; c++) {
+                line.append(Cell.symbol(row[c]));
+            }
+            out.write(line.append('\n').toString());
+        }
+        out.write("END\n");
+    }
+
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do with a broken socket
+        }
+    }
+
+
+    /**
+     * Creates an executor that runs every task on a new virtual thread when the JVM supports them,
+     * or on a cached pool of daemon platform threads otherwise.
+     * The project targets Java 11, so virtual threads are looked up reflectively.
+     * @param namePrefix The name prefix of the platform threads.
+     * @return The executor.
+     */
+    static ExecutorService newPerTaskExecutor(String namePrefix) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, namePrefix + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+
+    /**
+     * Runs the server until the process is stopped.
+     * Arguments: [port], 7777 by default. The game metrics are registered with JMX, and printed
+     * every n seconds when the game.metrics.dump property is set to n.
+     * @param args The command line arguments.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        GameServer server = new GameServer(port);
+        GameMetrics.get().register();
+        Integer dumpSeconds = Integer.getInteger("game.metrics.dump");
+        if (dumpSeconds != null && dumpSeconds > 0) {
+            GameMetrics.get().startDump(dumpSeconds, TimeUnit.SECONDS, System.out);
+        }
+        System.out.println("Game server listening on localhost:" + server.getPort());
+    }
+}
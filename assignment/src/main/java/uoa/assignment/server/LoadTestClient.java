@@ -0,0 +1,220 @@
+package uoa.assignment.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives many concurrent sessions against a {@link GameServer} and measures rounds per second and
+ * the round trip latency of every round. Each session plays random moves and starts a new game
+ * whenever one ends.
+ */
+public class LoadTestClient {
+
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+
+    private final String host;
+    private final int port;
+    private int height = 10;
+    private int width = 10;
+    private int difficulty = 1;
+
+
+    /**
+     * Creates a client for a server.
+     * @param host The server host.
+     * @param port The server port.
+     */
+    public LoadTestClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+
+    /**
+     * Sets the map size of the games started by the sessions.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     */
+    public void setMapSize(int height, int width) {
+        this.height = height;
+        this.width = width;
+    }
+
+
+    /**
+     * Sets the difficulty of the games started by the sessions.
+     * @param difficulty The difficulty level (1-4).
+     */
+    public void setDifficulty(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+
+    /**
+     * Opens the sessions, plays the rounds and waits for all of them to finish.
+     * All sessions connect first and then start playing together.
+     * @param sessions The number of concurrent sessions.
+     * @param roundsPerSession The number of rounds each session plays.
+     * @param seed The seed of the moves and games.
+     * @return The throughput and latencies of the test.
+     * @throws InterruptedException if interrupted while waiting for the sessions.
+     */
+    public LoadTestReport run(int sessions, int roundsPerSession, long seed) throws InterruptedException {
+        long[] latencies = new long[sessions * roundsPerSession];
+        int[] played = new int[sessions]; // Rounds finished by each session, also by those that failed
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(sessions);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(sessions);
+        ExecutorService threads = GameServer.newPerTaskExecutor("load-session-");
+        for (int s = 0; s < sessions; s++) {
+            int session = s;
+            threads.execute(() -> {
+                boolean counted = false;
+                try (Socket socket = new Socket(host, port)) {
+                    socket.setTcpNoDelay(true);
+                    connected.countDown();
+                    counted = true;
+                    go.await();
+                    play(socket, seed + session, latencies, played, session, roundsPerSession);
+                } catch (IOException | RuntimeException e) {
+                    errors.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (!counted) {
+                        connected.countDown();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        connected.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        threads.shutdown();
+        long[] playedLatencies = collect(latencies, played, roundsPerSession);
+        return new LoadTestReport(sessions, playedLatencies.length, errors.get(), elapsed, playedLatencies);
+    }
+
+
+    /**
+     * Plays the rounds of one session, counting each finished round so a failure keeps the ones before it.
+     * @param socket The connection.
+     * @param seed The seed of the session.
+     * @param latencies Receives the round trip time of every round, from index session * count on.
+     * @param played Receives the number of rounds the session finished.
+     * @param session The index of the session.
+     * @param count The number of rounds to play.
+     * @throws IOException if the connection fails or the server replies with an error.
+     */
+    private void play(Socket socket, long seed, long[] latencies, int[] played, int session, int count) throws IOException {
+        int offset = session * count;
+        SplittableRandom random = new SplittableRandom(seed);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        String start = "START " + height + " " + width + " " + difficulty + " ";
+        request(in, out, start + random.nextLong());
+        for (int i = 0; i < count; i++) {
+            long begin = System.nanoTime();
+            String reply = request(in, out, MOVES[random.nextInt(MOVES.length)]);
+            latencies[offset + i] = System.nanoTime() - begin;
+            played[session] = i + 1;
+            if (reply.startsWith("WON") || reply.startsWith("DIED")) {
+                request(in, out, start + random.nextLong());
+            }
+        }
+        request(in, out, "QUIT");
+    }
+
+
+    /**
+     * Sends one command and reads its reply.
+     * @param in The connection input.
+     * @param out The connection output.
+     * @param command The command.
+     * @return The reply line.
+     * @throws IOException if the connection fails or the server replies with an error.
+     */
+    private static String request(BufferedReader in, Writer out, String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null || reply.startsWith("ERROR")) {
+            throw new IOException("Server replied " + reply + " to " + command);
+        }
+        return reply;
+    }
+
+
+    /**
+     * Gathers the latencies of the rounds each session finished, in session order.
+     * @param latencies The latency slots of all sessions, roundsPerSession per session.
+     * @param played The number of rounds each session finished.
+     * @param roundsPerSession The rounds per session.
+     * @return The latencies of the rounds played.
+     */
+    static long[] collect(long[] latencies, int[] played, int roundsPerSession) {
+        long total = 0;
+        for (int rounds : played) {
+            total += rounds;
+        }
+        if (total == latencies.length) {
+            return latencies;
+        }
+        long[] collected = new long[(int) total];
+        int count = 0;
+        for (int session = 0; session < played.length; session++) {
+            System.arraycopy(latencies, session * roundsPerSession, collected, count, played[session]);
+            count += played[session];
+        }
+        return collected;
+    }
+
+
+    /**
+     * Runs a load test and prints the report.
+     * Arguments: sessions rounds [port] [height] [width] [difficulty]
+     * Without a port, a server is started in this JVM on a free port.
+     * @param args The command line arguments.
+     * @throws Exception if the server cannot be started or the test is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: LoadTestClient sessions rounds [port] [height] [width] [difficulty]");
+            return;
+        }
+        int sessions = Integer.parseInt(args[0]);
+        int rounds = Integer.parseInt(args[1]);
+        GameServer server = args.length > 2 ? null : new GameServer(0);
+        try {
+            int port = server != null ? server.getPort() : Integer.parseInt(args[2]);
+            LoadTestClient client = new LoadTestClient("localhost", port);
+            if (args.length > 4) {
+                client.setMapSize(Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            }
+            if (args.length > 5) {
+                client.setDifficulty(Integer.parseInt(args[5]));
+            }
+            System.out.println(client.run(sessions, rounds, System.nanoTime()));
+        } finally {
+            // The acceptor thread of an in-JVM server would keep the JVM alive
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
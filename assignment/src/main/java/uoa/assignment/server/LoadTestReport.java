@@ -0,0 +1,82 @@
+package uoa.assignment.server;
+
+import java.util.Arrays;
+
+/**
+ * Throughput and latency of a load test against a {@link GameServer}.
+ */
+public class LoadTestReport {
+
+    private final int sessions;
+    private final long rounds;
+    private final long errors;
+    private final long elapsedNanos;
+    private final long[] latencies; // Round trip time of every round in nanoseconds, sorted
+
+
+    /**
+     * Creates a report.
+     * @param sessions The number of concurrent sessions.
+     * @param rounds The number of rounds played.
+     * @param errors The number of sessions that failed.
+     * @param elapsedNanos The wall time of the test.
+     * @param latencies The round trip time of every round in nanoseconds; sorted in place.
+     */
+    LoadTestReport(int sessions, long rounds, long errors, long elapsedNanos, long[] latencies) {
+        this.sessions = sessions;
+        this.rounds = rounds;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        Arrays.sort(latencies);
+    }
+
+
+    /**
+     * Returns the number of rounds played over all sessions.
+     * @return The round count.
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+
+    /**
+     * Returns the number of sessions that ended with an error.
+     * @return The failed session count.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+
+    /**
+     * Returns the rounds played per second of wall time.
+     * @return The throughput.
+     */
+    public double getRoundsPerSecond() {
+        return rounds / Math.max(elapsedNanos / 1e9, 1e-9);
+    }
+
+
+    /**
+     * Returns a round trip latency percentile.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in microseconds, or 0 if no round was played.
+     */
+    public double getLatencyPercentile(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e3;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("sessions=%d rounds=%d errors=%d%n%.2f s, %.0f rounds/s%nlatency p50=%.1f us p99=%.1f us max=%.1f us",
+                sessions, rounds, errors, elapsedNanos / 1e9, getRoundsPerSecond(),
+                getLatencyPercentile(50), getLatencyPercentile(99), getLatencyPercentile(100));
+    }
+}
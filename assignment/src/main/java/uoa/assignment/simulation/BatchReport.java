@@ -0,0 +1,207 @@
+package uoa.assignment.simulation;
+
+/**
+ * Aggregated statistics over a batch of simulated games.
+ * Each worker fills its own report, and the reports are merged once the workers are done.
+ * Round counts are kept in fixed buckets: exact below 1024 rounds, and above that sixteen buckets
+ * per power of two, so a report takes about 11 KB whatever the round limit is.
+ */
+public class BatchReport {
+
+    private static final int FULL_HEALTH = 100; // Starting health of every character
+    private static final int EXACT_BITS = 10;
+    private static final int EXACT_ROUNDS = 1 << EXACT_BITS; // Round counts below this have their own bucket
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = EXACT_ROUNDS + (Integer.SIZE - 1 - EXACT_BITS) * SUB_BUCKETS;
+
+    private long games;
+    private long wins;
+    private long deaths;
+    private long timeouts;
+    private long totalRounds;
+    private long damageDealt;  // Health taken from monsters by the player
+    private long damageTaken;  // Health taken from the player by monsters
+    private int longestGame;   // Most rounds any game lasted, so percentiles never exceed it
+    private final long[] roundCounts = new long[BUCKETS]; // Number of games per bucket of round counts
+
+
+    /**
+     * Creates an empty report.
+     */
+    BatchReport() {
+    }
+
+
+    /**
+     * Adds the result of one game.
+     * @param result The game result.
+     */
+    void add(GameResult result) {
+        games++;
+        switch (result.getOutcome()) {
+            case PLAYER_WON:
+                wins++;
+                break;
+            case PLAYER_DIED:
+                deaths++;
+                break;
+            case ROUND_LIMIT:
+                timeouts++;
+                break;
+        }
+        totalRounds += result.getRounds();
+        roundCounts[bucketOf(result.getRounds())]++;
+        longestGame = Math.max(longestGame, result.getRounds());
+        for (int i = 1; i <= result.getMonsterCount(); i++) {
+            damageDealt += FULL_HEALTH - result.getMonsterHealth(i);
+        }
+        damageTaken += FULL_HEALTH - result.getPlayerHealth();
+    }
+
+
+    /**
+     * Adds every game of another report to this one.
+     * @param other The report to merge in.
+     * @return This report.
+     */
+    BatchReport merge(BatchReport other) {
+        games += other.games;
+        wins += other.wins;
+        deaths += other.deaths;
+        timeouts += other.timeouts;
+        totalRounds += other.totalRounds;
+        damageDealt += other.damageDealt;
+        damageTaken += other.damageTaken;
+        longestGame = Math.max(longestGame, other.longestGame);
+        for (int i = 0; i < roundCounts.length; i++) {
+            roundCounts[i] += other.roundCounts[i];
+        }
+        return this;
+    }
+
+
+    /**
+     * Returns the number of games played.
+     * @return The game count.
+     */
+    public long getGames() {
+        return games;
+    }
+
+
+    /**
+     * Returns the fraction of games won by the player.
+     * @return The win rate between 0 and 1.
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+
+    /**
+     * Returns the fraction of games in which the player died.
+     * @return The death rate between 0 and 1.
+     */
+    public double getDeathRate() {
+        return games == 0 ? 0 : (double) deaths / games;
+    }
+
+
+    /**
+     * Returns the fraction of games stopped by the round limit.
+     * @return The timeout rate between 0 and 1.
+     */
+    public double getTimeoutRate() {
+        return games == 0 ? 0 : (double) timeouts / games;
+    }
+
+
+    /**
+     * Returns the mean number of rounds per game.
+     * @return The mean round count.
+     */
+    public double getMeanRounds() {
+        return games == 0 ? 0 : (double) totalRounds / games;
+    }
+
+
+    /**
+     * Returns a percentile of the round counts.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The smallest round count such that at least that share of games were not longer;
+     *         above 1024 rounds, the upper edge of its bucket, which is at most 1/16 too high.
+     */
+    public int getRoundPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100.0 * games);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += roundCounts[bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(lastRoundOf(bucket), longestGame);
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Returns the bucket of a round count.
+     * @param rounds A non-negative round count.
+     * @return The bucket index.
+     */
+    static int bucketOf(int rounds) {
+        if (rounds < EXACT_ROUNDS) {
+            return rounds;
+        }
+        int exponent = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(rounds);
+        int sub = (rounds >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_ROUNDS + (exponent - EXACT_BITS) * SUB_BUCKETS + sub;
+    }
+
+
+    /**
+     * Returns the largest round count in a bucket.
+     * @param bucket The bucket index.
+     * @return The inclusive upper edge of the bucket.
+     */
+    static int lastRoundOf(int bucket) {
+        if (bucket < EXACT_ROUNDS) {
+            return bucket;
+        }
+        int exponent = EXACT_BITS + (bucket - EXACT_ROUNDS) / SUB_BUCKETS;
+        int sub = (bucket - EXACT_ROUNDS) % SUB_BUCKETS;
+        long first = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return (int) Math.min(Integer.MAX_VALUE, first + (1L << (exponent - SUB_BUCKET_BITS)) - 1);
+    }
+
+
+    /**
+     * Returns the mean damage the player dealt to monsters per game.
+     * @return The mean damage dealt.
+     */
+    public double getMeanDamageDealt() {
+        return games == 0 ? 0 : (double) damageDealt / games;
+    }
+
+
+    /**
+     * Returns the mean damage the player took per game.
+     * @return The mean damage taken.
+     */
+    public double getMeanDamageTaken() {
+        return games == 0 ? 0 : (double) damageTaken / games;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("games=%d win=%.4f died=%.4f timeout=%.4f%n"
+                        + "rounds mean=%.2f p50=%d p90=%d p99=%d max=%d%n"
+                        + "damage dealt=%.2f taken=%.2f",
+                games, getWinRate(), getDeathRate(), getTimeoutRate(),
+                getMeanRounds(), getRoundPercentile(50), getRoundPercentile(90),
+                getRoundPercentile(99), getRoundPercentile(100),
+                getMeanDamageDealt(), getMeanDamageTaken());
+    }
+}
@@ -0,0 +1,141 @@
+package uoa.assignment.simulation;
+
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+import uoa.assignment.game.Game;
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.MonsterPolicy;
+import uoa.assignment.game.SpawnStrategy;
+import uoa.assignment.game.TerrainStyle;
+
+/**
+ * Plays large batches of headless games in parallel and aggregates their results.
+ * The games are split into chunks that run on the common ForkJoin pool. Every chunk owns its
+ * games, move suppliers and report, so workers share no mutable state; the reports are merged
+ * at the end. A chunk builds one world and resets it in place for each of its games.
+ */
+public class BatchSimulator {
+
+    private static final int CHUNKS_PER_CORE = 4; // More chunks than cores for load balancing
+
+    private final HeadlessEngine engine;
+    private LongFunction<MoveSupplier> playerFactory = GreedyMoveSupplier::new;
+
+
+    /**
+     * Creates a batch simulator for the classic three-monster setup.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param difficulty The difficulty level (1-4).
+     * @param monsterPolicy How the monsters act.
+     */
+    public BatchSimulator(int height, int width, int difficulty, MonsterPolicy monsterPolicy) {
+        this(new HeadlessEngine(height, width, difficulty));
+        engine.setMonsterPolicy(monsterPolicy);
+    }
+
+
+    /**
+     * Creates a batch simulator that plays the games of a configured engine.
+     * @param engine The engine that creates and plays each game.
+     */
+    public BatchSimulator(HeadlessEngine engine) {
+        this.engine = engine;
+    }
+
+
+    /**
+     * Sets the player strategy. The factory is called once per game with the game's seed.
+     * The default strategy walks towards the nearest monster.
+     * @param playerFactory Creates a move supplier for a game.
+     */
+    public void setPlayerFactory(LongFunction<MoveSupplier> playerFactory) {
+        this.playerFactory = playerFactory;
+    }
+
+
+    /**
+     * Plays a batch of games.
+     * @param games The number of games to play.
+     * @param seed The seed of the batch. Game i is played with a seed derived from it.
+     * @return The aggregated report.
+     */
+    public BatchReport run(long games, long seed) {
+        int chunks = (int) Math.max(1, Math.min(games,
+                (long) Runtime.getRuntime().availableProcessors() * CHUNKS_PER_CORE));
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> runChunk(games * chunk / chunks, games * (chunk + 1) / chunks, seed))
+                .reduce(BatchReport::merge)
+                .orElseGet(BatchReport::new);
+    }
+
+
+    /**
+     * Plays the games with indices in [from, to) on the calling thread.
+     * @param from The first game index.
+     * @param to The index after the last game.
+     * @param seed The seed of the batch.
+     * @return The report of this chunk.
+     */
+    private BatchReport runChunk(long from, long to, long seed) {
+        BatchReport report = new BatchReport();
+        Game game = null; // One world per chunk, reset for every game
+        for (long i = from; i < to; i++) {
+            long gameSeed = mix(seed + i);
+            game = game == null ? engine.newGame(gameSeed) : engine.resetGame(game, gameSeed);
+            report.add(engine.play(game, playerFactory.apply(gameSeed)));
+        }
+        return report;
+    }
+
+
+    /**
+     * Spreads consecutive seeds over the whole 64-bit range (SplitMix64 finaliser).
+     * @param value The value to mix.
+     * @return The mixed value.
+     */
+    static long mix(long value) {
+        return GameRandom.mix64(value * 0x9E3779B97F4A7C15L);
+    }
+
+
+    /**
+     * Runs a batch from the command line and prints the report.
+     * Arguments: height width difficulty [policy] [games] [seed] [monsters] [maxRounds] [terrain] [grid]
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: BatchSimulator height width difficulty [RANDOM|STATIONARY|CHASE] [games] [seed] [monsters] [maxRounds] [OPEN|ROOMS|CAVES] [byte|bitboard]");
+            return;
+        }
+        int height = Integer.parseInt(args[0]);
+        int width = Integer.parseInt(args[1]);
+        int difficulty = Integer.parseInt(args[2]);
+        MonsterPolicy policy = args.length > 3 ? MonsterPolicy.valueOf(args[3].toUpperCase()) : MonsterPolicy.RANDOM;
+        long games = args.length > 4 ? Long.parseLong(args[4]) : 100000;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        int monsters = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+        HeadlessEngine engine = new HeadlessEngine(height, width, difficulty, monsters,
+                monsters <= 3 ? SpawnStrategy.CORNERS : SpawnStrategy.SCATTER);
+        engine.setMonsterPolicy(policy);
+        if (args.length > 7) {
+            engine.setMaxRounds(Integer.parseInt(args[7]));
+        }
+        if (args.length > 8) {
+            engine.setTerrain(TerrainStyle.valueOf(args[8].toUpperCase()));
+        }
+        if (args.length > 9) {
+            engine.setBitboard("bitboard".equalsIgnoreCase(args[9]));
+        }
+
+        long start = System.nanoTime();
+        BatchReport report = new BatchSimulator(engine).run(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(report);
+        System.out.printf("%.2f s, %.0f games/s%n", seconds, games / seconds);
+    }
+}
@@ -0,0 +1,267 @@
+package uoa.assignment.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+
+/**
+ * Computes exact fight outcomes from the combat stats of {@link Player} and {@link Monster},
+ * as a Markov chain over health states instead of by sampling games.
+ *
+ * A fight is a series of exchanges. In each exchange the player strikes the first living monster,
+ * which defends with the monster's defense rate, and then every living monster strikes the player,
+ * who defends each blow with the player's defense rate. Damage is fixed per hit, so a character's
+ * health is fully described by the number of hits it took, and the fight state is the player's hits
+ * plus the current monster and its hits. Every exchange either keeps the state (everything was
+ * defended) or moves it strictly forward, so the chain is solved in one backward pass over all states,
+ * with the self loop folded in as a geometric series.
+ *
+ * Outcomes are cached per fight, so repeated balancing queries cost a lookup.
+ */
+public class CombatCalculator {
+
+    private final int playerDamage;        // Health a monster loses per hit of the player
+    private final double playerDefense;    // Chance that the player defends a blow
+    private final int monsterDamage;       // Health the player loses per hit of a monster
+    private final double monsterDefense;   // Chance that a monster defends a blow
+    private final ConcurrentHashMap<List<Integer>, CombatOutcome> cache = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates a calculator for the given combat stats.
+     * @param playerAttack The player's attack points, negative like {@link Player#attackPoint}.
+     * @param playerDefense The player's defense success rate.
+     * @param monsterAttack A monster's attack points, negative like {@link Monster#attackPoint}.
+     * @param monsterDefense A monster's defense success rate.
+     * @throws IllegalArgumentException if a rate is outside [0, 1], or the player can never kill a monster.
+     */
+    public CombatCalculator(int playerAttack, double playerDefense, int monsterAttack, double monsterDefense) {
+        if (!(playerDefense >= 0 && playerDefense <= 1 && monsterDefense >= 0 && monsterDefense <= 1)) {
+            throw new IllegalArgumentException("Defense rates must be between 0 and 1.");
+        }
+        if (playerAttack >= 0 || monsterDefense == 1) {
+            throw new IllegalArgumentException("The player must be able to hurt the monsters, or no fight ends.");
+        }
+        this.playerDamage = -playerAttack;
+        this.playerDefense = playerDefense;
+        this.monsterDamage = Math.max(0, -monsterAttack);
+        this.monsterDefense = monsterDefense;
+    }
+
+
+    /**
+     * Creates a calculator for a player and a monster type.
+     * @param player The player, with its difficulty set.
+     * @param monster A monster, with its difficulty set.
+     * @return The calculator for their stats.
+     */
+    public static CombatCalculator of(Player player, Monster monster) {
+        return new CombatCalculator(player.attackPoint, player.defenseSuccessRate,
+                monster.attackPoint, monster.defenseSuccessRate);
+    }
+
+
+    /**
+     * Creates a calculator for the stats of a difficulty level.
+     * @param difficulty The difficulty level (1-4).
+     * @return The calculator for that level.
+     * @throws IllegalArgumentException if the difficulty level is invalid.
+     */
+    public static CombatCalculator forDifficulty(int difficulty) {
+        Player player = new Player("Player");
+        player.setDifficulty(difficulty);
+        Monster monster = new Monster();
+        monster.setDifficulty(difficulty);
+        return of(player, monster);
+    }
+
+
+    /**
+     * Computes a duel between the player and one monster.
+     * @param playerHealth The player's health.
+     * @param monsterHealth The monster's health.
+     * @return The exact outcome.
+     */
+    public CombatOutcome duel(int playerHealth, int monsterHealth) {
+        return fight(playerHealth, monsterHealth);
+    }
+
+
+    /**
+     * Computes a fight between the player and several monsters, which the player attacks in the given order.
+     * Monsters without health left are ignored.
+     * @param playerHealth The player's health.
+     * @param monsterHealths The health of every monster.
+     * @return The exact outcome.
+     */
+    public CombatOutcome fight(int playerHealth, int... monsterHealths) {
+        return outcome(playerHealth, monsterHealths, false);
+    }
+
+
+    /**
+     * Computes a series of duels: the player fights the monsters one at a time in the given order, and only
+     * the monster being fought strikes back, as when monsters wander into the player one after another.
+     * Monsters without health left are ignored.
+     * @param playerHealth The player's health.
+     * @param monsterHealths The health of every monster.
+     * @return The exact outcome.
+     */
+    public CombatOutcome fightInTurn(int playerHealth, int... monsterHealths) {
+        return outcome(playerHealth, monsterHealths, true);
+    }
+
+
+    /**
+     * Looks up the outcome of a fight, solving it on the first request.
+     * @param playerHealth The player's health.
+     * @param monsterHealths The health of every monster.
+     * @param inTurn Whether only the monster being fought strikes back.
+     * @return The exact outcome.
+     */
+    private CombatOutcome outcome(int playerHealth, int[] monsterHealths, boolean inTurn) {
+        Integer[] key = new Integer[monsterHealths.length + 2];
+        key[0] = inTurn ? 1 : 0;
+        key[1] = playerHealth;
+        for (int i = 0; i < monsterHealths.length; i++) {
+            key[i + 2] = monsterHealths[i];
+        }
+        return cache.computeIfAbsent(Arrays.asList(key), ignored -> solve(playerHealth, monsterHealths, inTurn));
+    }
+
+
+    /**
+     * Solves the chain of one fight.
+     * @param playerHealth The player's health.
+     * @param monsterHealths The health of every monster.
+     * @param inTurn Whether only the monster being fought strikes back.
+     * @return The outcome from the starting state.
+     */
+    private CombatOutcome solve(int playerHealth, int[] monsterHealths, boolean inTurn) {
+        if (playerHealth <= 0) {
+            return new CombatOutcome(0, 0, 0);
+        }
+        int[] hitsToKill = Arrays.stream(monsterHealths).filter(health -> health > 0)
+                .map(health -> (health + playerDamage - 1) / playerDamage).toArray();
+        int monsters = hitsToKill.length;
+        if (monsters == 0) {
+            return new CombatOutcome(1, 0, playerHealth);
+        }
+        // Monster states are numbered in fight order: offset[i] + hits taken by monster i
+        int[] offset = new int[monsters + 1];
+        for (int i = 0; i < monsters; i++) {
+            offset[i + 1] = offset[i] + hitsToKill[i];
+        }
+        int monsterStates = offset[monsters];
+        int[] monsterAt = new int[monsterStates];
+        for (int i = 0; i < monsters; i++) {
+            Arrays.fill(monsterAt, offset[i], offset[i + 1], i);
+        }
+        // Hits the player survives; harmless monsters can never kill, so one state is enough
+        int playerStates = monsterDamage == 0 ? 1 : (playerHealth + monsterDamage - 1) / monsterDamage;
+        double blowLands = monsterDamage == 0 ? 0 : 1 - playerDefense;
+        double[][] landed = blowDistribution(monsters, playerStates, blowLands);
+        double strikeLands = 1 - monsterDefense;
+
+        double[] win = new double[playerStates * monsterStates];
+        double[] exchanges = new double[win.length];
+        double[] health = new double[win.length];
+        for (int taken = playerStates - 1; taken >= 0; taken--) {
+            for (int state = monsterStates - 1; state >= 0; state--) {
+                int index = taken * monsterStates + state;
+                double selfLoop = 0;
+                double winSum = 0;
+                double exchangeSum = 1;
+                double healthSum = 0;
+                // The player's strike: a hit moves to the next monster state, a miss stays
+                for (int strike = 0; strike < 2; strike++) {
+                    double strikeProbability = strike == 0 ? strikeLands : 1 - strikeLands;
+                    int next = strike == 0 ? state + 1 : state;
+                    if (strikeProbability == 0) {
+                        continue;
+                    }
+                    if (next == monsterStates) {
+                        // Last monster killed, no blows come back
+                        winSum += strikeProbability;
+                        healthSum += strikeProbability * (playerHealth - (long) taken * monsterDamage);
+                        continue;
+                    }
+                    double[] blows = landed[inTurn ? 1 : monsters - monsterAt[next]];
+                    for (int hits = 0; hits < blows.length; hits++) {
+                        double probability = strikeProbability * blows[hits];
+                        if (probability == 0 || hits == blows.length - 1) {
+                            continue; // The last entry is the player's death, worth nothing
+                        }
+                        int nextTaken = taken + hits;
+                        if (nextTaken >= playerStates) {
+                            continue;
+                        }
+                        if (next == state && hits == 0) {
+                            selfLoop += probability;
+                            continue;
+                        }
+                        int nextIndex = nextTaken * monsterStates + next;
+                        winSum += probability * win[nextIndex];
+                        exchangeSum += probability * exchanges[nextIndex];
+                        healthSum += probability * health[nextIndex];
+                    }
+                }
+                double leave = 1 - selfLoop;
+                win[index] = winSum / leave;
+                exchanges[index] = exchangeSum / leave;
+                health[index] = healthSum / leave;
+            }
+        }
+        return new CombatOutcome(win[0], exchanges[0], health[0]);
+    }
+
+
+    /**
+     * Tabulates how many of the living monsters' blows land in one exchange.
+     * Entry [living][hits] is the probability that exactly that many of the blows land, for hits below
+     * the number of hits the player can take; the last entry of each row collects every count at or above it.
+     * @param monsters The number of monsters in the fight.
+     * @param playerStates The number of hits the player survives, plus one.
+     * @param blowLands The chance that a single blow lands.
+     * @return The distributions for 0 to monsters living monsters.
+     */
+    private static double[][] blowDistribution(int monsters, int playerStates, double blowLands) {
+        double[][] table = new double[monsters + 1][];
+        for (int living = 0; living <= monsters; living++) {
+            double[] row = new double[playerStates + 1];
+            // Binomial(living, blowLands) via the recurrence P(k + 1) = P(k) * (n - k) / (k + 1) * p / q
+            double probability = Math.pow(1 - blowLands, living);
+            double rest = 1;
+            for (int hits = 0; hits < playerStates && hits <= living; hits++) {
+                if (blowLands == 1) {
+                    probability = hits == living ? 1 : 0;
+                }
+                row[hits] = probability;
+                rest -= probability;
+                probability = blowLands == 1 ? 0
+                        : probability * (living - hits) / (hits + 1) * blowLands / (1 - blowLands);
+            }
+            row[playerStates] = Math.max(0, rest);
+            table[living] = row;
+        }
+        return table;
+    }
+
+
+    /**
+     * Prints the exact outcomes of a duel and of the classic three-monster fight at every difficulty.
+     * @param args Unused.
+     */
+    public static void main(String[] args) {
+        int health = GameCharacter.DEFAULT_HEALTH;
+        for (int difficulty = 1; difficulty <= 4; difficulty++) {
+            CombatCalculator calculator = forDifficulty(difficulty);
+            System.out.printf("Difficulty %d: duel %s; three monsters %s%n", difficulty,
+                    calculator.duel(health, health), calculator.fight(health, health, health, health));
+        }
+    }
+}
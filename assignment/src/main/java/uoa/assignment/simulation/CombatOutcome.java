@@ -0,0 +1,67 @@
+package uoa.assignment.simulation;
+
+/**
+ * The exact outcome of a fight, as computed by {@link CombatCalculator}.
+ */
+public class CombatOutcome {
+
+    private final double playerWinProbability;
+    private final double expectedExchanges;
+    private final double expectedPlayerHealth;
+
+
+    /**
+     * Creates a fight outcome.
+     * @param playerWinProbability The probability that every monster dies before the player.
+     * @param expectedExchanges The expected number of exchanges until the fight ends.
+     * @param expectedPlayerHealth The expected health of the player at the end, 0 counted for a loss.
+     */
+    CombatOutcome(double playerWinProbability, double expectedExchanges, double expectedPlayerHealth) {
+        this.playerWinProbability = playerWinProbability;
+        this.expectedExchanges = expectedExchanges;
+        this.expectedPlayerHealth = expectedPlayerHealth;
+    }
+
+
+    /**
+     * Returns the probability that the player wins.
+     * @return The win probability.
+     */
+    public double getPlayerWinProbability() {
+        return playerWinProbability;
+    }
+
+
+    /**
+     * Returns the probability that the player dies.
+     * @return The loss probability.
+     */
+    public double getPlayerLossProbability() {
+        return 1 - playerWinProbability;
+    }
+
+
+    /**
+     * Returns the expected number of exchanges until one side is dead.
+     * @return The expected exchange count.
+     */
+    public double getExpectedExchanges() {
+        return expectedExchanges;
+    }
+
+
+    /**
+     * Returns the expected health of the player when the fight ends, counting a loss as 0.
+     * @return The expected final health.
+     */
+    public double getExpectedPlayerHealth() {
+        return expectedPlayerHealth;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("win %.4f%%, %.3f exchanges, %.2f health left",
+                playerWinProbability * 100, expectedExchanges, expectedPlayerHealth);
+    }
+}
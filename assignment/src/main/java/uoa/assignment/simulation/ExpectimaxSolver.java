@@ -0,0 +1,742 @@
+package uoa.assignment.simulation;
+
+import java.util.Arrays;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+import uoa.assignment.game.Cell;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.Map;
+import uoa.assignment.game.MonsterPolicy;
+
+/**
+ * Finds the player move with the best chance to win by searching the rounds ahead.
+ * The player's moves are max nodes; the monsters' moves and every attack roll are chance nodes weighted
+ * by the game's rules (uniform moves for random monsters, the closest step for chasing ones, the defense
+ * rates for attacks). Positions at the search horizon are scored with the exact fight odds of a
+ * {@link CombatCalculator}, so the value of a move estimates the chance to win the fights ahead: chasing
+ * monsters are scored as one fight against all of them, wandering ones as duels one after another.
+ *
+ * The search deepens one round at a time until the time budget is spent and returns the best move of the
+ * deepest finished iteration. It does not copy the game: a window of the map around the player is read once
+ * into a byte board, and every move is made and unmade on that board together with the positions and
+ * health of the characters. Positions are keyed by a Zobrist hash of the cells, the positions and the health
+ * of the searched characters, so positions reached by different move orders, in this and later searches of
+ * the same game with the same window, are looked up in a transposition table instead of searched again.
+ * Cells the search cannot enter, terrain and the border of the window, have keys of their own, so positions
+ * searched with different windows or walls never share an entry.
+ *
+ * Only the monsters nearest to the player are searched; the others stay where they are for the search,
+ * and every leaf is scored as a fight against all living monsters, searched or not.
+ * Chasing monsters step by straight-line distance, which matches the game's distance field unless dead
+ * monsters are in the way. A solver is not thread-safe; use one per thread.
+ */
+public class ExpectimaxSolver implements MoveSupplier {
+
+    /** Deepest search, in rounds. */
+    public static final int MAX_DEPTH = 64;
+
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private static final byte OUTSIDE = -1;           // Board cells beyond the map or the search window
+    private static final int WINDOW_RADIUS = 10;      // Cells searched around the player in each direction
+    private static final int MAX_MONSTERS = 4;        // Monsters searched, nearest first
+    private static final int DEFAULT_TABLE_BITS = 18; // 2^18 entries, about 4.5 MB
+    private static final int LEAF_BITS = 12;          // Memoized fight odds by health
+    private static final int CLOCK_MASK = 1023;       // The clock is read every 1024 nodes
+    private static final double APPROACH_WEIGHT = 1e-4; // Prefers moving towards the fight when the odds are equal
+    private static final long CELL_SALT = 0x2545F4914F6CDD1DL;
+    private static final long POSITION_SALT = 0x61C8864680B583EBL;
+    private static final long HEALTH_SALT = 0x7FB5D329728EA185L;
+    private static final long POLICY_SALT = 0x1B873593CC9E2D51L;
+    private static final long OUTSIDE_SALT = 0x5BD1E9955BD1E995L;
+
+    private final long budgetNanos;
+    private final int maxDepth;
+
+    // Transposition table, indexed by the low bits of the hash
+    private final long[] tableKeys;
+    private final double[] tableValues;
+    private final byte[] tableDepths;
+    private final int tableMask;
+    private final long[] leafKeys = new long[1 << LEAF_BITS];
+    private final double[] leafValues = new double[1 << LEAF_BITS];
+
+    // The board: the window around the player with a border of OUTSIDE cells
+    private byte[] board = new byte[0];
+    private long[] cellKeys = new long[0];     // Zobrist key of each cell content, 0 for empty cells; OUTSIDE cells never change
+    private long[] positionKeys = new long[0]; // Zobrist key of each searched character on each cell
+    private int[] boardRows = new int[0];
+    private int[] boardColumns = new int[0];
+    private byte[] rowBuffer = new byte[0];
+    private final int[] steps = new int[4];
+    private int boardSize;
+
+    // The searched characters: the player at 0, then the nearest monsters in map order
+    private final int[] ids = new int[MAX_MONSTERS + 1];
+    private final int[] position = new int[MAX_MONSTERS + 1];
+    private final int[] health = new int[MAX_MONSTERS + 1];
+    private final int[] damage = new int[MAX_MONSTERS + 1];
+    private final double[] defense = new double[MAX_MONSTERS + 1];
+    private int count;
+    private int aliveMonsters;
+    private MonsterPolicy policy;
+
+    private CombatCalculator calculator;
+    private double[] calculatorStats; // The stats the calculator was made for
+    private int[] fightHealth = new int[0]; // Searched monsters first, then every other living monster
+    private int otherCount;    // Living monsters that are not searched
+    private long leafSalt;     // Policy and health of the monsters that are not searched, for the leaf cache
+    private long hash;
+    private long healthHash;
+    private long nodes;
+    private long deadline;
+    private int iterationDepth;
+    private boolean aborted;
+
+
+    /**
+     * Creates a solver with the default transposition table.
+     * @param budgetMillis The time a search may take. The first round is always searched in full.
+     * @throws IllegalArgumentException if the budget is negative.
+     */
+    public ExpectimaxSolver(long budgetMillis) {
+        this(budgetMillis, MAX_DEPTH, DEFAULT_TABLE_BITS);
+    }
+
+
+    /**
+     * Creates a solver.
+     * @param budgetMillis The time a search may take. The first round is always searched in full.
+     * @param maxDepth The number of rounds to look ahead at most (1-64).
+     * @param tableBits The transposition table holds 2^tableBits positions (1-30).
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public ExpectimaxSolver(long budgetMillis, int maxDepth, int tableBits) {
+        if (budgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative.");
+        }
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + MAX_DEPTH + ".");
+        }
+        if (tableBits < 1 || tableBits > 30) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^30 entries.");
+        }
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxDepth = maxDepth;
+        this.tableKeys = new long[1 << tableBits];
+        this.tableValues = new double[1 << tableBits];
+        this.tableDepths = new byte[1 << tableBits];
+        this.tableMask = (1 << tableBits) - 1;
+    }
+
+
+    @Override
+    public String nextMove(Game game) {
+        return solve(game).getMove();
+    }
+
+
+    /**
+     * Forgets every searched position, e.g. before searching an unrelated game.
+     */
+    public void clear() {
+        Arrays.fill(tableKeys, 0);
+        Arrays.fill(tableDepths, (byte) 0);
+        Arrays.fill(leafKeys, 0);
+    }
+
+
+    /**
+     * Searches the best move of the player. The game is only read.
+     * @param game The game in its current state.
+     * @return The best move found within the time budget.
+     */
+    public SearchResult solve(Game game) {
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        nodes = 0;
+        iterationDepth = 0;
+        aborted = false;
+        Map map = game.getMap();
+        CharacterStore store = map.getCharacterStore();
+        if (store.health[0] <= 0) {
+            return new SearchResult(MOVES[0], 0, 0, 0, System.nanoTime() - start);
+        }
+        int[] nearest = nearestMonsters(store);
+        if (nearest.length == 0) {
+            return new SearchResult(MOVES[0], 1, 0, 0, System.nanoTime() - start);
+        }
+        policy = game.getMonsterPolicy();
+        load(map, nearest);
+        if (count == 1) {
+            // Every monster is out of reach of the search: head for the nearest one
+            int target = nearest[0];
+            int rowDelta = store.row[target] - store.row[0];
+            int columnDelta = store.column[target] - store.column[0];
+            String move = Math.abs(rowDelta) >= Math.abs(columnDelta) ? (rowDelta < 0 ? "up" : "down")
+                    : (columnDelta < 0 ? "left" : "right");
+            // No monster is searched, so the fight holds every living monster
+            CombatOutcome odds = policy == MonsterPolicy.CHASE ? calculator.fight(store.health[0], fightHealth)
+                    : calculator.fightInTurn(store.health[0], fightHealth);
+            return new SearchResult(move, odds.getPlayerWinProbability(), 0, 0, System.nanoTime() - start);
+        }
+
+        int bestMove = 0;
+        double bestValue = evaluate();
+        int completed = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long iterationStart = System.nanoTime();
+            iterationDepth = depth;
+            int move = 0;
+            double value = -1;
+            for (int m = 0; m < MOVES.length && !aborted; m++) {
+                double moveValue = playerMove(m, depth);
+                if (moveValue > value) {
+                    value = moveValue;
+                    move = m;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            bestMove = move;
+            bestValue = value;
+            completed = depth;
+            store(hash, value, depth);
+            long now = System.nanoTime();
+            // The next iteration takes several times as long: stop if it cannot finish
+            if (now - deadline >= 0 || (now - iterationStart) * 4 > deadline - now) {
+                break;
+            }
+        }
+        return new SearchResult(MOVES[bestMove], bestValue, completed, nodes, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Finds the living monsters nearest to the player.
+     * @param store The character store of the map.
+     * @return Up to MAX_MONSTERS character indices, nearest first.
+     */
+    private int[] nearestMonsters(CharacterStore store) {
+        int[] chosen = new int[MAX_MONSTERS];
+        int[] distances = new int[MAX_MONSTERS];
+        int found = 0;
+        for (int i = 1; i < store.size(); i++) {
+            if (store.kind[i] != CharacterStore.KIND_MONSTER || store.health[i] <= 0) {
+                continue;
+            }
+            int distance = Math.abs(store.row[i] - store.row[0]) + Math.abs(store.column[i] - store.column[0]);
+            if (found == MAX_MONSTERS && distance >= distances[found - 1]) {
+                continue;
+            }
+            // Insert by distance, dropping the farthest when full
+            int slot = found < MAX_MONSTERS ? found++ : found - 1;
+            while (slot > 0 && distances[slot - 1] > distance) {
+                chosen[slot] = chosen[slot - 1];
+                distances[slot] = distances[slot - 1];
+                slot--;
+            }
+            chosen[slot] = i;
+            distances[slot] = distance;
+        }
+        return Arrays.copyOf(chosen, found);
+    }
+
+
+    /**
+     * Reads the window around the player into the board and computes the Zobrist keys and the hash.
+     * @param map The map of the game.
+     * @param nearest The monsters to search, nearest first.
+     */
+    private void load(Map map, int[] nearest) {
+        CharacterStore store = map.getCharacterStore();
+        GameCharacter[] characters = map.characters;
+        int top = Math.max(0, store.row[0] - WINDOW_RADIUS);
+        int bottom = Math.min(map.getHeight() - 1, store.row[0] + WINDOW_RADIUS);
+        int left = Math.max(0, store.column[0] - WINDOW_RADIUS);
+        int right = Math.min(map.getWidth() - 1, store.column[0] + WINDOW_RADIUS);
+        int stride = right - left + 3;
+        boardSize = (bottom - top + 3) * stride;
+        if (board.length < boardSize) {
+            board = new byte[boardSize];
+            cellKeys = new long[boardSize * 4];
+            positionKeys = new long[boardSize * (MAX_MONSTERS + 1)];
+            boardRows = new int[boardSize];
+            boardColumns = new int[boardSize];
+        }
+        if (rowBuffer.length < stride) {
+            rowBuffer = new byte[stride];
+        }
+        Arrays.fill(board, 0, boardSize, OUTSIDE);
+        for (int row = top; row <= bottom; row++) {
+            map.getGrid().readRow(row, left, rowBuffer, right - left + 1);
+            int start = (row - top + 1) * stride + 1;
+            for (int i = 0; i <= right - left; i++) {
+                // Terrain blocks every move like the edge of the map, so it is stored as OUTSIDE
+                board[start + i] = Cell.isTerrain(rowBuffer[i]) ? OUTSIDE : rowBuffer[i];
+            }
+        }
+        steps[0] = -stride;
+        steps[1] = stride;
+        steps[2] = -1;
+        steps[3] = 1;
+
+        // Keys depend on map coordinates only; hashing the OUTSIDE cells by their coordinates
+        // tells apart windows that differ in where the search is blocked
+        hash = GameRandom.mix64(POLICY_SALT + policy.ordinal());
+        for (int i = 0; i < boardSize; i++) {
+            boardRows[i] = i / stride;
+            boardColumns[i] = i - boardRows[i] * stride;
+            int mapRow = top - 1 + boardRows[i];
+            int mapColumn = left - 1 + boardColumns[i];
+            long cell = (long) mapRow * map.getWidth() + mapColumn;
+            cellKeys[i * 4] = 0;
+            for (int content = 1; content < 4; content++) {
+                cellKeys[i * 4 + content] = GameRandom.mix64(CELL_SALT + cell * 4 + content);
+            }
+            if (board[i] == OUTSIDE) {
+                // Border cells lie beyond the map's edges, so they are keyed by row and column, not by cell index
+                hash ^= GameRandom.mix64(OUTSIDE_SALT + ((long) mapRow << 32 ^ (mapColumn & 0xFFFFFFFFL)));
+            } else if (board[i] > 0) {
+                hash ^= cellKeys[i * 4 + board[i]];
+            }
+        }
+
+        count = 0;
+        healthHash = 0;
+        addCharacter(characters[0], 0, top, left, stride, map.getWidth());
+        int[] inMapOrder = nearest.clone();
+        Arrays.sort(inMapOrder); // Monsters act in map order
+        for (int id : inMapOrder) {
+            if (Math.abs(store.row[id] - store.row[0]) <= WINDOW_RADIUS
+                    && Math.abs(store.column[id] - store.column[0]) <= WINDOW_RADIUS) {
+                addCharacter(characters[id], id, top, left, stride, map.getWidth());
+            }
+        }
+        hash ^= healthHash;
+        aliveMonsters = count - 1;
+        loadOthers(store);
+        updateCalculator((Monster) characters[nearest[0]]);
+    }
+
+
+    /**
+     * Puts the health of every living monster that is not searched behind the searched ones in the fight,
+     * and mixes it into the hash and the leaf cache key, since it changes the value of every leaf.
+     * @param store The character store of the map.
+     */
+    private void loadOthers(CharacterStore store) {
+        otherCount = 0;
+        long othersHash = 0;
+        for (int id = 1; id < store.size(); id++) {
+            if (store.kind[id] == CharacterStore.KIND_MONSTER && store.health[id] > 0 && !isSearched(id)) {
+                if (fightHealth.length < count + otherCount) {
+                    fightHealth = Arrays.copyOf(fightHealth, Math.max(count + otherCount, fightHealth.length * 2));
+                }
+                fightHealth[count - 1 + otherCount++] = store.health[id];
+                othersHash ^= healthKey(id, store.health[id]);
+            }
+        }
+        if (fightHealth.length != count - 1 + otherCount) {
+            fightHealth = Arrays.copyOf(fightHealth, count - 1 + otherCount);
+        }
+        hash ^= othersHash;
+        leafSalt = GameRandom.mix64(POLICY_SALT + policy.ordinal()) ^ othersHash;
+    }
+
+
+    /**
+     * Checks whether a character is one of the searched ones.
+     * @param id The index of the character in the map.
+     * @return true if it is searched.
+     */
+    private boolean isSearched(int id) {
+        for (int c = 1; c < count; c++) {
+            if (ids[c] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Adds a character to the search and its position and health to the hash.
+     * @param character The character.
+     * @param id The index of the character in the map.
+     * @param top The first map row in the window.
+     * @param left The first map column in the window.
+     * @param stride The width of the board.
+     * @param mapWidth The width of the map.
+     */
+    private void addCharacter(GameCharacter character, int id, int top, int left, int stride, int mapWidth) {
+        int c = count++;
+        ids[c] = id;
+        position[c] = (character.row - top + 1) * stride + character.column - left + 1;
+        health[c] = character.getHealth();
+        if (character instanceof Player) {
+            damage[c] = Math.max(0, -((Player) character).attackPoint);
+            defense[c] = ((Player) character).defenseSuccessRate;
+        } else {
+            damage[c] = Math.max(0, -((Monster) character).attackPoint);
+            defense[c] = ((Monster) character).defenseSuccessRate;
+        }
+        long salt = POSITION_SALT + ((long) id << 40);
+        for (int i = 0; i < boardSize; i++) {
+            long cell = (long) (top - 1 + boardRows[i]) * mapWidth + left - 1 + boardColumns[i];
+            positionKeys[c * boardSize + i] = GameRandom.mix64(salt ^ cell);
+        }
+        hash ^= positionKeys[c * boardSize + position[c]];
+        healthHash ^= healthKey(id, health[c]);
+    }
+
+
+    /**
+     * Creates the fight calculator for the stats of the game, unless they did not change since the last search.
+     * Searched positions of other stats are forgotten.
+     * @param monster A monster.
+     */
+    private void updateCalculator(Monster monster) {
+        int playerAttack = -damage[0];
+        int monsterAttack = -Math.max(0, -monster.attackPoint);
+        double monsterDefense = monster.defenseSuccessRate;
+        if (calculator == null || calculatorStats[0] != playerAttack || calculatorStats[1] != defense[0]
+                || calculatorStats[2] != monsterAttack || calculatorStats[3] != monsterDefense) {
+            calculator = new CombatCalculator(playerAttack, defense[0], monsterAttack, monsterDefense);
+            calculatorStats = new double[] {playerAttack, defense[0], monsterAttack, monsterDefense};
+            clear();
+        }
+    }
+
+
+    /**
+     * Returns the Zobrist key of a character's health.
+     * @param id The index of the character in the map.
+     * @param value The health.
+     * @return The key.
+     */
+    private static long healthKey(int id, int value) {
+        return GameRandom.mix64(HEALTH_SALT + ((long) id << 32) + value);
+    }
+
+
+    /**
+     * Searches a position where the player is to move.
+     * @param depth The number of rounds left to search.
+     * @return The value of the best move.
+     */
+    private double maxNode(int depth) {
+        int slot = (int) hash & tableMask;
+        if (tableKeys[slot] == hash && tableDepths[slot] >= depth) {
+            return tableValues[slot];
+        }
+        double best = -1;
+        for (int move = 0; move < MOVES.length; move++) {
+            best = Math.max(best, playerMove(move, depth));
+        }
+        if (!aborted) {
+            store(hash, best, depth);
+        }
+        return best;
+    }
+
+
+    /**
+     * Stores a searched position, replacing another position or a shallower search of the same one.
+     * @param key The hash of the position.
+     * @param value Its value.
+     * @param depth The number of rounds it was searched ahead.
+     */
+    private void store(long key, double value, int depth) {
+        int slot = (int) key & tableMask;
+        if (tableKeys[slot] != key || tableDepths[slot] <= depth) {
+            tableKeys[slot] = key;
+            tableValues[slot] = value;
+            tableDepths[slot] = (byte) depth;
+        }
+    }
+
+
+    /**
+     * Plays a move of the player, then the monsters' turn.
+     * @param move The index of the move.
+     * @param depth The number of rounds left to search, including this one.
+     * @return The expected value of the move.
+     */
+    private double playerMove(int move, int depth) {
+        if ((++nodes & CLOCK_MASK) == 0) {
+            checkClock();
+        }
+        if (aborted) {
+            return 0;
+        }
+        int from = position[0];
+        int to = from + steps[move];
+        byte cell = board[to];
+        if (cell == Cell.EMPTY) {
+            move(0, from, to, Cell.PLAYER);
+            double value = monsterPhase(1, depth);
+            move(0, to, from, Cell.PLAYER);
+            return value;
+        }
+        if (cell == Cell.MONSTER) {
+            int monster = monsterAt(to);
+            if (monster > 0) {
+                return strike(0, monster, depth);
+            }
+        }
+        // The edge, a dead monster or a monster outside the search: the player stays
+        return monsterPhase(1, depth);
+    }
+
+
+    /**
+     * Plays the turn of the searched monsters from a given one on, in map order.
+     * @param first The first searched monster still to act.
+     * @param depth The number of rounds left to search, including this one.
+     * @return The expected value of the rest of the round.
+     */
+    private double monsterPhase(int first, int depth) {
+        if (health[0] <= 0) {
+            return 0;
+        }
+        int monster = policy == MonsterPolicy.STATIONARY ? count : first;
+        while (monster < count && health[monster] <= 0) {
+            monster++;
+        }
+        if (monster >= count) {
+            return endRound(depth);
+        }
+        if (policy == MonsterPolicy.CHASE) {
+            return chase(monster, depth);
+        }
+        double value = 0;
+        for (int move = 0; move < MOVES.length; move++) {
+            value += monsterMove(monster, move, depth);
+        }
+        return value / MOVES.length;
+    }
+
+
+    /**
+     * Lets a chasing monster take one of its closest steps to the player, each with equal chance.
+     * A monster with no free step wanders like a random one.
+     * @param monster The monster.
+     * @param depth The number of rounds left to search, including this one.
+     * @return The expected value of the rest of the round.
+     */
+    private double chase(int monster, int depth) {
+        int from = position[monster];
+        int target = position[0];
+        int best = Integer.MAX_VALUE;
+        int choices = 0; // Bit mask of the closest steps
+        for (int move = 0; move < MOVES.length; move++) {
+            int to = from + steps[move];
+            byte cell = board[to];
+            if (cell == OUTSIDE || cell == Cell.DEAD) {
+                continue;
+            }
+            int cost = Math.abs(boardRows[to] - boardRows[target]) + Math.abs(boardColumns[to] - boardColumns[target])
+                    + (cell == Cell.MONSTER ? 2 : 0);
+            if (cost < best) {
+                best = cost;
+                choices = 1 << move;
+            } else if (cost == best) {
+                choices |= 1 << move;
+            }
+        }
+        if (choices == 0) {
+            choices = 0b1111;
+        }
+        double value = 0;
+        for (int move = 0; move < MOVES.length; move++) {
+            if ((choices & (1 << move)) != 0) {
+                value += monsterMove(monster, move, depth);
+            }
+        }
+        return value / Integer.bitCount(choices);
+    }
+
+
+    /**
+     * Plays a move of a monster, then the rest of the round.
+     * @param monster The monster.
+     * @param move The index of the move.
+     * @param depth The number of rounds left to search, including this one.
+     * @return The expected value of the rest of the round.
+     */
+    private double monsterMove(int monster, int move, int depth) {
+        if ((++nodes & CLOCK_MASK) == 0) {
+            checkClock();
+        }
+        if (aborted) {
+            return 0;
+        }
+        int from = position[monster];
+        int to = from + steps[move];
+        byte cell = board[to];
+        if (cell == Cell.EMPTY) {
+            move(monster, from, to, Cell.MONSTER);
+            double value = monsterPhase(monster + 1, depth);
+            move(monster, to, from, Cell.MONSTER);
+            return value;
+        }
+        if (cell == Cell.PLAYER) {
+            return strike(monster, 0, depth);
+        }
+        return monsterPhase(monster + 1, depth);
+    }
+
+
+    /**
+     * Resolves an attack as a chance node over the defender's defense roll, then plays the rest of the round.
+     * @param attacker The attacking character.
+     * @param defender The defending character.
+     * @param depth The number of rounds left to search, including this one.
+     * @return The expected value of the rest of the round.
+     */
+    private double strike(int attacker, int defender, int depth) {
+        double lands = 1 - defense[defender];
+        double value = 0;
+        if (lands > 0) {
+            int before = health[defender];
+            setHealth(defender, Math.max(0, before - damage[attacker]));
+            boolean killed = defender > 0 && health[defender] <= 0;
+            if (killed) {
+                setCell(position[defender], Cell.DEAD);
+                aliveMonsters--;
+            }
+            value += lands * monsterPhase(attacker + 1, depth);
+            if (killed) {
+                setCell(position[defender], Cell.MONSTER);
+                aliveMonsters++;
+            }
+            setHealth(defender, before);
+        }
+        if (lands < 1) {
+            value += (1 - lands) * monsterPhase(attacker + 1, depth);
+        }
+        return value;
+    }
+
+
+    /**
+     * Ends a round: the game is won, the searched monsters are dead and the others are left to fight,
+     * the horizon is reached or the next round is searched.
+     * @param depth The number of rounds left to search, including the one that ends.
+     * @return The value of the position after the round.
+     */
+    private double endRound(int depth) {
+        if (aliveMonsters == 0) {
+            return otherCount == 0 ? 1 : evaluate();
+        }
+        return depth <= 1 ? evaluate() : maxNode(depth - 1);
+    }
+
+
+    /**
+     * Scores a position at the search horizon by the exact odds of fighting every living monster,
+     * slightly lowered the farther the nearest searched one is.
+     * @return The estimated chance to win.
+     */
+    private double evaluate() {
+        if (health[0] <= 0) {
+            return 0;
+        }
+        if (aliveMonsters == 0 && otherCount == 0) {
+            return 1;
+        }
+        long leafKey = healthHash ^ leafSalt;
+        int slot = (int) leafKey & (leafKeys.length - 1);
+        double odds;
+        if (leafKeys[slot] == leafKey) {
+            odds = leafValues[slot];
+        } else {
+            for (int i = 1; i < count; i++) {
+                fightHealth[i - 1] = health[i];
+            }
+            odds = (policy == MonsterPolicy.CHASE ? calculator.fight(health[0], fightHealth)
+                    : calculator.fightInTurn(health[0], fightHealth)).getPlayerWinProbability();
+            leafKeys[slot] = leafKey;
+            leafValues[slot] = odds;
+        }
+        int player = position[0];
+        int nearest = Integer.MAX_VALUE;
+        for (int i = 1; i < count; i++) {
+            if (health[i] > 0) {
+                nearest = Math.min(nearest, Math.abs(boardRows[position[i]] - boardRows[player])
+                        + Math.abs(boardColumns[position[i]] - boardColumns[player]));
+            }
+        }
+        return nearest == Integer.MAX_VALUE ? odds : odds * (1 - APPROACH_WEIGHT * nearest);
+    }
+
+
+    /**
+     * Returns the living searched monster on a board cell.
+     * @param cell The board cell.
+     * @return The monster, or 0 if no searched monster is there.
+     */
+    private int monsterAt(int cell) {
+        for (int i = 1; i < count; i++) {
+            if (position[i] == cell && health[i] > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Moves a character to another board cell, updating the hash. Calling it with the cells swapped unmakes the move.
+     * @param character The character.
+     * @param from The cell it leaves.
+     * @param to The cell it enters.
+     * @param content The cell content of the character.
+     */
+    private void move(int character, int from, int to, byte content) {
+        setCell(from, Cell.EMPTY);
+        setCell(to, content);
+        int keys = character * boardSize;
+        hash ^= positionKeys[keys + from] ^ positionKeys[keys + to];
+        position[character] = to;
+    }
+
+
+    /**
+     * Changes a board cell, updating the hash.
+     * @param cell The board cell.
+     * @param content The new content.
+     */
+    private void setCell(int cell, byte content) {
+        hash ^= cellKeys[cell * 4 + board[cell]] ^ cellKeys[cell * 4 + content];
+        board[cell] = content;
+    }
+
+
+    /**
+     * Changes the health of a character, updating the hash.
+     * @param character The character.
+     * @param value The new health.
+     */
+    private void setHealth(int character, int value) {
+        long change = healthKey(ids[character], health[character]) ^ healthKey(ids[character], value);
+        hash ^= change;
+        healthHash ^= change;
+        health[character] = value;
+    }
+
+
+    /**
+     * Aborts the iteration in progress once the time budget is spent. The first iteration always finishes.
+     */
+    private void checkClock() {
+        if (iterationDepth > 1 && System.nanoTime() - deadline > 0) {
+            aborted = true;
+        }
+    }
+}
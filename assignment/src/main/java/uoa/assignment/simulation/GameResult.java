@@ -0,0 +1,97 @@
+package uoa.assignment.simulation;
+
+/**
+ * The outcome of one simulated game.
+ */
+public class GameResult {
+
+    /**
+     * How a simulated game ended.
+     */
+    public enum Outcome {
+        PLAYER_WON,   // Every monster was defeated
+        PLAYER_DIED,  // The player's health reached zero
+        ROUND_LIMIT   // The game was stopped after the maximum number of rounds
+    }
+
+    private final Outcome outcome;
+    private final int rounds;
+    private final int playerHealth;
+    private final int[] monsterHealth;
+
+
+    /**
+     * Creates a game result.
+     * @param outcome How the game ended.
+     * @param rounds The number of rounds played.
+     * @param playerHealth The player's final health.
+     * @param monsterHealth The final health of every monster, in map order.
+     */
+    public GameResult(Outcome outcome, int rounds, int playerHealth, int[] monsterHealth) {
+        this.outcome = outcome;
+        this.rounds = rounds;
+        this.playerHealth = playerHealth;
+        this.monsterHealth = monsterHealth;
+    }
+
+
+    /**
+     * Returns how the game ended.
+     * @return The outcome.
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+
+    /**
+     * Returns whether the player won.
+     * @return true if every monster was defeated.
+     */
+    public boolean isPlayerWin() {
+        return outcome == Outcome.PLAYER_WON;
+    }
+
+
+    /**
+     * Returns the number of rounds played.
+     * @return The number of rounds.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+
+    /**
+     * Returns the player's health at the end of the game.
+     * @return The final player health.
+     */
+    public int getPlayerHealth() {
+        return playerHealth;
+    }
+
+
+    /**
+     * Returns the final health of a monster.
+     * @param monster The monster number, starting at 1 as in the monster names.
+     * @return The final health of that monster.
+     */
+    public int getMonsterHealth(int monster) {
+        return monsterHealth[monster - 1];
+    }
+
+
+    /**
+     * Returns the number of monsters in the game.
+     * @return The monster count.
+     */
+    public int getMonsterCount() {
+        return monsterHealth.length;
+    }
+
+
+    @Override
+    public String toString() {
+        return outcome + " after " + rounds + " rounds, player health " + playerHealth;
+    }
+}
@@ -0,0 +1,109 @@
+package uoa.assignment.simulation;
+
+import java.util.SplittableRandom;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.game.Cell;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.Map;
+
+/**
+ * Player strategy that always steps towards the nearest living monster.
+ * Distances are Manhattan distances read from the map's character store; ties between the two
+ * useful directions are broken with the supplier's own random source, and defeated monsters and
+ * terrain in the way are walked around.
+ */
+public class GreedyMoveSupplier implements MoveSupplier {
+
+    private final SplittableRandom random;
+
+
+    /**
+     * Creates a greedy player strategy.
+     * @param seed Seed for breaking ties.
+     */
+    public GreedyMoveSupplier(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+
+    @Override
+    public String nextMove(Game game) {
+        CharacterStore store = game.getMap().getCharacterStore();
+        int playerRow = store.row[0];
+        int playerColumn = store.column[0];
+
+        // Find the nearest living monster
+        int target = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 1; i < store.size(); i++) {
+            if (store.health[i] > 0) {
+                int distance = Math.abs(store.row[i] - playerRow) + Math.abs(store.column[i] - playerColumn);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    target = i;
+                }
+            }
+        }
+        if (target < 0) {
+            return "up";
+        }
+
+        int rowDelta = store.row[target] - playerRow;
+        int columnDelta = store.column[target] - playerColumn;
+        boolean vertical;
+        if (rowDelta == 0) {
+            vertical = false;
+        } else if (columnDelta == 0) {
+            vertical = true;
+        } else {
+            vertical = random.nextBoolean();
+        }
+
+        int rowStep = vertical ? Integer.signum(rowDelta) : 0;
+        int columnStep = vertical ? 0 : Integer.signum(columnDelta);
+        Map map = game.getMap();
+        byte next = map.getCell(playerRow + rowStep, playerColumn + columnStep);
+        if (next == Cell.DEAD || Cell.isTerrain(next)) {
+            // A defeated monster or terrain is in the way: step sideways instead of bumping into it forever
+            if (vertical ? columnDelta != 0 : rowDelta != 0) {
+                vertical = !vertical;
+            } else {
+                return sidestep(map, playerRow, playerColumn, vertical);
+            }
+        }
+        if (vertical) {
+            return rowDelta < 0 ? "up" : "down";
+        }
+        return columnDelta < 0 ? "left" : "right";
+    }
+
+
+    /**
+     * Chooses a step perpendicular to the blocked direction, staying inside the map.
+     * @param map The game map.
+     * @param row The player's row.
+     * @param column The player's column.
+     * @param vertical Whether the blocked direction is vertical.
+     * @return The sidestep move.
+     */
+    private String sidestep(Map map, int row, int column, boolean vertical) {
+        boolean first = random.nextBoolean();
+        if (vertical) {
+            if (column == 0) {
+                return "right";
+            }
+            if (column == map.getWidth() - 1) {
+                return "left";
+            }
+            return first ? "left" : "right";
+        }
+        if (row == 0) {
+            return "down";
+        }
+        if (row == map.getHeight() - 1) {
+            return "up";
+        }
+        return first ? "up" : "down";
+    }
+}
@@ -0,0 +1,213 @@
+package uoa.assignment.simulation;
+
+import uoa.assignment.game.BitboardGrid;
+import uoa.assignment.game.ByteGrid;
+import uoa.assignment.game.ChunkedGrid;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.Grid;
+import uoa.assignment.game.Map;
+import uoa.assignment.game.MonsterPolicy;
+import uoa.assignment.game.SpawnStrategy;
+import uoa.assignment.game.TerrainStyle;
+
+/**
+ * Plays complete games with the normal rules and no console output.
+ * The map is stored in a compact {@link ByteGrid}, or a sparse {@link ChunkedGrid} for worlds too large
+ * for one array, and marked headless, so a round costs only the game logic itself. On request the dense
+ * grid is a {@link BitboardGrid} instead, which answers the move checks with single bit tests.
+ */
+public class HeadlessEngine {
+
+    private static final int DEFAULT_MAX_ROUNDS = 100000;
+    private static final int MAX_ROUND_LIMIT = 1_000_000_000;
+    private static final long DENSE_CELL_LIMIT = 1L << 28; // Larger maps use a ChunkedGrid
+
+    private final int height;
+    private final int width;
+    private final int difficulty;
+    private final int monsterCount;
+    private final SpawnStrategy strategy;
+    private int maxRounds = DEFAULT_MAX_ROUNDS;
+    private MonsterPolicy monsterPolicy = MonsterPolicy.RANDOM;
+    private TerrainStyle terrain = TerrainStyle.OPEN;
+    private boolean bitboard;
+
+
+    /**
+     * Creates an engine for the classic setup: three monsters in the corners.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param difficulty The difficulty level (1-4).
+     */
+    public HeadlessEngine(int height, int width, int difficulty) {
+        this(height, width, difficulty, 3, SpawnStrategy.CORNERS);
+    }
+
+
+    /**
+     * Creates an engine with a custom number of monsters.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param difficulty The difficulty level (1-4).
+     * @param monsterCount The number of monsters.
+     * @param strategy How the monsters are placed.
+     * @throws IllegalArgumentException if map size or difficulty level is invalid.
+     */
+    public HeadlessEngine(int height, int width, int difficulty, int monsterCount, SpawnStrategy strategy) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Map size must be positive.");
+        }
+        if (difficulty < 1 || difficulty > 4) {
+            throw new IllegalArgumentException("Invalid difficulty level. Please choose a difficulty between 1 and 4.");
+        }
+        this.height = height;
+        this.width = width;
+        this.difficulty = difficulty;
+        this.monsterCount = monsterCount;
+        this.strategy = strategy;
+    }
+
+
+    /**
+     * Sets the number of rounds after which a game is stopped.
+     * @param maxRounds The round limit.
+     * @throws IllegalArgumentException if the limit is not between 1 and 1,000,000,000.
+     */
+    public void setMaxRounds(int maxRounds) {
+        if (maxRounds <= 0 || maxRounds > MAX_ROUND_LIMIT) {
+            throw new IllegalArgumentException("Round limit must be between 1 and " + MAX_ROUND_LIMIT + ": " + maxRounds);
+        }
+        this.maxRounds = maxRounds;
+    }
+
+
+    /**
+     * Returns the number of rounds after which a game is stopped.
+     * @return The round limit.
+     */
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+
+    /**
+     * Sets how the monsters act in the games of this engine.
+     * @param monsterPolicy The monster policy.
+     */
+    public void setMonsterPolicy(MonsterPolicy monsterPolicy) {
+        this.monsterPolicy = monsterPolicy;
+    }
+
+
+    /**
+     * Sets the terrain generated for the games of this engine.
+     * Every game gets its own map from its seed, also when a game is reset.
+     * @param terrain The kind of terrain.
+     */
+    public void setTerrain(TerrainStyle terrain) {
+        this.terrain = terrain;
+    }
+
+
+    /**
+     * Chooses between a byte per cell and bitboard layers for the maps of this engine.
+     * Maps too large for one array use a ChunkedGrid either way.
+     * @param bitboard true to store maps in a {@link BitboardGrid}.
+     */
+    public void setBitboard(boolean bitboard) {
+        this.bitboard = bitboard;
+    }
+
+
+    /**
+     * Creates a new headless game.
+     * The seed decides the terrain, where the monsters spawn and every roll during the game.
+     * @param seed The seed of the game.
+     * @return A game that prints nothing.
+     */
+    public Game newGame(long seed) {
+        GameRandom random = new GameRandom(seed);
+        Grid grid;
+        if ((long) height * width > DENSE_CELL_LIMIT) {
+            grid = new ChunkedGrid(height, width);
+        } else {
+            grid = bitboard ? new BitboardGrid(height, width) : new ByteGrid(height, width);
+        }
+        Map map = new Map(grid, "Player", monsterCount, strategy, random.nextLong(), terrain);
+        map.setHeadless(true);
+        Game game = new Game(map, difficulty, random);
+        game.setMonsterPolicy(monsterPolicy);
+        return game;
+    }
+
+
+    /**
+     * Starts a new game in a finished game of this engine, reusing its map and characters.
+     * The result is the same game as {@link #newGame(long)} with the same seed, without the allocations.
+     * @param game A game created by {@link #newGame(long)} of this engine.
+     * @param seed The seed of the new game.
+     * @return The game, reset.
+     */
+    public Game resetGame(Game game, long seed) {
+        game.reset(difficulty, seed);
+        game.setMonsterPolicy(monsterPolicy);
+        return game;
+    }
+
+
+    /**
+     * Plays a whole game.
+     * @param seed The seed of the game.
+     * @param moves Supplies the player's input for every round.
+     * @return The result of the game.
+     */
+    public GameResult play(long seed, MoveSupplier moves) {
+        return play(newGame(seed), moves);
+    }
+
+
+    /**
+     * Plays an existing game until it ends or the round limit is reached.
+     * @param game The game to play.
+     * @param moves Supplies the player's input for every round.
+     * @return The result of the game.
+     * @throws IllegalArgumentException if the supplier returns something other than a direction.
+     */
+    public GameResult play(Game game, MoveSupplier moves) {
+        boolean gameOver = false;
+        while (!gameOver && game.getRound() < maxRounds) {
+            String move = moves.nextMove(game);
+            gameOver = game.nextRound(move);
+            if (!game.validateInput) {
+                throw new IllegalArgumentException("Invalid move from supplier: " + move);
+            }
+        }
+        return result(game, gameOver);
+    }
+
+
+    /**
+     * Builds the result of a game.
+     * @param game The game.
+     * @param gameOver Whether the game reached its end.
+     * @return The result.
+     */
+    static GameResult result(Game game, boolean gameOver) {
+        Map map = game.getMap();
+        int playerHealth = map.characters[0].getHealth();
+        int[] monsterHealth = new int[map.characters.length - 1];
+        for (int i = 1; i < map.characters.length; i++) {
+            monsterHealth[i - 1] = map.characters[i].getHealth();
+        }
+        GameResult.Outcome outcome;
+        if (!gameOver) {
+            outcome = GameResult.Outcome.ROUND_LIMIT;
+        } else if (playerHealth <= 0) {
+            outcome = GameResult.Outcome.PLAYER_DIED;
+        } else {
+            outcome = GameResult.Outcome.PLAYER_WON;
+        }
+        return new GameResult(outcome, game.getRound(), playerHealth, monsterHealth);
+    }
+}
@@ -0,0 +1,455 @@
+package uoa.assignment.simulation;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.MonsterPolicy;
+import uoa.assignment.game.SpawnStrategy;
+
+/**
+ * Automated player that chooses each move with a Monte Carlo tree search, for soak tests of the engine
+ * and for measuring how hard the difficulty levels are.
+ *
+ * Every rollout copies the game into a {@link Game#fork(GameRandom) fork} owned by its worker, walks down
+ * the tree by UCT, playing each chosen move with {@link Game#nextRound(String)}, adds one node, and plays
+ * the rest of the game greedily up to a round limit. A won game scores 1, a lost one 0, and an unfinished
+ * one the exact odds of the remaining fights from a {@link CombatCalculator}. Scores shrink by a small factor
+ * per round played, so of two equally safe moves the one that ends the game sooner wins. The tree stores statistics
+ * per move sequence, so the same node averages over the monsters' moves and the attack rolls.
+ *
+ * Several workers search one shared tree. A worker counts its visit on the way down and adds the reward on
+ * the way back, so until then the visit counts as a loss and the other workers prefer other moves.
+ * The search ends when the time budget or the rollout budget is spent, whichever comes first.
+ * The calling thread is one of the workers; the others run on a pool of threads that the player keeps
+ * from search to search until it is {@link #close() closed}.
+ * Rollouts are played on forks that are not {@link uoa.assignment.game.Map#isRecorded() recorded}, so they
+ * do not count in the game metrics or Flight Recorder events; only the moves really played do.
+ */
+public class MctsPlayer implements MoveSupplier, AutoCloseable {
+
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private static final double EXPLORATION = Math.sqrt(2); // UCT exploration constant for rewards in [0, 1]
+    private static final double SCALE = 1 << 20;            // Rewards are summed in fixed point
+    private static final double DISCOUNT = 0.99;            // Score factor per round of a rollout
+    private static final int DEFAULT_ROLLOUT_ROUNDS = 100;  // Rounds played after leaving the tree
+    private static final int MAX_GAME_ROUNDS = 1000;        // Games of the command line runs are cut off here
+
+    private final int threads;
+    private final long budgetMillis;
+    private final long budgetRollouts;
+    private final long seed;
+    private int rolloutRounds = DEFAULT_ROLLOUT_ROUNDS;
+    private long searches;
+    private long totalRollouts;
+    private long totalNanos;
+    private ExecutorService workers; // The other workers of a search, created by the first search that needs them
+    private boolean closed;
+
+    // Forks of the last game searched, one per worker, reused while the same game is played
+    private Game forkedFrom;
+    private Game[] forks;
+    private MoveSupplier[] playouts;
+
+
+    /**
+     * Creates an automated player.
+     * @param threads The number of worker threads per search.
+     * @param budgetMillis The time a search may take, or 0 for no time limit.
+     * @param budgetRollouts The number of rollouts a search may play, or 0 for no limit.
+     * @param seed The seed of the rollouts. Searches on several threads are not reproducible.
+     * @throws IllegalArgumentException if the thread count is not positive, a budget is negative or both are 0.
+     */
+    public MctsPlayer(int threads, long budgetMillis, long budgetRollouts, long seed) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        if (budgetMillis < 0 || budgetRollouts < 0 || budgetMillis == 0 && budgetRollouts == 0) {
+            throw new IllegalArgumentException("A search needs a positive time or rollout budget.");
+        }
+        this.threads = threads;
+        this.budgetMillis = budgetMillis;
+        this.budgetRollouts = budgetRollouts;
+        this.seed = seed;
+    }
+
+
+    /**
+     * Sets how many rounds a rollout plays after leaving the tree before it is scored.
+     * @param rolloutRounds The round limit of a rollout.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public void setRolloutRounds(int rolloutRounds) {
+        if (rolloutRounds < 0) {
+            throw new IllegalArgumentException("Rollout length must not be negative.");
+        }
+        this.rolloutRounds = rolloutRounds;
+    }
+
+
+    /**
+     * Returns the mean search speed of every search so far.
+     * @return The number of rollouts per second.
+     */
+    public double getRolloutsPerSecond() {
+        return totalNanos == 0 ? 0 : totalRollouts * 1e9 / totalNanos;
+    }
+
+
+    @Override
+    public String nextMove(Game game) {
+        return search(game).getMove();
+    }
+
+
+    /**
+     * Searches the best move of the player. The game is only read.
+     * @param game The game in its current state.
+     * @return The chosen move and the statistics of the search.
+     * @throws IllegalArgumentException if the map is too large to fork.
+     * @throws IllegalStateException if the player is closed.
+     */
+    public MctsResult search(Game game) {
+        if (closed) {
+            throw new IllegalStateException("Player is closed.");
+        }
+        long start = System.nanoTime();
+        prepareForks(game);
+        Search search = new Search(game, start + budgetMillis * 1_000_000L);
+        Future<?>[] running = new Future<?>[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            int worker = t;
+            running[t - 1] = workers().submit(() -> search.work(worker));
+        }
+        try {
+            search.work(0);
+        } finally {
+            search.stopped = true;
+            awaitWorkers(running);
+        }
+        searches++;
+
+        // The most visited move is the most reliable one
+        int best = 0;
+        long bestVisits = -1;
+        double value = 0;
+        for (int move = 0; move < MOVES.length; move++) {
+            Node child = search.root.children.get(move);
+            if (child != null && child.visits.get() > bestVisits) {
+                best = move;
+                bestVisits = child.visits.get();
+                value = child.mean();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long rollouts = search.completed.get();
+        totalRollouts += rollouts;
+        totalNanos += nanos;
+        return new MctsResult(MOVES[best], value, rollouts, search.nodes.get(), search.depth.get(), threads, nanos);
+    }
+
+
+    /**
+     * Stops the worker threads. Searches are no longer possible afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Returns the pool of the workers besides the calling thread, starting it on first use.
+     * @return The worker pool.
+     */
+    private ExecutorService workers() {
+        if (workers == null) {
+            AtomicInteger count = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(threads - 1, task -> {
+                Thread thread = new Thread(task, "mcts-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+
+    /**
+     * Waits until the other workers of a search are done, so that none of them still plays on its fork.
+     * An interrupt is passed on once the workers are done.
+     * @param running The workers besides the calling thread.
+     * @throws IllegalStateException if a worker failed.
+     */
+    private static void awaitWorkers(Future<?>[] running) {
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (Future<?> worker : running) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("A search worker failed.", failure);
+        }
+    }
+
+
+    /**
+     * Forks the game once per worker, or keeps the forks of the previous search of the same game.
+     * @param game The game to search.
+     */
+    private void prepareForks(Game game) {
+        if (forkedFrom == game) {
+            return;
+        }
+        forks = new Game[threads];
+        playouts = new MoveSupplier[threads];
+        for (int t = 0; t < threads; t++) {
+            long workerSeed = BatchSimulator.mix(seed + t);
+            forks[t] = game.fork(new GameRandom(workerSeed));
+            playouts[t] = new GreedyMoveSupplier(workerSeed);
+        }
+        forkedFrom = game;
+    }
+
+
+    /**
+     * A node of the search tree: the statistics of one sequence of player moves.
+     */
+    private static class Node {
+        private final AtomicReferenceArray<Node> children = new AtomicReferenceArray<>(MOVES.length);
+        private final AtomicLong visits = new AtomicLong();
+        private final AtomicLong reward = new AtomicLong(); // Sum of rewards, in units of 1 / SCALE
+
+
+        /**
+         * Returns the mean reward of the rollouts through this node. Rollouts still running count as losses.
+         * @return The mean reward.
+         */
+        private double mean() {
+            long count = visits.get();
+            return count == 0 ? 0 : reward.get() / SCALE / count;
+        }
+    }
+
+
+    /**
+     * The state shared by the workers of one search.
+     */
+    private class Search {
+        private final Game origin;
+        private final long deadline;
+        private final Node root = new Node();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong nodes = new AtomicLong(1);
+        private final AtomicInteger depth = new AtomicInteger();
+        private final CombatCalculator calculator;
+        private final boolean chase;
+        private volatile boolean stopped;
+
+
+        /**
+         * Creates the search of a game.
+         * @param origin The game to search, which is only read.
+         * @param deadline The time at which the workers stop, if there is a time budget.
+         */
+        Search(Game origin, long deadline) {
+            this.origin = origin;
+            this.deadline = deadline;
+            this.chase = origin.getMonsterPolicy() == MonsterPolicy.CHASE;
+            CombatCalculator odds = null;
+            for (int i = 1; i < origin.getMap().characters.length && odds == null; i++) {
+                odds = CombatCalculator.of((Player) origin.getMap().characters[0], (Monster) origin.getMap().characters[i]);
+            }
+            this.calculator = odds;
+        }
+
+
+        /**
+         * Plays rollouts until a budget is spent, another worker stops the search or the thread is interrupted.
+         * @param worker The index of the worker, which owns the fork and playout of that index.
+         */
+        void work(int worker) {
+            Game fork = forks[worker];
+            MoveSupplier playout = playouts[worker];
+            Node[] path = new Node[16];
+            while (!stopped) {
+                long rollout = started.incrementAndGet();
+                if (budgetRollouts > 0 && rollout > budgetRollouts
+                        || budgetMillis > 0 && System.nanoTime() - deadline > 0
+                        || Thread.currentThread().isInterrupted()) {
+                    stopped = true;
+                    break;
+                }
+                if (path.length < depth.get() + 2) {
+                    path = new Node[path.length * 2];
+                }
+                rollout(fork, playout, path);
+                completed.incrementAndGet();
+            }
+        }
+
+
+        /**
+         * Plays one rollout: selection and expansion in the tree, a greedy playout, then backpropagation.
+         * @param fork The worker's copy of the game.
+         * @param playout The worker's strategy after the tree.
+         * @param path Space for the nodes visited.
+         */
+        private void rollout(Game fork, MoveSupplier playout, Node[] path) {
+            fork.copyFrom(origin);
+            Node node = root;
+            node.visits.incrementAndGet();
+            int length = 0;
+            boolean over = isOver(fork);
+            // Selection: follow UCT until a new node is added or the game ends
+            while (!over && length < path.length) {
+                int move = select(node);
+                Node child = node.children.get(move);
+                if (child == null) {
+                    if (node.children.compareAndSet(move, null, new Node())) {
+                        nodes.incrementAndGet();
+                    }
+                    child = node.children.get(move);
+                }
+                long visits = child.visits.getAndIncrement(); // The virtual loss, until the reward is added
+                path[length++] = child;
+                over = fork.nextRound(MOVES[move]);
+                node = child;
+                if (visits == 0) {
+                    break;
+                }
+            }
+            depth.accumulateAndGet(length, Math::max);
+            // Playout: greedy moves until the game ends or the round limit
+            int round = 0;
+            for (; !over && round < rolloutRounds; round++) {
+                over = fork.nextRound(playout.nextMove(fork));
+            }
+            long reward = Math.round(score(fork) * Math.pow(DISCOUNT, length + round) * SCALE);
+            root.reward.addAndGet(reward);
+            for (int i = 0; i < length; i++) {
+                path[i].reward.addAndGet(reward);
+            }
+        }
+
+
+        /**
+         * Picks the move to follow from a node by UCT. Moves not tried yet are picked first.
+         * @param node The node.
+         * @return The index of the move.
+         */
+        private int select(Node node) {
+            double logVisits = Math.log(Math.max(1, node.visits.get()));
+            int best = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < MOVES.length; move++) {
+                Node child = node.children.get(move);
+                if (child == null || child.visits.get() == 0) {
+                    return move;
+                }
+                double score = child.mean() + EXPLORATION * Math.sqrt(logVisits / child.visits.get());
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+
+        /**
+         * Scores the end of a rollout.
+         * @param fork The worker's copy of the game.
+         * @return 1 if the player won, 0 if the player died, otherwise the odds of the remaining fights.
+         */
+        private double score(Game fork) {
+            CharacterStore store = fork.getMap().getCharacterStore();
+            if (store.health[0] <= 0) {
+                return 0;
+            }
+            int alive = store.countAlive(CharacterStore.KIND_MONSTER);
+            if (alive == 0) {
+                return 1;
+            }
+            int[] monsterHealth = new int[alive];
+            for (int i = 1, m = 0; i < store.size(); i++) {
+                if (store.kind[i] == CharacterStore.KIND_MONSTER && store.health[i] > 0) {
+                    monsterHealth[m++] = store.health[i];
+                }
+            }
+            CombatOutcome odds = chase ? calculator.fight(store.health[0], monsterHealth)
+                    : calculator.fightInTurn(store.health[0], monsterHealth);
+            return odds.getPlayerWinProbability();
+        }
+    }
+
+
+    /**
+     * Checks whether a game has ended.
+     * @param game The game.
+     * @return true if the player died or every monster is dead.
+     */
+    private static boolean isOver(Game game) {
+        CharacterStore store = game.getMap().getCharacterStore();
+        return store.health[0] <= 0 || store.countAlive(CharacterStore.KIND_MONSTER) == 0;
+    }
+
+
+    /**
+     * Plays games with the automated player and prints the results and the search speed.
+     * Arguments: height width difficulty [threads] [budgetMillis] [games] [seed] [policy]
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: MctsPlayer height width difficulty [threads] [budgetMillis] [games] [seed] [RANDOM|STATIONARY|CHASE]");
+            return;
+        }
+        int height = Integer.parseInt(args[0]);
+        int width = Integer.parseInt(args[1]);
+        int difficulty = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long budgetMillis = args.length > 4 ? Long.parseLong(args[4]) : 50;
+        int games = args.length > 5 ? Integer.parseInt(args[5]) : 20;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+        MonsterPolicy policy = args.length > 7 ? MonsterPolicy.valueOf(args[7].toUpperCase()) : MonsterPolicy.RANDOM;
+
+        HeadlessEngine engine = new HeadlessEngine(height, width, difficulty, 3, SpawnStrategy.CORNERS);
+        engine.setMonsterPolicy(policy);
+        engine.setMaxRounds(MAX_GAME_ROUNDS);
+        BatchReport report = new BatchReport();
+        try (MctsPlayer player = new MctsPlayer(threads, budgetMillis, 0, seed)) {
+            for (int i = 0; i < games; i++) {
+                report.add(engine.play(BatchSimulator.mix(seed + i), player));
+            }
+            System.out.println(report);
+            System.out.printf("%d searches, %.0f rollouts/s on %d threads%n", player.searches, player.getRolloutsPerSecond(), threads);
+        }
+    }
+}
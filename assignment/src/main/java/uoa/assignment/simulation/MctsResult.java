@@ -0,0 +1,115 @@
+package uoa.assignment.simulation;
+
+/**
+ * The move chosen by an {@link MctsPlayer} search, with the statistics of the search.
+ */
+public class MctsResult {
+
+    private final String move;
+    private final double value;
+    private final long rollouts;
+    private final long treeNodes;
+    private final int treeDepth;
+    private final int threads;
+    private final long nanos;
+
+
+    /**
+     * Creates a search result.
+     * @param move The chosen move.
+     * @param value The mean reward of the rollouts through the move.
+     * @param rollouts The number of rollouts played.
+     * @param treeNodes The number of nodes in the search tree.
+     * @param treeDepth The depth of the deepest tree node, in rounds.
+     * @param threads The number of worker threads.
+     * @param nanos The time the search took.
+     */
+    MctsResult(String move, double value, long rollouts, long treeNodes, int treeDepth, int threads, long nanos) {
+        this.move = move;
+        this.value = value;
+        this.rollouts = rollouts;
+        this.treeNodes = treeNodes;
+        this.treeDepth = treeDepth;
+        this.threads = threads;
+        this.nanos = nanos;
+    }
+
+
+    /**
+     * Returns the chosen move.
+     * @return One of "up", "down", "left" or "right".
+     */
+    public String getMove() {
+        return move;
+    }
+
+
+    /**
+     * Returns the mean reward of the rollouts through the chosen move.
+     * @return An estimate of the chance to win, between 0 and 1.
+     */
+    public double getValue() {
+        return value;
+    }
+
+
+    /**
+     * Returns the number of rollouts played.
+     * @return The rollout count of all workers.
+     */
+    public long getRollouts() {
+        return rollouts;
+    }
+
+
+    /**
+     * Returns the size of the search tree.
+     * @return The number of nodes, the root included.
+     */
+    public long getTreeNodes() {
+        return treeNodes;
+    }
+
+
+    /**
+     * Returns how far the tree reached.
+     * @return The depth of the deepest node, in rounds.
+     */
+    public int getTreeDepth() {
+        return treeDepth;
+    }
+
+
+    /**
+     * Returns the number of worker threads that searched.
+     * @return The thread count.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+
+    /**
+     * Returns the time the search took.
+     * @return The duration in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+
+    /**
+     * Returns the search speed.
+     * @return The number of rollouts per second, over all workers.
+     */
+    public double getRolloutsPerSecond() {
+        return nanos == 0 ? 0 : rollouts * 1e9 / nanos;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%s (win %.1f%%, %d rollouts on %d threads in %.0f ms, %.0f rollouts/s, %d nodes, depth %d)",
+                move, value * 100, rollouts, threads, nanos / 1e6, getRolloutsPerSecond(), treeNodes, treeDepth);
+    }
+}
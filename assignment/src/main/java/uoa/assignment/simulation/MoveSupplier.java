@@ -0,0 +1,16 @@
+package uoa.assignment.simulation;
+
+import uoa.assignment.game.Game;
+
+/**
+ * Supplies the player's input for each round of a simulated game.
+ */
+public interface MoveSupplier {
+
+    /**
+     * Chooses the next player move.
+     * @param game The game in its current state.
+     * @return One of "up", "down", "left" or "right".
+     */
+    String nextMove(Game game);
+}
@@ -0,0 +1,29 @@
+package uoa.assignment.simulation;
+
+import java.util.SplittableRandom;
+
+import uoa.assignment.game.Game;
+
+/**
+ * Player strategy that moves in a uniformly random direction every round.
+ */
+public class RandomMoveSupplier implements MoveSupplier {
+
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private final SplittableRandom random;
+
+
+    /**
+     * Creates a random player strategy.
+     * @param seed Seed of the supplier's random source.
+     */
+    public RandomMoveSupplier(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+
+    @Override
+    public String nextMove(Game game) {
+        return MOVES[random.nextInt(MOVES.length)];
+    }
+}
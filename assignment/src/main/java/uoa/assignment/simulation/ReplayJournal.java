@@ -0,0 +1,340 @@
+package uoa.assignment.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uoa.assignment.character.CharacterStore;
+import uoa.assignment.game.Game;
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.MonsterPolicy;
+import uoa.assignment.game.SpawnStrategy;
+
+/**
+ * A compact record of one game: the seed, the map parameters and the player's valid moves.
+ * Since a game is fully determined by its seed and inputs, this is enough to play it again.
+ * Moves are packed four to a byte. A fingerprint of the final state is kept so a replay can
+ * check that it ended the same way.
+ *
+ * Journals are written back to back with {@link #writeTo(DataOutput)}, so any number of games
+ * can be archived in one file and read again with {@link #readFrom(DataInput)}.
+ */
+public class ReplayJournal {
+
+    private static final int MAGIC = 0x474A524E; // "GJRN"
+    private static final byte VERSION = 1;
+    private static final String[] MOVES = {"up", "down", "left", "right"}; // Indexed by 2-bit code
+    private static final int READ_CHUNK = 1 << 16; // Moves are read in chunks, so a corrupt count cannot allocate more than the input holds
+
+    private final long seed;
+    private final int height;
+    private final int width;
+    private final String playerName;
+    private final int difficulty;
+    private final int monsterCount;
+    private final SpawnStrategy strategy;
+    private final MonsterPolicy policy;
+    private byte[] moves = new byte[16]; // Four 2-bit moves per byte, first move in the lowest bits
+    private int moveCount;
+    private long fingerprint;
+
+
+    /**
+     * Creates an empty journal for a game.
+     * @param seed The seed of the game.
+     * @param height The height of the map.
+     * @param width The width of the map.
+     * @param playerName The name of the player.
+     * @param difficulty The difficulty level of the game.
+     * @param monsterCount The number of monsters.
+     * @param strategy How the monsters were placed.
+     * @param policy How the monsters act.
+     */
+    public ReplayJournal(long seed, int height, int width, String playerName, int difficulty,
+                         int monsterCount, SpawnStrategy strategy, MonsterPolicy policy) {
+        this.seed = seed;
+        this.height = height;
+        this.width = width;
+        this.playerName = playerName;
+        this.difficulty = difficulty;
+        this.monsterCount = monsterCount;
+        this.strategy = strategy;
+        this.policy = policy;
+    }
+
+
+    /**
+     * Appends a valid player move.
+     * @param move "up", "down", "left" or "right".
+     * @throws IllegalArgumentException if the move is not a direction.
+     */
+    public void record(String move) {
+        int code = encode(move);
+        if (moveCount >> 2 == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount >> 2] |= (byte) (code << ((moveCount & 3) << 1));
+        moveCount++;
+    }
+
+
+    /**
+     * Stores the fingerprint of the game's state once no more moves will be recorded.
+     * @param game The recorded game.
+     */
+    public void finish(Game game) {
+        this.fingerprint = fingerprint(game);
+    }
+
+
+    /**
+     * Returns the move with the given index.
+     * @param index The index of the move, starting at 0.
+     * @return The move.
+     */
+    public String getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
+        }
+        return MOVES[(moves[index >> 2] >> ((index & 3) << 1)) & 3];
+    }
+
+
+    /**
+     * Returns the number of recorded moves.
+     * @return The move count.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+
+    /**
+     * Returns the seed of the recorded game.
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+
+    /**
+     * Returns the fingerprint of the final state of the recorded game.
+     * @return The fingerprint stored by {@link #finish(Game)}.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+
+    /**
+     * Creates a headless game with the same parameters and seed as the recorded one.
+     * @return A new game in its initial state.
+     */
+    public Game newGame() {
+        HeadlessEngine engine = new HeadlessEngine(height, width, difficulty, monsterCount, strategy);
+        engine.setMonsterPolicy(policy);
+        return engine.newGame(seed);
+    }
+
+
+    /**
+     * Plays the recorded moves on a new headless game.
+     * @return The game after the last recorded move.
+     */
+    public Game replay() {
+        Game game = newGame();
+        for (int i = 0; i < moveCount; i++) {
+            game.nextRound(getMove(i));
+        }
+        return game;
+    }
+
+
+    /**
+     * Replays the game and checks that it ends in the recorded state.
+     * @return true if the final state matches the fingerprint.
+     */
+    public boolean verify() {
+        return fingerprint(replay()) == fingerprint;
+    }
+
+
+    /**
+     * Writes this journal.
+     * @param out The output to write to.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(height);
+        out.writeInt(width);
+        out.writeUTF(playerName);
+        out.writeByte(difficulty);
+        out.writeInt(monsterCount);
+        out.writeByte(strategy.ordinal());
+        out.writeByte(policy.ordinal());
+        out.writeInt(moveCount);
+        out.write(moves, 0, (moveCount + 3) >> 2);
+        out.writeLong(fingerprint);
+    }
+
+
+    /**
+     * Reads a journal written by {@link #writeTo(DataOutput)}.
+     * @param in The input to read from.
+     * @return The journal.
+     * @throws IOException if reading fails or the data is not a journal.
+     */
+    public static ReplayJournal readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a replay journal.");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version + ".");
+        }
+        long seed = in.readLong();
+        int height = in.readInt();
+        int width = in.readInt();
+        String playerName = in.readUTF();
+        int difficulty = in.readByte();
+        int monsterCount = in.readInt();
+        SpawnStrategy strategy = SpawnStrategy.values()[readOrdinal(in, SpawnStrategy.values().length, "spawn strategy")];
+        MonsterPolicy policy = MonsterPolicy.values()[readOrdinal(in, MonsterPolicy.values().length, "monster policy")];
+        int moveCount = in.readInt();
+        if (moveCount < 0) {
+            throw new IOException("Corrupt journal: negative move count.");
+        }
+        ReplayJournal journal = new ReplayJournal(seed, height, width, playerName, difficulty, monsterCount, strategy, policy);
+        // The array grows only as the moves actually arrive; a count past the end of the input fails with EOFException
+        int moveBytes = (int) (((long) moveCount + 3) >> 2);
+        byte[] moves = new byte[Math.max(16, Math.min(moveBytes, READ_CHUNK))];
+        for (int read = 0; read < moveBytes; ) {
+            int length = Math.min(moveBytes - read, READ_CHUNK);
+            if (read + length > moves.length) {
+                moves = Arrays.copyOf(moves, (int) Math.min(moveBytes, 2L * moves.length));
+            }
+            in.readFully(moves, read, length);
+            read += length;
+        }
+        journal.moves = moves;
+        journal.moveCount = moveCount;
+        journal.fingerprint = in.readLong();
+        return journal;
+    }
+
+
+    /**
+     * Reads the ordinal of an enum constant and checks that it names one.
+     * @param in The input to read from.
+     * @param count The number of constants of the enum.
+     * @param what The name of the field, for the error message.
+     * @return The ordinal.
+     * @throws IOException if reading fails or the ordinal is out of range.
+     */
+    private static int readOrdinal(DataInput in, int count, String what) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IOException("Corrupt journal: unknown " + what + " " + ordinal + ".");
+        }
+        return ordinal;
+    }
+
+
+    /**
+     * Computes a fingerprint of a game's state: the round count and every character's health and position.
+     * @param game The game.
+     * @return The fingerprint.
+     */
+    public static long fingerprint(Game game) {
+        CharacterStore store = game.getMap().getCharacterStore();
+        long hash = GameRandom.mix64(game.getRound());
+        for (int i = 0; i < store.size(); i++) {
+            hash = GameRandom.mix64(hash ^ store.health[i]);
+            hash = GameRandom.mix64(hash ^ ((long) store.row[i] << 32 | (store.column[i] & 0xFFFFFFFFL)));
+        }
+        return hash;
+    }
+
+
+    /**
+     * Returns the 2-bit code of a move.
+     * @param move The move.
+     * @return The code.
+     * @throws IllegalArgumentException if the move is not a direction.
+     */
+    private static int encode(String move) {
+        switch (move) {
+            case "up":
+                return 0;
+            case "down":
+                return 1;
+            case "left":
+                return 2;
+            case "right":
+                return 3;
+            default:
+                throw new IllegalArgumentException("Only directions can be recorded: " + move);
+        }
+    }
+
+
+    /**
+     * Reads every journal stored back to back in a file.
+     * @param in The input positioned at the first journal.
+     * @return The journals in file order.
+     * @throws IOException if reading fails or the file holds something other than journals.
+     */
+    public static List<ReplayJournal> readAll(DataInputStream in) throws IOException {
+        List<ReplayJournal> journals = new ArrayList<>();
+        while (true) {
+            in.mark(1);
+            if (in.read() < 0) {
+                return journals;
+            }
+            in.reset();
+            try {
+                journals.add(readFrom(in));
+            } catch (EOFException e) {
+                throw new IOException("Truncated journal after " + journals.size() + " games.", e);
+            }
+        }
+    }
+
+
+    /**
+     * Replays every journal in the given files in parallel and reports the games whose final state differs,
+     * e.g. to check archived games against changed rules.
+     * Arguments: journal files.
+     * @param args The journal files.
+     * @throws IOException if a file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: ReplayJournal file...");
+            return;
+        }
+        List<ReplayJournal> journals = new ArrayList<>();
+        for (String file : args) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(file))))) {
+                journals.addAll(readAll(in));
+            }
+        }
+        long start = System.nanoTime();
+        long mismatches = journals.parallelStream().filter(journal -> !journal.verify()).count();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d games in %.2f s (%.0f games/s), %d with a different final state%n",
+                journals.size(), seconds, journals.size() / Math.max(seconds, 1e-9), mismatches);
+    }
+}
@@ -0,0 +1,91 @@
+package uoa.assignment.simulation;
+
+/**
+ * The move recommended by an {@link ExpectimaxSolver} search, with the statistics of the search.
+ */
+public class SearchResult {
+
+    private final String move;
+    private final double value;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+
+
+    /**
+     * Creates a search result.
+     * @param move The recommended move.
+     * @param value The expected value of the move, an estimate of the chance to win.
+     * @param depth The number of rounds the last completed iteration looked ahead.
+     * @param nodes The number of positions visited by the whole search.
+     * @param nanos The time the search took.
+     */
+    SearchResult(String move, double value, int depth, long nodes, long nanos) {
+        this.move = move;
+        this.value = value;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+
+    /**
+     * Returns the recommended move.
+     * @return One of "up", "down", "left" or "right".
+     */
+    public String getMove() {
+        return move;
+    }
+
+
+    /**
+     * Returns the expected value of the recommended move.
+     * @return An estimate of the chance to win, between 0 and 1.
+     */
+    public double getValue() {
+        return value;
+    }
+
+
+    /**
+     * Returns how many rounds the search looked ahead.
+     * @return The depth of the last completed iteration, 0 if the move was not searched.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+
+    /**
+     * Returns the number of positions visited.
+     * @return The node count of all iterations.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+
+    /**
+     * Returns the time the search took.
+     * @return The duration in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+
+    /**
+     * Returns the search speed.
+     * @return The number of positions visited per second.
+     */
+    public double getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%s (win %.1f%%, %d rounds ahead, %d nodes in %.0f ms)",
+                move, value * 100, depth, nodes, nanos / 1e6);
+    }
+}
@@ -0,0 +1,123 @@
+package uoa.assignment.event;
+
+import uoa.assignment.game.*;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for the event sinks the game reports to.
+ */
+public class EventTests
+   {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream ();
+    private final PrintStream originalOut = System.out;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setOut (new PrintStream (outContent));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.setOut (originalOut);
+    }
+
+
+    @Test
+    public void checkRecordingSinkSeesRoundEvents()
+    {
+        Game game = new Game (5,5);
+        RecordingEventSink events = new RecordingEventSink ();
+        game.getMap().setEventSink (events);
+        outContent.reset();
+
+        game.nextRound ("right");
+        game.nextRound ("jump");
+
+        assertEquals ("", outContent.toString());
+        assertEquals (2, events.count (GameEvent.Type.ROUND_START));
+        assertEquals (1, events.count (GameEvent.Type.INVALID_INPUT));
+        assertEquals (1, events.count (GameEvent.Type.ROUND_END));
+        List<GameEvent> blocked = events.getEvents (GameEvent.Type.BLOCKED_MOVE);
+        assertEquals ("Player", blocked.get(0).getActorName());
+        assertEquals (GameEvent.BlockReason.EDGE, blocked.get(0).getReason());
+        assertEquals ("right", blocked.get(0).getDirection());
+    }
+
+
+    @Test
+    public void checkHitReportsDamage()
+    {
+        Game game = new Game (5,5);
+        game.setMonsterPolicy (MonsterPolicy.STATIONARY);
+        RecordingEventSink events = new RecordingEventSink ();
+        game.getMap().setEventSink (events);
+        // Walk the player next to the monster in the bottom-left corner, then attack until it falls
+        for (int i = 0; i < 3; i++) {
+            game.nextRound ("left");
+        }
+        while (game.getMap().characters[2].getHealth() > 0) {
+            game.nextRound ("left");
+        }
+
+        for (GameEvent hit : events.getEvents (GameEvent.Type.HIT)) {
+            assertEquals (50, hit.getDamage());
+        }
+        assertEquals (2, events.count (GameEvent.Type.HIT));
+        assertEquals (1, events.count (GameEvent.Type.DEATH));
+        assertEquals ("Monster2", events.getEvents (GameEvent.Type.DEATH).get(0).getTargetName());
+    }
+
+
+    @Test
+    public void checkFileSinkWritesOneLinePerEvent() throws Exception
+    {
+        Path file = Files.createTempFile ("events", ".log");
+        try {
+            AsyncFileEventSink events = new AsyncFileEventSink (file);
+            Game game = new Game (5,5);
+            game.getMap().setEventSink (events);
+            game.nextRound ("up");
+            game.nextRound ("jump");
+            events.close();
+
+            List<String> lines = Files.readAllLines (file, StandardCharsets.UTF_8);
+            assertEquals ("ROUND_START round=1", lines.get(0));
+            assertEquals ("MOVE actor=Player direction=up", lines.get(1));
+            assertTrue (lines.contains ("ROUND_END round=1"));
+            assertTrue (lines.contains ("INVALID_INPUT actor=Player direction=jump"));
+        } finally {
+            Files.delete (file);
+        }
+    }
+
+
+    @Test
+    public void checkInterruptedThreadKeepsItsEvents() throws Exception
+    {
+        Path file = Files.createTempFile ("events", ".log");
+        try {
+            AsyncFileEventSink events = new AsyncFileEventSink (file);
+            //an interrupt must neither drop events nor close the file under the writer thread
+            Thread.currentThread().interrupt();
+            events.accept (GameEvent.roundStart (1));
+            events.close();
+            assertTrue (Thread.interrupted());
+
+            assertEquals (List.of ("ROUND_START round=1"), Files.readAllLines (file, StandardCharsets.UTF_8));
+        } finally {
+            Files.delete (file);
+        }
+    }
+}
@@ -0,0 +1,673 @@
+package uoa.assignment.game;
+
+import uoa.assignment.character.*;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Tests for the grid backends behind Map.
+ */
+public class GridTests
+   {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream ();
+    private final PrintStream originalOut = System.out;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setOut (new PrintStream (outContent));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.setOut (originalOut);
+    }
+
+
+    @Test
+    public void checkLayoutGridMirrorsSymbols()
+    {
+        Map map = new Map (3,4);
+        assertEquals (Cell.MONSTER, map.getCell(0,0));
+        assertEquals (Cell.PLAYER, map.getCell(2,3));
+        assertEquals (Cell.EMPTY, map.getCell(1,1));
+
+        map.layout[1][1] = "x";
+        assertEquals (Cell.DEAD, map.getCell(1,1));
+
+        map.setCell(1,2,Cell.MONSTER);
+        assertTrue (map.layout[1][2] == "%");
+    }
+
+
+    @Test
+    public void checkCompactMapMovement()
+    {
+        Map map = new Map (new ByteGrid(10,15), "compact");
+        assertNull (map.layout);
+        assertEquals (10, map.getHeight());
+        assertEquals (15, map.getWidth());
+
+        Player player = (Player) map.characters[0];
+        GameLogic.moveCharacter ("up", map, player);
+        assertEquals (8, player.row);
+        assertEquals (Cell.PLAYER, map.getCell(8,14));
+        assertEquals (Cell.EMPTY, map.getCell(9,14));
+
+        GameLogic.moveCharacter ("right", map, player);
+        assertTrue (outContent.toString().contains("You can't go right. You lose a move"));
+
+        outContent.reset();
+        map.printLayout();
+        String output = outContent.toString();
+        int count = 0;
+        for (int i = 0 ; i< output.length();i++ ) {
+            if (output.charAt(i) == '.') {
+               count++;
+            }
+        }
+        //the player has moved up once, so all but four cells are still empty
+        assertEquals (146, count);
+    }
+
+
+    @Test
+    public void checkOccupantFollowsMoves()
+    {
+        Map map = new Map (10,15);
+        Player player = (Player) map.characters[0];
+        assertSame (player, map.occupantAt(9,14));
+        assertSame (map.characters[3], map.occupantAt(0,0));
+
+        GameLogic.moveCharacter ("left", map, player);
+        assertSame (player, map.occupantAt(9,13));
+        assertNull (map.occupantAt(9,14));
+    }
+
+
+    @Test
+    public void checkOccupancyIndexAgainstHashMap()
+    {
+        OccupancyIndex index = new OccupancyIndex(4);
+        HashMap<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                index.put(key, i);
+                expected.put(key, i);
+            } else {
+                Integer removed = expected.remove(key);
+                assertEquals (removed == null ? OccupancyIndex.NONE : removed.intValue(), index.remove(key));
+            }
+        }
+        for (long key = 0; key < 500; key++) {
+            Integer value = expected.get(key);
+            assertEquals (value == null ? OccupancyIndex.NONE : value.intValue(), index.get(key));
+        }
+    }
+
+
+    @Test
+    public void checkConfigurableMonsterCount()
+    {
+        for (SpawnStrategy strategy : new SpawnStrategy[] {SpawnStrategy.SCATTER, SpawnStrategy.SPREAD}) {
+            for (int monsters : new int[] {0, 1, 500, 1999}) {
+                Map map = new Map (new ByteGrid(40,50), "many", monsters, strategy, 7L);
+                assertEquals (monsters + 1, map.characters.length);
+
+                int monsterCells = 0;
+                for (int i = 0; i < map.getHeight(); i++) {
+                    for (int j = 0; j < map.getWidth(); j++) {
+                        if (map.getCell(i,j) == Cell.MONSTER) {
+                            monsterCells++;
+                        }
+                    }
+                }
+                assertEquals (monsters, monsterCells);
+                assertEquals (Cell.PLAYER, map.getCell(39,49));
+                for (int i = 1; i < map.characters.length; i++) {
+                    assertSame (map.characters[i], map.occupantAt(map.characters[i].row, map.characters[i].column));
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void checkCharacterStoreBacksHealth()
+    {
+        Map map = new Map (10,10);
+        CharacterStore store = map.getCharacterStore();
+        map.characters[2].setHealth(40);
+        assertEquals (40, store.health[2]);
+        store.health[1] = 10;
+        assertEquals (10, map.characters[1].getHealth());
+        assertEquals (3, store.countAlive(CharacterStore.KIND_MONSTER));
+
+        GameLogic.moveCharacter ("up", map, map.characters[0]);
+        assertEquals (8, store.row[0]);
+    }
+
+
+    @Test
+    public void checkFrameMatchesCellFormat()
+    {
+        Map map = new Map (2,3);
+        map.printLayout();
+        String nl = System.lineSeparator();
+        String expected = "\u001B[33m\nCurrent game map:\u001B[0m" + nl
+                + "\u001B[31m%\u001B[0m . \u001B[31m%\u001B[0m " + nl
+                + "\u001B[31m%\u001B[0m . \u001B[34m*\u001B[0m " + nl;
+        assertEquals (expected, outContent.toString());
+    }
+
+
+    @Test
+    public void checkDiffModeRedrawsChangedCells()
+    {
+        Map map = new Map (new ByteGrid(5,5), "diff");
+        map.getRenderer().setDiffMode(true);
+        map.printLayout();
+        assertTrue (outContent.toString().startsWith("\u001B[2J\u001B[H"));
+
+        outContent.reset();
+        GameLogic.moveCharacter ("up", map, map.characters[0]);
+        outContent.reset();
+        map.printLayout();
+        //the player moved from screen line 5 to line 4 (screen column 9), only those two cells are redrawn
+        assertEquals ("\u001B[4;9H\u001B[34m*\u001B[0m \u001B[5;9H. \u001B[6;1H", outContent.toString());
+    }
+
+
+    @Test
+    public void checkSnapshotContinuesSameGame() throws Exception
+    {
+        Path file = Files.createTempFile ("game", ".snapshot");
+        try {
+            Map map = new Map (new ByteGrid(20,30), "Saver", 12, SpawnStrategy.SCATTER, 5L);
+            map.setHeadless (true);
+            Game game = new Game (map, 3, new GameRandom(11L));
+            String[] moves = {"up", "left", "left", "up", "down", "left"};
+            for (int i = 0; i < 12; i++) {
+                game.nextRound (moves[i % moves.length]);
+            }
+            GameSnapshot.save (game, file);
+            Game restored = GameSnapshot.load (file);
+
+            assertEquals (game.getRound(), restored.getRound());
+            assertTrue (restored.isHeadless());
+            assertEquals ("Saver", restored.getMap().characters[0].sayName());
+            assertEquals (-25, ((Player) restored.getMap().characters[0]).attackPoint);
+            //both games roll the same numbers from here on, so they stay identical
+            for (int i = 0; i < 40; i++) {
+                assertEquals (game.nextRound (moves[i % moves.length]), restored.nextRound (moves[i % moves.length]));
+            }
+            for (int i = 0; i < map.characters.length; i++) {
+                GameCharacter expected = game.getMap().characters[i];
+                GameCharacter actual = restored.getMap().characters[i];
+                assertEquals (expected.getHealth(), actual.getHealth());
+                assertEquals (expected.row, actual.row);
+                assertEquals (expected.column, actual.column);
+                assertEquals (expected.sayName(), actual.sayName());
+            }
+            for (int r = 0; r < 20; r++) {
+                for (int c = 0; c < 30; c++) {
+                    assertEquals (game.getMap().getCell(r,c), restored.getMap().getCell(r,c));
+                }
+            }
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    @Test(expected = IOException.class)
+    public void checkSnapshotWithHugeCharacterCountRejected() throws Exception
+    {
+        Path file = Files.createTempFile ("game", ".snapshot");
+        try {
+            GameSnapshot.save (new Game (4,5,"Count",2,7L), file);
+            byte[] bytes = Files.readAllBytes (file);
+            //the character count is the last field of the fixed header, at byte 31
+            bytes[31] = 0x7F;
+            Files.write (file, bytes);
+            GameSnapshot.load (file);
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    @Test
+    public void checkSnapshotWithBadFieldsRejected() throws Exception
+    {
+        Path file = Files.createTempFile ("game", ".snapshot");
+        try {
+            GameSnapshot.save (new Game (4,5,"Fields",2,7L), file);
+            byte[] saved = Files.readAllBytes (file);
+            //grid type, height, row of the player, and the last cell of the map
+            int[] offsets = {8, 9, 36, saved.length - 1};
+            for (int offset : offsets) {
+                byte[] bytes = saved.clone();
+                bytes[offset] = 0x55;
+                Files.write (file, bytes);
+                try {
+                    GameSnapshot.load (file);
+                    fail ("Corrupt byte " + offset + " was accepted");
+                } catch (IOException e) {
+                    assertTrue (e.getMessage().startsWith ("Corrupt snapshot"));
+                }
+            }
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    @Test
+    public void checkSnapshotKeepsLayout() throws Exception
+    {
+        Path file = Files.createTempFile ("game", ".snapshot");
+        try {
+            Game game = new Game (new Map (4,5,"Layout"),2,new GameRandom (7L));
+            game.nextRound ("up");
+            GameSnapshot.save (game, file);
+            Game restored = GameSnapshot.load (file);
+
+            assertNotNull (restored.getMap().layout);
+            for (int r = 0; r < 4; r++) {
+                assertArrayEquals (game.getMap().layout[r], restored.getMap().layout[r]);
+            }
+            assertEquals (game.getRandom().getState(), restored.getRandom().getState());
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    @Test
+    public void checkFlowFieldFollowsPlayer()
+    {
+        Map map = new Map (new ByteGrid(15,20), "Runner", 0, SpawnStrategy.CORNERS, 0L);
+        map.setHeadless (true);
+        Random random = new Random (3);
+        for (int i = 0; i < 50; i++) {
+            int row = random.nextInt(15);
+            int column = random.nextInt(19);
+            if (map.getCell(row,column) == Cell.EMPTY) {
+                map.setCell (row, column, Cell.DEAD);
+            }
+        }
+        FlowField field = new FlowField (map);
+        String[] moves = {"up", "down", "left", "right"};
+        for (int step = 0; step < 200; step++) {
+            GameLogic.moveCharacter (moves[random.nextInt(4)], map, map.characters[0]);
+            field.update();
+            //the incrementally updated field must equal a field searched from scratch
+            FlowField fresh = new FlowField (map);
+            fresh.update();
+            for (int r = 0; r < 15; r++) {
+                for (int c = 0; c < 20; c++) {
+                    assertEquals (fresh.getDistance(r,c), field.getDistance(r,c));
+                }
+            }
+        }
+        Player player = (Player) map.characters[0];
+        assertEquals (0, field.getDistance(player.row, player.column));
+    }
+
+
+    @Test
+    public void checkChasingMonstersReachPlayer()
+    {
+        //same map, player moves and dice for both policies, so only the way monsters move differs
+        int chase = roundsUntilPlayerFalls (MonsterPolicy.CHASE);
+        int random = roundsUntilPlayerFalls (MonsterPolicy.RANDOM);
+        assertTrue (chase < 500);
+        assertTrue ("chasing took " + chase + " rounds, wandering " + random, chase * 4 < random);
+    }
+
+
+    private static int roundsUntilPlayerFalls (MonsterPolicy policy)
+    {
+        Map map = new Map (new ByteGrid(40,40), "Prey", 200, SpawnStrategy.SCATTER, 9L);
+        map.setHeadless (true);
+        Game game = new Game (map, 1, new GameRandom(4L));
+        game.setMonsterPolicy (policy);
+        int round = 0;
+        //the player walks right and attacks whatever is in its way, so it falls only where monsters reach it
+        while (map.characters[0].getHealth() > 0 && round < 500) {
+            game.nextRound ("right");
+            round++;
+        }
+        return round;
+    }
+
+
+    @Test
+    public void checkChunkedGridMatchesDenseGrid()
+    {
+        ChunkedGrid chunked = new ChunkedGrid (37,53,3);
+        ByteGrid dense = new ByteGrid (37,53);
+        Random random = new Random (8);
+        for (int i = 0; i < 400; i++) {
+            int row = random.nextInt(37);
+            int column = random.nextInt(53);
+            byte cell = (byte) random.nextInt(4);
+            chunked.set (row, column, cell);
+            dense.set (row, column, cell);
+        }
+        byte[] expected = new byte[53];
+        byte[] actual = new byte[53];
+        for (int r = 0; r < 37; r++) {
+            //runs that start and end inside tiles
+            int from = random.nextInt(20);
+            int length = 20 + random.nextInt(53 - 20 - from);
+            dense.readRow (r, from, expected, length);
+            chunked.readRow (r, from, actual, length);
+            assertArrayEquals (expected, actual);
+        }
+
+        Map denseMap = new Map (new ByteGrid(20,19), "Tiles");
+        Map chunkedMap = new Map (new ChunkedGrid(20,19,2), "Tiles");
+        denseMap.printLayout();
+        String frame = outContent.toString();
+        outContent.reset();
+        chunkedMap.printLayout();
+        assertEquals (frame, outContent.toString());
+    }
+
+
+    @Test
+    public void checkBitboardGridMatchesDenseGrid()
+    {
+        //130 columns span three words per row, the last one partly padding
+        BitboardGrid bitboard = new BitboardGrid (29,130);
+        ByteGrid dense = new ByteGrid (29,130);
+        Random random = new Random (24);
+        for (int i = 0; i < 2000; i++) {
+            int row = random.nextInt(29);
+            int column = random.nextInt(130);
+            byte cell = (byte) random.nextInt(4);
+            bitboard.set (row, column, cell);
+            dense.set (row, column, cell);
+        }
+        Map bitboardMap = new Map (bitboard, new GameCharacter[0]);
+        Map denseMap = new Map (dense, new GameCharacter[0]);
+        long[] counts = new long[4];
+        long monstersNextToPlayers = 0;
+        for (int r = 0; r < 29; r++) {
+            for (int c = 0; c < 130; c++) {
+                byte cell = dense.get(r, c);
+                assertEquals (cell, bitboard.get(r, c));
+                assertTrue (bitboard.is(r, c, cell));
+                counts[cell]++;
+                for (byte kind = Cell.EMPTY; kind < Cell.COUNT; kind++) {
+                    assertEquals (kind == cell, bitboard.is(r, c, kind));
+                }
+                for (byte kind = Cell.PLAYER; kind <= Cell.DEAD; kind++) {
+                    assertEquals (denseMap.isAdjacent(r, c, kind), bitboardMap.isAdjacent(r, c, kind));
+                    int neighbours = 0;
+                    neighbours += r > 0 && dense.get(r - 1, c) == kind ? 1 : 0;
+                    neighbours += r < 28 && dense.get(r + 1, c) == kind ? 1 : 0;
+                    neighbours += c > 0 && dense.get(r, c - 1) == kind ? 1 : 0;
+                    neighbours += c < 129 && dense.get(r, c + 1) == kind ? 1 : 0;
+                    assertEquals (neighbours, bitboard.countAdjacent(r, c, kind));
+                }
+                if (cell == Cell.MONSTER && denseMap.isAdjacent(r, c, Cell.PLAYER)) {
+                    monstersNextToPlayers++;
+                }
+            }
+        }
+        assertEquals (counts[Cell.DEAD], bitboard.count(Cell.DEAD));
+        assertEquals (monstersNextToPlayers, bitboard.countAdjacentPairs(Cell.MONSTER, Cell.PLAYER));
+        //replacing a known value touches only its own layer and leaves the cell readable as the new value
+        byte old = dense.get(3, 70);
+        bitboard.replace (3, 70, old, Cell.WATER);
+        assertEquals (Cell.WATER, bitboard.get(3, 70));
+        bitboard.replace (3, 70, Cell.WATER, old);
+        assertEquals (old, bitboard.get(3, 70));
+        byte[] row = new byte[100];
+        bitboard.readRow (7, 30, row, 100);
+        assertEquals (dense.get(7, 64), row[34]);
+
+        //filling leaves the padding clear, so every cell of the grid is counted exactly once
+        bitboard.fill (Cell.MONSTER);
+        assertEquals (29 * 130, bitboard.count(Cell.MONSTER));
+        assertEquals (29 * 130, bitboard.countAdjacentPairs(Cell.MONSTER, Cell.MONSTER));
+        assertEquals (0, bitboard.count(Cell.PLAYER));
+        assertFalse (bitboard.isAdjacent(0, 129, Cell.PLAYER));
+    }
+
+
+    @Test
+    public void checkGeneratedTerrainIsConnected()
+    {
+        for (TerrainStyle style : new TerrainStyle[] {TerrainStyle.ROOMS, TerrainStyle.CAVES}) {
+            //300x300 is generated in parallel stripes, the chunked grid on one thread
+            ByteGrid dense = new ByteGrid (300,300);
+            ChunkedGrid chunked = new ChunkedGrid (300,300);
+            new TerrainGenerator (style, 42L).generate (dense);
+            new TerrainGenerator (style, 42L).generate (chunked);
+            int open = 0;
+            int water = 0;
+            int first = -1;
+            for (int r = 0; r < 300; r++) {
+                for (int c = 0; c < 300; c++) {
+                    assertEquals (dense.get(r, c), chunked.get(r, c));
+                    if (dense.get(r, c) == Cell.EMPTY) {
+                        open++;
+                        first = first < 0 ? r * 300 + c : first;
+                    }
+                    water += dense.get(r, c) == Cell.WATER ? 1 : 0;
+                }
+            }
+            assertTrue (open > 300 * 300 / 3);
+            assertTrue (water > 0);
+
+            //every open cell can be reached from every other one
+            boolean[] seen = new boolean[300 * 300];
+            int[] queue = new int[300 * 300];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = first;
+            seen[first] = true;
+            while (head < tail) {
+                int cell = queue[head++];
+                int[] neighbours = {cell - 300, cell + 300, cell % 300 > 0 ? cell - 1 : -1, cell % 300 < 299 ? cell + 1 : -1};
+                for (int next : neighbours) {
+                    if (next >= 0 && next < 300 * 300 && !seen[next] && dense.get(next / 300, next % 300) == Cell.EMPTY) {
+                        seen[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            assertEquals (open, tail);
+        }
+    }
+
+
+    @Test
+    public void checkTerrainBlocksMovesAndResets()
+    {
+        Map map = new Map (new ByteGrid(40,50), "Caver", 3, SpawnStrategy.CORNERS, 9L, TerrainStyle.CAVES);
+        for (GameCharacter character : map.characters) {
+            assertFalse (Cell.isTerrain(map.getCell(character.row, character.column)));
+        }
+        Player player = (Player) map.characters[0];
+        assertEquals (Cell.PLAYER, map.getCell(player.row, player.column));
+
+        //walls and water stop the player like the edge of the map
+        int row = player.row;
+        int column = player.column;
+        int wallRow = row > 0 ? row - 1 : row + 1;
+        map.setCell (wallRow, column, Cell.WATER);
+        GameLogic.moveCharacter (wallRow < row ? "up" : "down", map, player);
+        assertEquals (row, player.row);
+        assertEquals (Cell.WATER, map.getCell(wallRow, column));
+        assertTrue (outContent.toString().contains("You can't cross walls or water."));
+
+        //a reset map equals a new map built with the same seed, terrain included
+        map.reset ("Caver", 77L);
+        Map fresh = new Map (new ByteGrid(40,50), "Caver", 3, SpawnStrategy.CORNERS, 77L, TerrainStyle.CAVES);
+        for (int r = 0; r < 40; r++) {
+            for (int c = 0; c < 50; c++) {
+                assertEquals (fresh.getCell(r, c), map.getCell(r, c));
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals (fresh.characters[i].row, map.characters[i].row);
+            assertEquals (fresh.characters[i].column, map.characters[i].column);
+        }
+        assertEquals ("#", Cell.symbol(Cell.fromSymbol("#")));
+    }
+
+
+    @Test
+    public void checkHugeWorldAllocatesVisitedTiles() throws Exception
+    {
+        Map map = new Map (new ChunkedGrid(50000,50000), "Explorer", 100, SpawnStrategy.SCATTER, 21L);
+        map.setHeadless (true);
+        Game game = new Game (map, 1, new GameRandom(2L));
+        ChunkedGrid grid = (ChunkedGrid) map.getGrid();
+        //the player starts in the bottom-right corner, so moving right or down is refused
+        game.nextRound ("right");
+        game.nextRound ("down");
+        assertEquals (49999, map.characters[0].row);
+        assertEquals (49999, map.characters[0].column);
+        for (int i = 0; i < 200; i++) {
+            game.nextRound ("left");
+        }
+        assertEquals (49999 - 200, map.characters[0].column);
+        //the world has 611,524 tiles, but only those the characters walked on exist
+        assertTrue (grid.getAllocatedTiles() < 300);
+
+        Path file = Files.createTempFile ("world", ".snapshot");
+        try {
+            GameSnapshot.save (game, file);
+            assertTrue (Files.size(file) < 1000000);
+            Map restored = GameSnapshot.load(file).getMap();
+            assertEquals (grid.getAllocatedTiles(), ((ChunkedGrid) restored.getGrid()).getAllocatedTiles());
+            for (GameCharacter character : map.characters) {
+                assertEquals (map.getCell(character.row, character.column), restored.getCell(character.row, character.column));
+            }
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    @Test
+    public void checkViewportFollowsPlayer()
+    {
+        Map map = new Map (new ChunkedGrid(20000,30000), "Viewer", 2, SpawnStrategy.SPREAD, 0L);
+        assertTrue (map.getRenderer().hasViewport());
+        FrameRenderer renderer = map.getRenderer();
+        renderer.setViewport (3,4);
+        renderer.setMinimap (2,2);
+        map.printLayout();
+        String nl = System.lineSeparator();
+        String player = "\u001B[34m*\u001B[0m ";
+        //the player sits in the bottom-right corner, so the window is pinned to that corner;
+        //the monsters were spread to the first cell and the middle of the map, both in the top half
+        String expected = "\u001B[33m\nCurrent game map:\u001B[0m" + nl
+                + ". . . . " + nl
+                + ". . . . " + nl
+                + ". . . " + player + nl
+                + "\u001B[32mRows 19997-19999, columns 29996-29999 of 20000x30000\u001B[0m" + nl
+                + "\u001B[33mMonsters per region:\u001B[0m" + nl
+                + "\u001B[31m1\u001B[0m \u001B[31m1\u001B[0m " + nl
+                + ". " + player + nl;
+        assertEquals (expected, outContent.toString());
+
+        outContent.reset();
+        renderer.setDiffMode (true);
+        map.printLayout();
+        outContent.reset();
+        GameLogic.moveCharacter ("left", map, map.characters[0]);
+        outContent.reset();
+        map.printLayout();
+        //the window stays in the corner, so only the two cells the player left and entered change
+        assertEquals ("\u001B[3;5H" + player + "\u001B[3;7H. \u001B[4;1H", outContent.toString());
+    }
+
+
+    @Test
+    public void checkSharedWorldKeepsCellsConsistent() throws Exception
+    {
+        SharedWorld world = new SharedWorld (64,64,16,400,1,5L);
+        long moves = world.play (4,300,9L);
+        assertTrue (moves > 0);
+        assertFalse (world.act (0, "jump"));
+
+        //every character stands on its own cell, living ones as themselves and dead ones as an x
+        int[] counts = new int[4];
+        for (int row = 0; row < 64; row++) {
+            for (int column = 0; column < 64; column++) {
+                counts[world.getCell (row,column)]++;
+            }
+        }
+        CharacterStore store = world.getCharacterStore();
+        for (GameCharacter character : world.getCharacters()) {
+            byte expected = character.getHealth() <= 0 ? Cell.DEAD : character instanceof Player ? Cell.PLAYER : Cell.MONSTER;
+            assertEquals (expected, world.getCell (character.row, character.column));
+        }
+        assertEquals (world.getLivingPlayers(), counts[Cell.PLAYER]);
+        assertEquals (world.getLivingMonsters(), counts[Cell.MONSTER]);
+        assertEquals (416, counts[Cell.PLAYER] + counts[Cell.MONSTER] + counts[Cell.DEAD]);
+        assertEquals (store.countAlive (CharacterStore.KIND_PLAYER), world.getLivingPlayers());
+        assertEquals (store.countAlive (CharacterStore.KIND_MONSTER), world.getLivingMonsters());
+    }
+
+
+    @Test
+    public void checkRealTimeMonstersActOnTheirTimers()
+    {
+        Map map = new Map (new ByteGrid(100,100), "Player", 2000, SpawnStrategy.SCATTER, 3L);
+        map.setHeadless (true);
+        Game game = new Game (map, 1, new GameRandom(4L));
+        RealTimeGame realTime = new RealTimeGame (game, 1000, 4);
+        int[] rows = map.getCharacterStore().row.clone();
+        int[] columns = map.getCharacterStore().column.clone();
+
+        realTime.submit ("up");
+        realTime.tick();
+        assertEquals (98, map.characters[0].row);
+        assertEquals (1, realTime.getTick());
+        //each monster acts once every four ticks in a slot of at most a quarter of them, so after one tick most still stand still
+        int moved = 0;
+        for (int i = 1; i < map.characters.length; i++) {
+            if (map.characters[i].row != rows[i] || map.characters[i].column != columns[i]) {
+                moved++;
+            }
+        }
+        assertTrue (moved > 0 && moved <= (map.characters.length - 1 + 3) / 4);
+
+        //run at the fixed rate until stopped from the tick listener
+        realTime.setTickListener (ticked -> {
+            if (ticked.getTick() >= 21) {
+                ticked.stop();
+            }
+        });
+        long start = System.nanoTime();
+        assertFalse (realTime.run());
+        long elapsed = System.nanoTime() - start;
+        TickMetrics metrics = realTime.getMetrics();
+        assertEquals (21, metrics.getTicks());
+        assertTrue (elapsed >= 19_000_000L);
+        assertTrue (metrics.getPercentileNanos (99) >= metrics.getPercentileNanos (50));
+        assertTrue (metrics.getMaxNanos() >= metrics.getMeanNanos());
+    }
+}
@@ -0,0 +1,168 @@
+package uoa.assignment.metrics;
+
+import uoa.assignment.game.*;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests for the game metrics and their JMX view.
+ */
+public class MetricsTests
+   {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream ();
+    private final PrintStream originalOut = System.out;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setOut (new PrintStream (outContent));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.setOut (originalOut);
+    }
+
+
+    @Test
+    public void checkHistogramPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram ();
+        assertEquals (0, histogram.getPercentileNanos (99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record (i * 1000L);
+        }
+        assertEquals (1000, histogram.getCount());
+        assertEquals (500500, histogram.getMeanNanos());
+        assertEquals (1000000, histogram.getMaxNanos());
+        //buckets are at most a quarter of their lower edge wide
+        long p50 = histogram.getPercentileNanos (50);
+        long p99 = histogram.getPercentileNanos (99);
+        assertTrue (p50 >= 500000 && p50 <= 625000);
+        assertTrue (p99 >= 990000 && p99 <= 1000000);
+        for (long value = 0; value < 100000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf (value);
+            assertTrue (value < LatencyHistogram.upperEdge (bucket));
+            assertTrue (bucket == 0 || value >= LatencyHistogram.upperEdge (bucket - 1));
+        }
+    }
+
+
+    @Test
+    public void checkGameCountsRoundsAndCombat() throws Exception
+    {
+        GameMetrics metrics = GameMetrics.get();
+        metrics.register();
+        metrics.reset();
+        Map map = new Map (new ByteGrid(3,3), "Player", 1, SpawnStrategy.CORNERS, 0L);
+        map.setHeadless (true);
+        Game game = new Game (map, 1, new GameRandom(1L));
+        game.setMonsterPolicy (MonsterPolicy.STATIONARY);
+
+        game.nextRound ("jump");
+        game.nextRound ("right");
+        game.nextRound ("up");
+        while (map.characters[1].getHealth() > 0) {
+            game.nextRound ("up");
+        }
+
+        assertEquals (1, metrics.getInvalidInputs());
+        assertEquals (1, metrics.getMovesRight());
+        assertEquals (1, metrics.getBlockedMoves());
+        assertTrue (metrics.getMovesUp() >= 2);
+        assertEquals (metrics.getMovesUp() + 1, metrics.getRounds());
+        //every upward move after the first attacked the monster in the corner
+        assertEquals (metrics.getMovesUp() - 1, metrics.getHits() + metrics.getMisses());
+        assertEquals (1, metrics.getDeaths());
+        assertEquals (metrics.getRounds(), metrics.getRoundLatency().getCount());
+        assertTrue (metrics.getRoundLatencyP99() >= metrics.getRoundLatencyP50());
+
+        //rounds played on a fork for look-ahead are not counted
+        long rounds = metrics.getRounds();
+        long moves = metrics.getMovesUp() + metrics.getMovesLeft();
+        long blocked = metrics.getBlockedMoves();
+        Game fork = game.fork (new GameRandom(2L));
+        fork.nextRound ("up");
+        fork.nextRound ("left");
+        assertEquals (rounds, metrics.getRounds());
+        assertEquals (moves, metrics.getMovesUp() + metrics.getMovesLeft());
+        assertEquals (blocked, metrics.getBlockedMoves());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName (GameMetrics.OBJECT_NAME);
+        assertEquals (metrics.getRounds(), server.getAttribute (name, "Rounds"));
+        assertEquals (1L, server.getAttribute (name, "Deaths"));
+        server.invoke (name, "reset", null, null);
+        assertEquals (0, metrics.getRounds());
+    }
+
+
+    @Test
+    public void checkFlightRecorderSeesRoundsAndAttacks() throws Exception
+    {
+        Map map = new Map (new ByteGrid(3,3), "Player", 1, SpawnStrategy.CORNERS, 0L);
+        map.setHeadless (true);
+        Game game = new Game (map, 1, new GameRandom(1L));
+        game.setMonsterPolicy (MonsterPolicy.STATIONARY);
+        Path file = Files.createTempFile ("game", ".jfr");
+        try (Recording recording = new Recording ()) {
+            recording.enable ("uoa.assignment.Round");
+            recording.enable ("uoa.assignment.Attack");
+            recording.enable ("uoa.assignment.BlockedMove");
+            recording.start();
+            game.nextRound ("jump");
+            game.nextRound ("right");
+            game.nextRound ("up");
+            game.nextRound ("up");
+            recording.stop();
+            recording.dump (file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents (file);
+            assertEquals (3, count (events, "uoa.assignment.Round"));
+            assertEquals (1, count (events, "uoa.assignment.Attack"));
+            assertEquals (1, count (events, "uoa.assignment.BlockedMove"));
+            for (RecordedEvent event : events) {
+                if (event.getEventType().getName().equals ("uoa.assignment.BlockedMove")) {
+                    assertEquals ("EDGE", event.getString ("reason"));
+                    assertEquals ("right", event.getString ("direction"));
+                } else if (event.getEventType().getName().equals ("uoa.assignment.Attack")) {
+                    assertEquals ("Player", event.getString ("attacker"));
+                    assertEquals ("Monster1", event.getString ("defender"));
+                    assertEquals (event.getBoolean ("hit"), event.getInt ("damage") > 0);
+                } else if (event.getInt ("round") == 3) {
+                    assertEquals (1, event.getInt ("aliveMonsters"));
+                    assertFalse (event.getBoolean ("gameOver"));
+                }
+            }
+        } finally {
+            Files.deleteIfExists (file);
+        }
+    }
+
+
+    private static int count(List<RecordedEvent> events, String name)
+    {
+        int count = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals (name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,89 @@
+package uoa.assignment.server;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for the multi-session game server.
+ */
+public class ServerTests
+   {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream ();
+    private final PrintStream originalOut = System.out;
+    private GameServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setOut (new PrintStream (outContent));
+        server = new GameServer (0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        System.setOut (originalOut);
+    }
+
+
+    @Test
+    public void checkProtocolFollowsRounds() throws Exception
+    {
+        try (Socket socket = new Socket ("localhost", server.getPort())) {
+            BufferedReader in = new BufferedReader (new InputStreamReader (socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter (socket.getOutputStream(), true);
+
+            out.println ("up");
+            assertTrue (in.readLine().startsWith ("ERROR"));
+            out.println ("START 5 5 1 42");
+            assertEquals ("READY round=0 health=100 monsters=3", in.readLine());
+            out.println ("jump");
+            assertEquals ("INVALID round=0 health=100 monsters=3", in.readLine());
+            out.println ("up");
+            assertTrue (in.readLine().startsWith ("OK round=1 "));
+            out.println ("MAP");
+            for (int row = 0; row < 5; row++) {
+                assertEquals (5, in.readLine().length());
+            }
+            assertEquals ("END", in.readLine());
+            out.println ("START 0 5");
+            assertTrue (in.readLine().startsWith ("ERROR"));
+            out.println ("QUIT");
+            assertEquals ("BYE", in.readLine());
+        }
+        assertEquals (1, server.getRounds());
+    }
+
+
+    @Test
+    public void checkLoadTestKeepsRoundsOfFailedSessions()
+    {
+        //the second session failed after two of its four rounds, the third played all of them
+        long[] latencies = {1, 2, 3, 4, 5, 6, 0, 0, 9, 10, 11, 12};
+        long[] played = LoadTestClient.collect (latencies, new int[] {4, 2, 4}, 4);
+        assertArrayEquals (new long[] {1, 2, 3, 4, 5, 6, 9, 10, 11, 12}, played);
+    }
+
+
+    @Test
+    public void checkLoadTestPlaysEveryRound() throws Exception
+    {
+        LoadTestClient client = new LoadTestClient ("localhost", server.getPort());
+        LoadTestReport report = client.run (50, 40, 7);
+
+        assertEquals (0, report.getErrors());
+        assertEquals (2000, report.getRounds());
+        assertEquals (2000, server.getRounds());
+        assertTrue (report.getLatencyPercentile (99) >= report.getLatencyPercentile (50));
+    }
+}
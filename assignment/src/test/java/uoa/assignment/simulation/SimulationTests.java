@@ -0,0 +1,417 @@
+package uoa.assignment.simulation;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+import uoa.assignment.game.*;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Tests for the headless simulation tools.
+ */
+public class SimulationTests
+   {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream ();
+    private final PrintStream originalOut = System.out;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setOut (new PrintStream (outContent));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.setOut (originalOut);
+    }
+
+
+    @Test
+    public void checkHeadlessGamePrintsNothing()
+    {
+        HeadlessEngine engine = new HeadlessEngine (6,6,2);
+        final String[] moves = {"up", "left"};
+        GameResult result = engine.play (1L, new MoveSupplier() {
+            private int turn;
+            @Override
+            public String nextMove(Game game) {
+                return moves[turn++ % 2];
+            }
+        });
+
+        assertEquals ("", outContent.toString());
+        assertNotEquals (GameResult.Outcome.ROUND_LIMIT, result.getOutcome());
+        assertTrue (result.getRounds() > 0);
+        assertEquals (3, result.getMonsterCount());
+        if (result.isPlayerWin()) {
+            for (int i = 1; i <= 3; i++) {
+                assertEquals (0, result.getMonsterHealth(i));
+            }
+        } else {
+            assertEquals (0, result.getPlayerHealth());
+        }
+    }
+
+
+    @Test
+    public void checkRoundLimit()
+    {
+        HeadlessEngine engine = new HeadlessEngine (50,50,1);
+        engine.setMaxRounds (10);
+        GameResult result = engine.play (1L, game -> "down");
+
+        assertEquals (GameResult.Outcome.ROUND_LIMIT, result.getOutcome());
+        assertEquals (10, result.getRounds());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkOversizedRoundLimitRejected()
+    {
+        new HeadlessEngine (50,50,1).setMaxRounds (Integer.MAX_VALUE);
+    }
+
+
+    @Test
+    public void checkRoundBucketsCoverEveryRoundCount()
+    {
+        //every round count falls in a bucket whose upper edge is at most 1/16 above it
+        for (int rounds : new int[] {0, 1, 1023, 1024, 1087, 1088, 99999, 100000, Integer.MAX_VALUE}) {
+            int last = BatchReport.lastRoundOf (BatchReport.bucketOf (rounds));
+            assertTrue (last >= rounds);
+            assertTrue (last - rounds <= rounds / 16);
+        }
+        assertEquals (Integer.MAX_VALUE, BatchReport.lastRoundOf (BatchReport.bucketOf (Integer.MAX_VALUE)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkInvalidMoveRejected()
+    {
+        new HeadlessEngine (5,5,1).play (1L, game -> "jump");
+    }
+
+
+    @Test
+    public void checkBatchAgainstStationaryMonsters()
+    {
+        BatchSimulator simulator = new BatchSimulator (8,8,2,MonsterPolicy.STATIONARY);
+        BatchReport report = simulator.run (500, 3L);
+
+        assertEquals (500, report.getGames());
+        //monsters that never move can never attack, so the greedy player always wins
+        assertEquals (1.0, report.getWinRate(), 0.0);
+        assertEquals (300.0, report.getMeanDamageDealt(), 0.0);
+        assertEquals (0.0, report.getMeanDamageTaken(), 0.0);
+        assertTrue (report.getRoundPercentile(50) <= report.getRoundPercentile(99));
+        assertEquals ("", outContent.toString());
+    }
+
+
+    @Test
+    public void checkBitboardEnginePlaysSameGames()
+    {
+        //the storage of the map must not change a single roll or move
+        HeadlessEngine bytes = new HeadlessEngine (12,12,2,8,SpawnStrategy.SCATTER);
+        HeadlessEngine bitboard = new HeadlessEngine (12,12,2,8,SpawnStrategy.SCATTER);
+        bitboard.setBitboard (true);
+        for (MonsterPolicy policy : MonsterPolicy.values()) {
+            bytes.setMonsterPolicy (policy);
+            bitboard.setMonsterPolicy (policy);
+            for (long seed = 0; seed < 20; seed++) {
+                assertEquals (bytes.play (seed, new GreedyMoveSupplier (seed)).toString(),
+                        bitboard.play (seed, new GreedyMoveSupplier (seed)).toString());
+            }
+        }
+    }
+
+
+    @Test
+    public void checkSameSeedReplaysSameGame()
+    {
+        HeadlessEngine engine = new HeadlessEngine (7,7,3,3,SpawnStrategy.SCATTER);
+        for (long seed = 0; seed < 20; seed++) {
+            GameResult first = engine.play (seed, new RandomMoveSupplier (seed));
+            GameResult second = engine.play (seed, new RandomMoveSupplier (seed));
+            assertEquals (first.toString(), second.toString());
+        }
+
+        BatchSimulator simulator = new BatchSimulator (6,6,2,MonsterPolicy.RANDOM);
+        assertEquals (simulator.run (200, 9L).toString(), simulator.run (200, 9L).toString());
+    }
+
+
+    @Test
+    public void checkJournalReplaysInteractiveGame() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+        DataOutputStream out = new DataOutputStream (bytes);
+        for (long seed = 1; seed <= 10; seed++) {
+            //record a console game the way RunGame does
+            Game game = new Game (6,6,"Alice",2,seed);
+            ReplayJournal journal = new ReplayJournal (seed,6,6,"Alice",2,3,SpawnStrategy.CORNERS,MonsterPolicy.RANDOM);
+            RandomMoveSupplier moves = new RandomMoveSupplier (seed);
+            boolean gameOver = false;
+            for (int turn = 0; !gameOver && turn < 500; turn++) {
+                String move = turn % 7 == 3 ? "jump" : moves.nextMove (game);
+                gameOver = game.nextRound (move);
+                if (game.validateInput) {
+                    journal.record (move);
+                }
+            }
+            journal.finish (game);
+            assertEquals (game.getRound(), journal.getMoveCount());
+            journal.writeTo (out);
+        }
+
+        List<ReplayJournal> journals = ReplayJournal.readAll (new DataInputStream (new ByteArrayInputStream (bytes.toByteArray())));
+        assertEquals (10, journals.size());
+        for (ReplayJournal journal : journals) {
+            assertTrue (journal.verify());
+        }
+    }
+
+
+    @Test(expected = IOException.class)
+    public void checkJournalWithHugeMoveCountRejected() throws Exception
+    {
+        //the move count sits right after the header, at byte 31 for a one-letter name
+        byte[] bytes = journalBytes ();
+        bytes[31] = 0x7F;
+        bytes[32] = bytes[33] = bytes[34] = (byte) 0xFF;
+        ReplayJournal.readFrom (new DataInputStream (new ByteArrayInputStream (bytes)));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void checkJournalWithUnknownPolicyRejected() throws Exception
+    {
+        byte[] bytes = journalBytes ();
+        bytes[30] = 100;
+        ReplayJournal.readFrom (new DataInputStream (new ByteArrayInputStream (bytes)));
+    }
+
+
+    private static byte[] journalBytes () throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+        ReplayJournal journal = new ReplayJournal (1L,6,6,"A",2,3,SpawnStrategy.CORNERS,MonsterPolicy.RANDOM);
+        journal.record ("up");
+        journal.writeTo (new DataOutputStream (bytes));
+        return bytes.toByteArray();
+    }
+
+
+    @Test
+    public void checkResetGamePlaysLikeNewGame()
+    {
+        HeadlessEngine engine = new HeadlessEngine (8,8,2,5,SpawnStrategy.SCATTER);
+        engine.setMonsterPolicy (MonsterPolicy.CHASE);
+        Game reused = engine.newGame (0L);
+        GameCharacter player = reused.getMap().characters[0];
+        for (long seed = 0; seed < 30; seed++) {
+            GameResult fresh = engine.play (seed, new GreedyMoveSupplier (seed));
+            GameResult again = engine.play (seed == 0 ? reused : engine.resetGame (reused, seed), new GreedyMoveSupplier (seed));
+            assertEquals (fresh.toString(), again.toString());
+        }
+        assertSame (player, reused.getMap().characters[0]);
+
+        //the console game keeps its String layout and player name when it is played again
+        Game game = new Game (5,6,"Alice",1,3L);
+        game.getMap().setHeadless (true);
+        String[][] layout = game.getMap().layout;
+        RandomMoveSupplier moves = new RandomMoveSupplier (1L);
+        while (!game.nextRound (moves.nextMove (game))) {
+            //play the first game to the end
+        }
+        game.reset (3, 42L);
+        Game fresh = new Game (5,6,"Alice",3,42L);
+        fresh.getMap().setHeadless (true);
+        assertSame (layout, game.getMap().layout);
+        assertEquals (0, game.getRound());
+        assertEquals ("Alice", game.getMap().characters[0].sayName());
+        assertArrayEquals (fresh.getMap().layout, game.getMap().layout);
+        for (int round = 0; round < 50; round++) {
+            String move = moves.nextMove (game);
+            assertEquals (fresh.nextRound (move), game.nextRound (move));
+            assertArrayEquals (fresh.getMap().layout, game.getMap().layout);
+        }
+    }
+
+
+    @Test
+    public void checkCombatCalculatorMatchesSampledFights()
+    {
+        //monsters that never defend and never land a blow die in exactly two strikes each
+        CombatOutcome sure = new CombatCalculator (-50,1,-20,0).fight (100,100,100);
+        assertEquals (1.0, sure.getPlayerWinProbability(), 1e-12);
+        assertEquals (4.0, sure.getExpectedExchanges(), 1e-12);
+        assertEquals (100.0, sure.getExpectedPlayerHealth(), 1e-12);
+        assertEquals (0.0, new CombatCalculator (-50,0,-100,0.5).duel (100,100).getPlayerWinProbability(), 1e-12);
+        assertEquals (1.0, CombatCalculator.forDifficulty (2).fight (100,0,-5).getPlayerWinProbability(), 1e-12);
+
+        //the exact odds agree with fights played out by the characters themselves
+        for (int difficulty = 1; difficulty <= 4; difficulty++) {
+            Player player = new Player ("Player");
+            player.setDifficulty (difficulty);
+            Monster[] monsters = new Monster[3];
+            GameRandom random = new GameRandom (difficulty);
+            player.setRandom (random);
+            for (int i = 0; i < monsters.length; i++) {
+                monsters[i] = new Monster ();
+                monsters[i].setDifficulty (difficulty);
+                monsters[i].setRandom (random);
+            }
+            CombatOutcome exact = CombatCalculator.of (player, monsters[0]).fight (100,100,100,100);
+            int fights = 20000;
+            int wins = 0;
+            long exchanges = 0;
+            for (int fight = 0; fight < fights; fight++) {
+                player.setHealth (100);
+                for (Monster monster : monsters) {
+                    monster.setHealth (100);
+                }
+                int target = 0;
+                while (player.getHealth() > 0 && target < monsters.length) {
+                    exchanges++;
+                    player.hurtCharacter (monsters[target]);
+                    if (monsters[target].getHealth() <= 0) {
+                        target++;
+                    }
+                    for (int i = target; i < monsters.length; i++) {
+                        monsters[i].hurtCharacter (player);
+                    }
+                }
+                if (player.getHealth() > 0) {
+                    wins++;
+                }
+            }
+            assertEquals (exact.getPlayerWinProbability(), (double) wins / fights, 0.015);
+            assertEquals (exact.getExpectedExchanges(), (double) exchanges / fights, 0.1);
+        }
+    }
+
+
+    @Test
+    public void checkExpectimaxSolverFindsWinningMoves()
+    {
+        //a monster one hit from death right above the player is attacked
+        Map duel = new Map (new ByteGrid (2,2), "Player", 1, SpawnStrategy.CORNERS, 0L);
+        duel.setHeadless (true);
+        Game game = new Game (duel, 1, new GameRandom (1L));
+        duel.characters[1].setHealth (10);
+        SearchResult hint = new ExpectimaxSolver (20).solve (game);
+        assertEquals ("up", hint.getMove());
+        assertTrue (hint.getDepth() >= 1);
+        assertTrue (hint.getValue() > 0.5);
+
+        //killing the only monster in the window is no certain win while another one is still alive
+        Map corridor = new Map (new ByteGrid (2,14), "Player", 2, SpawnStrategy.CORNERS, 0L);
+        corridor.setHeadless (true);
+        game = new Game (corridor, 1, new GameRandom (1L));
+        corridor.characters[1].setHealth (10);
+        hint = new ExpectimaxSolver (20).solve (game);
+        double farFight = CombatCalculator.of ((Player) corridor.characters[0], (Monster) corridor.characters[2])
+                .fightInTurn (100, 100).getPlayerWinProbability();
+        assertEquals (0, corridor.characters[2].column);
+        assertTrue (farFight < 0.99);
+        assertTrue (hint.getValue() <= farFight + 1e-9);
+
+        //searching makes and unmakes moves without leaving a trace on the game
+        HeadlessEngine engine = new HeadlessEngine (10,10,2,5,SpawnStrategy.SCATTER);
+        engine.setMonsterPolicy (MonsterPolicy.CHASE);
+        game = engine.newGame (3L);
+        game.nextRound ("up");
+        String before = describe (game);
+        hint = new ExpectimaxSolver (20).solve (game);
+        assertEquals (before, describe (game));
+        assertTrue (hint.getNodes() > 0);
+        assertTrue (List.of ("up", "down", "left", "right").contains (hint.getMove()));
+
+        //one round of lookahead already beats walking at the nearest monster
+        engine = new HeadlessEngine (8,8,3);
+        int greedyWins = 0;
+        int solverWins = 0;
+        for (long seed = 0; seed < 30; seed++) {
+            greedyWins += engine.play (seed, new GreedyMoveSupplier (seed)).isPlayerWin() ? 1 : 0;
+            solverWins += engine.play (seed, new ExpectimaxSolver (0, 1, 12)).isPlayerWin() ? 1 : 0;
+        }
+        assertTrue (solverWins > greedyWins);
+        assertEquals ("", outContent.toString());
+    }
+
+
+    @Test
+    public void checkMctsPlayerSearchesForksInParallel()
+    {
+        //a fork plays on without touching its origin, and copyFrom brings it back
+        HeadlessEngine engine = new HeadlessEngine (10,10,2,5,SpawnStrategy.SCATTER);
+        Game game = engine.newGame (4L);
+        String before = describe (game);
+        Game fork = game.fork (new GameRandom (9L));
+        RandomMoveSupplier moves = new RandomMoveSupplier (2L);
+        for (int round = 0; round < 30; round++) {
+            fork.nextRound (moves.nextMove (fork));
+        }
+        assertEquals (before, describe (game));
+        fork.copyFrom (game);
+        assertEquals (before.substring (before.indexOf (' ')), describe (fork).substring (describe (fork).indexOf (' ')));
+
+        //the rollout budget is exact, even when several workers share the tree, and the workers are kept
+        MctsPlayer player = new MctsPlayer (3, 0, 500, 1L);
+        MctsResult result = player.search (game);
+        assertEquals (500, result.getRollouts());
+        assertEquals (3, result.getThreads());
+        assertTrue (result.getTreeNodes() > 1);
+        assertEquals (before, describe (game));
+        assertEquals (500, player.search (game).getRollouts());
+        player.close();
+        try {
+            player.search (game);
+            fail ("A closed player must not search.");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+
+        //a monster one hit from death right above the player is attacked
+        Map duel = new Map (new ByteGrid (2,2), "Player", 1, SpawnStrategy.CORNERS, 0L);
+        duel.setHeadless (true);
+        game = new Game (duel, 1, new GameRandom (1L));
+        duel.characters[1].setHealth (10);
+        try (MctsPlayer duelist = new MctsPlayer (2, 0, 2000, 3L)) {
+            assertEquals ("up", duelist.nextMove (game));
+        }
+        assertEquals ("", outContent.toString());
+    }
+
+    /**
+     * Describes every cell, character and the random state of a game.
+     * @param game The game.
+     * @return A string that changes whenever the game state changes.
+     */
+    private static String describe(Game game) {
+        Map map = game.getMap();
+        StringBuilder state = new StringBuilder (Long.toString (game.getRandom().getState())).append (' ');
+        for (int row = 0; row < map.getHeight(); row++) {
+            for (int column = 0; column < map.getWidth(); column++) {
+                state.append (map.getCell (row, column));
+            }
+        }
+        for (GameCharacter character : map.characters) {
+            state.append (' ').append (character.row).append (',').append (character.column).append (',').append (character.getHealth());
+        }
+        return state.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package uoa.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.character.Monster;
+import uoa.assignment.character.Player;
+import uoa.assignment.game.ByteGrid;
+import uoa.assignment.game.Cell;
+import uoa.assignment.game.GameLogic;
+import uoa.assignment.game.Map;
+
+/**
+ * Measures attack collisions in GameLogic and the random decisions of the characters.
+ * The player stands next to the top-left monster; both are healed after every blow so the
+ * collision never turns into a move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombatBenchmark {
+
+    private static final int SIZE = 10;
+
+    private Map map;
+    private Player player;
+    private Monster monster;
+
+
+    @Setup
+    public void setUp() {
+        map = new Map(new ByteGrid(SIZE, SIZE), "Player");
+        map.setHeadless(true);
+        player = (Player) map.characters[0];
+        monster = (Monster) map.characters[3]; // Top-left corner
+        // Walk along the bottom row, then up the second column to stand right of the monster
+        for (int i = 0; i < SIZE - 2; i++) {
+            GameLogic.moveCharacter("left", map, player);
+        }
+        for (int i = 0; i < SIZE - 1; i++) {
+            GameLogic.moveCharacter("up", map, player);
+        }
+    }
+
+
+    @Benchmark
+    public int playerAttacksMonster() {
+        GameLogic.moveCharacter("left", map, player);
+        return heal(monster);
+    }
+
+
+    @Benchmark
+    public int monsterAttacksPlayer() {
+        GameLogic.moveCharacter("right", map, monster);
+        return heal(player);
+    }
+
+
+    @Benchmark
+    public String monsterDecideMove() {
+        return monster.decideMove();
+    }
+
+
+    @Benchmark
+    public boolean monsterSuccessfulDefense() {
+        return monster.successfulDefense();
+    }
+
+
+    @Benchmark
+    public boolean playerSuccessfulDefense() {
+        return player.successfulDefense();
+    }
+
+
+    /**
+     * Restores a character to full health, and its cell if it was marked as defeated.
+     * @param character The character to heal.
+     * @return The health before healing.
+     */
+    private int heal(GameCharacter character) {
+        int health = character.getHealth();
+        if (health < 100) {
+            character.setHealth(100);
+            if (map.getCell(character.row, character.column) == Cell.DEAD) {
+                map.setCell(character.row, character.column, Cell.MONSTER);
+            }
+        }
+        return health;
+    }
+}
@@ -0,0 +1,87 @@
+package uoa.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.character.GameCharacter;
+import uoa.assignment.game.BitboardGrid;
+import uoa.assignment.game.ByteGrid;
+import uoa.assignment.game.Cell;
+import uoa.assignment.game.GameLogic;
+import uoa.assignment.game.Map;
+
+/**
+ * Measures GameLogic.moveCharacter in each direction on an open cell.
+ * Each invocation moves the player one step and back again, so the board does not drift.
+ * The map is stored in a byte grid or in bitboard layers, which also answer the adjacency query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    @Param({"up", "down", "left", "right"})
+    public String direction;
+
+    @Param({"byte", "bitboard"})
+    public String grid;
+
+    private String back;
+    private Map map;
+    private GameCharacter player;
+
+
+    @Setup
+    public void setUp() {
+        map = new Map("bitboard".equals(grid) ? new BitboardGrid(size, size) : new ByteGrid(size, size), "Player");
+        map.setHeadless(true);
+        player = map.characters[0];
+        // Walk the player from its corner to the middle of the map
+        for (int i = 0; i < size / 2; i++) {
+            GameLogic.moveCharacter("up", map, player);
+            GameLogic.moveCharacter("left", map, player);
+        }
+        switch (direction) {
+            case "up":
+                back = "down";
+                break;
+            case "down":
+                back = "up";
+                break;
+            case "left":
+                back = "right";
+                break;
+            default:
+                back = "left";
+        }
+    }
+
+
+    @Benchmark
+    public boolean stepAndBack() {
+        return GameLogic.moveCharacter(direction, map, player) & GameLogic.moveCharacter(back, map, player);
+    }
+
+
+    @Benchmark
+    public boolean monsterAdjacent() {
+        return map.isAdjacent(player.row, player.column, Cell.MONSTER);
+    }
+}
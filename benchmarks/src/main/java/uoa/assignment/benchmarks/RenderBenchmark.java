@@ -0,0 +1,85 @@
+package uoa.assignment.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.game.ByteGrid;
+import uoa.assignment.game.Map;
+import uoa.assignment.game.SpawnStrategy;
+
+/**
+ * Measures Map.printLayout. Standard output is replaced by a stream that discards everything,
+ * so the benchmark measures formatting and stream overhead rather than the terminal.
+ * Maps larger than 60 cells get a viewport and minimap by default; with viewport=false they are
+ * turned off, so the full frame stays comparable with results from before the viewport existed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"10", "100", "200"})
+    public int size;
+
+    @Param({"3", "1000"})
+    public int monsters;
+
+    @Param({"false", "true"})
+    public boolean viewport;
+
+    private Map map;
+    private PrintStream originalOut;
+
+
+    @Setup
+    public void setUp() {
+        int monsterCount = Math.min(monsters, size * size / 4);
+        map = new Map(new ByteGrid(size, size), "Player", monsterCount,
+                monsterCount <= 3 ? SpawnStrategy.CORNERS : SpawnStrategy.SCATTER, 42L);
+        if (!viewport) {
+            map.getRenderer().setViewport(0, 0);
+            map.getRenderer().setMinimap(0, 0);
+        }
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // Discard
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // Discard
+            }
+        }));
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+
+    @Benchmark
+    public void printLayout() {
+        map.printLayout();
+    }
+}
@@ -0,0 +1,71 @@
+package uoa.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.game.Game;
+import uoa.assignment.game.SpawnStrategy;
+import uoa.assignment.simulation.GreedyMoveSupplier;
+import uoa.assignment.simulation.HeadlessEngine;
+import uoa.assignment.simulation.MoveSupplier;
+
+/**
+ * Measures one headless call to Game.nextRound, by map size, monster count and grid backend.
+ * A finished game is reset in place with the next seed, so every invocation plays a real round
+ * and the measurement does not include building a new map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"3", "100", "1000"})
+    public int monsters;
+
+    @Param({"byte", "bitboard"})
+    public String grid;
+
+    private HeadlessEngine engine;
+    private MoveSupplier player;
+    private Game game;
+    private long seed;
+
+
+    @Setup
+    public void setUp() {
+        // Small maps cannot hold every monster count; keep at most a quarter of the cells occupied
+        int monsterCount = Math.min(monsters, size * size / 4);
+        engine = new HeadlessEngine(size, size, 1, monsterCount,
+                monsterCount <= 3 ? SpawnStrategy.CORNERS : SpawnStrategy.SCATTER);
+        engine.setBitboard("bitboard".equals(grid));
+        player = new GreedyMoveSupplier(42L);
+        game = engine.newGame(seed);
+    }
+
+
+    @Benchmark
+    public boolean nextRound() {
+        boolean gameOver = game.nextRound(player.nextMove(game));
+        if (gameOver) {
+            engine.resetGame(game, ++seed);
+        }
+        return gameOver;
+    }
+}
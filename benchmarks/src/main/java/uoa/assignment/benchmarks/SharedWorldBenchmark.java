@@ -0,0 +1,79 @@
+package uoa.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.game.GameRandom;
+import uoa.assignment.game.SharedWorld;
+
+/**
+ * Measures concurrent moves on one shared world. Every benchmark thread drives its own share of
+ * the actors, so the scaling with cores shows with e.g. {@code -t 1}, {@code -t 4} and {@code -t 8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedWorldBenchmark {
+
+    private static final String[] MOVES = {"up", "down", "left", "right"};
+    private static final int SHARES = 64; // Upper bound on benchmark threads
+
+    @Param({"256", "2048"})
+    public int size;
+
+    private SharedWorld world;
+    private final AtomicInteger nextShare = new AtomicInteger();
+
+
+    @Setup
+    public void setUp() {
+        // Monsters stay out of each other's way on a sparse map, so the world outlives the measurement
+        int characters = size * size / 64;
+        world = new SharedWorld(size, size, characters / 8, characters - characters / 8, 1, 42L);
+    }
+
+
+    /**
+     * The actors driven by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Share {
+        private int first;
+        private int next;
+        private final GameRandom random = new GameRandom(7L);
+
+
+        @Setup
+        public void setUp(SharedWorldBenchmark benchmark) {
+            first = benchmark.nextShare.getAndIncrement() % SHARES;
+            next = first;
+        }
+    }
+
+
+    @Benchmark
+    public boolean move(Share share) {
+        int actors = world.getCharacters().length;
+        boolean moved = world.act(share.next, MOVES[share.random.nextInt(MOVES.length)]);
+        share.next += SHARES;
+        if (share.next >= actors) {
+            share.next = share.first;
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,60 @@
+package uoa.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uoa.assignment.game.Game;
+import uoa.assignment.game.MonsterPolicy;
+import uoa.assignment.game.SpawnStrategy;
+import uoa.assignment.simulation.ExpectimaxSolver;
+import uoa.assignment.simulation.HeadlessEngine;
+
+/**
+ * Measures a fixed-depth expectimax search from a mid-game position. The transposition table is
+ * cleared before every search, so each one starts cold; divide the nodes of a search by its time
+ * for the node rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"RANDOM", "CHASE"})
+    public MonsterPolicy policy;
+
+    @Param({"3"})
+    public int depth;
+
+    private Game game;
+    private ExpectimaxSolver solver;
+
+
+    @Setup
+    public void setUp() {
+        HeadlessEngine engine = new HeadlessEngine(12, 12, 2, 4, SpawnStrategy.SCATTER);
+        engine.setMonsterPolicy(policy);
+        game = engine.newGame(42L);
+        solver = new ExpectimaxSolver(60_000, depth, 18); // Far beyond a fixed-depth search
+    }
+
+
+    @Benchmark
+    public long search() {
+        solver.clear();
+        return solver.solve(game).getNodes();
+    }
+}